@@ -1,17 +1,36 @@
 package user.catalog_service.adapter.web;
 
 import org.springframework.data.domain.*;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import user.catalog_service.application.dto.*;
+import user.catalog_service.application.service.book.BookImportFormat;
+import user.catalog_service.application.service.book.BookImportService;
 import user.catalog_service.application.service.book.BookService;
 import user.catalog_service.infrastructure.exception.ApiResponse;
+import user.catalog_service.infrastructure.repository.BookSort;
+import user.catalog_service.infrastructure.storage.ByteRange;
+import user.catalog_service.infrastructure.storage.StoredImage;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/v1")
@@ -19,9 +38,11 @@ import java.util.Map;
 public class BookController {
 
     private final BookService service;
+    private final BookImportService importService;
 
-    public BookController(BookService service) {
+    public BookController(BookService service, BookImportService importService) {
         this.service = service;
+        this.importService = importService;
     }
 
     @PostMapping("/books")
@@ -32,15 +53,59 @@ public class BookController {
 
     }
 
+    // the body is read line by line, so catalogue files of any size stream straight into batches
+    @PostMapping(value = "/books/import", consumes = { "application/x-ndjson", "text/csv" })
+    public ResponseEntity<ApiResponse<BookImportResult>> importBooks(HttpServletRequest request) throws IOException {
+        BookImportFormat format = BookImportFormat.fromContentType(request.getContentType());
+        BookImportResult res = importService.importBooks(request.getInputStream(), format);
+        return ResponseEntity.ok(ApiResponse.success("Success to import books", res));
+    }
+
     @GetMapping("/books")
     public ResponseEntity<?> list(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String q,
-            @RequestParam(required = false) Long categoryId) {
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer minYear,
+            @RequestParam(required = false) Integer maxYear,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean count,
+            @RequestParam(defaultValue = "false") boolean facets) {
+
+        boolean narrowed = fields != null && !fields.isEmpty();
+        BookFilter filter = BookFilter.builder()
+                .q(q)
+                .categoryId(categoryId)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .minYear(minYear)
+                .maxYear(maxYear)
+                .inStock(inStock)
+                .build();
+        BookSort order = BookSort.parse(sort);
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("title").ascending());
-        Page<BookResponse> p = service.list(q, categoryId, pageable);
+        // any cursor parameter, even an empty one, switches to keyset paging; page is ignored then
+        if (cursor != null) {
+            CursorPage<?> c = narrowed
+                    ? service.scroll(filter, order, cursor, size, count, fields)
+                    : service.scroll(filter, order, cursor, size, count);
+            Map<String, Object> response = cursorResponse(c, size);
+            if (facets) {
+                response.put("facets", service.facets(filter));
+            }
+            return ResponseEntity.ok(ApiResponse.success("Success to get list book", response));
+        }
+
+        Pageable pageable = PageRequest.of(page, size, order.sort());
+        Page<?> p = narrowed
+                ? service.list(filter, pageable, fields)
+                : service.list(filter, pageable);
 
         Map<String, Object> response = new HashMap<>();
         response.put("content", p.getContent());
@@ -48,14 +113,163 @@ public class BookController {
         response.put("size", p.getSize());
         response.put("totalElements", p.getTotalElements());
         response.put("totalPages", p.getTotalPages());
+        if (facets) {
+            response.put("facets", service.facets(filter));
+        }
 
         return ResponseEntity.ok(ApiResponse.success("Success to get list book", response));
     }
 
+    @GetMapping("/books/facets")
+    public ResponseEntity<ApiResponse<BookFacets>> facets(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Integer minYear,
+            @RequestParam(required = false) Integer maxYear,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "false") boolean inStock) {
+        BookFacets res = service.facets(BookFilter.builder()
+                .q(q)
+                .categoryId(categoryId)
+                .minYear(minYear)
+                .maxYear(maxYear)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .inStock(inStock)
+                .build());
+        return ResponseEntity.ok(ApiResponse.success("Success to get book facets", res));
+    }
+
+    @GetMapping("/books/export")
+    public void export(@RequestParam(required = false) Long categoryId, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        // rows are written as they are read, nothing is collected first
+        if (acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            try (GZIPOutputStream gzip = new GZIPOutputStream(response.getOutputStream(), 8192)) {
+                service.export(categoryId, gzip);
+            }
+        } else {
+            service.export(categoryId, response.getOutputStream());
+        }
+    }
+
+    @GetMapping("/books/suggest")
+    public ResponseEntity<ApiResponse<List<BookSuggestion>>> suggest(@RequestParam(required = false) String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<BookSuggestion> res = service.suggest(prefix, limit);
+        return ResponseEntity.ok(ApiResponse.success("Success to get suggestions", res));
+    }
+
+    @GetMapping("/books/lookup")
+    public ResponseEntity<ApiResponse<List<BookLookupResponse>>> lookup(@RequestParam List<Long> ids) {
+        List<BookLookupResponse> res = service.lookup(ids);
+        return ResponseEntity.ok(ApiResponse.success("Success to lookup books", res));
+    }
+
     @GetMapping("/books/{id}")
-    public ResponseEntity<?> get(@PathVariable Long id) {
+    public ResponseEntity<?> get(@PathVariable Long id, WebRequest request) {
         var res = service.getById(id);
-        return ResponseEntity.ok(ApiResponse.success("Success to get book", res));
+        // hot books change stock without a row write, so the stock is part of the tag
+        String etag = "\"" + res.getVersion() + "-" + res.getStock() + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(ApiResponse.success("Success to get book", res));
+    }
+
+    @PutMapping("/books/{id}/image")
+    public ResponseEntity<ApiResponse<BookResponse>> uploadImage(@PathVariable Long id, HttpServletRequest request)
+            throws IOException {
+        BookResponse res = service.uploadImage(id, request.getInputStream());
+        return ResponseEntity.ok(ApiResponse.success("Success to upload image", res));
+    }
+
+    @GetMapping("/books/{id}/image")
+    public void image(@PathVariable Long id, @RequestParam(required = false) Integer w, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        StoredImage image = service.getImage(id, w);
+        String etag = "\"" + image.hash() + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        // the original standing in for a thumbnail is revalidated, so the thumbnail replaces it once rendered
+        response.setHeader(HttpHeaders.CACHE_CONTROL, image.substitute() ? "no-cache" : "private, max-age=86400");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        ByteRange range = new ByteRange(0, image.size() - 1);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null || ifRange.equals(etag)) {
+            range = ByteRange.parse(request.getHeader(HttpHeaders.RANGE), image.size());
+            if (range == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + image.size());
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (range.length() < image.size()) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + range.start() + "-" + range.end() + "/" + image.size());
+            }
+        }
+
+        response.setContentType(image.contentType());
+        response.setContentLengthLong(range.length());
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        // let Tomcat hand the file to the socket with sendfile(2) when the connector supports it
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", image.path().toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", range.start());
+            request.setAttribute("org.apache.tomcat.sendfile.end", range.end() + 1);
+            return;
+        }
+
+        try (FileChannel file = FileChannel.open(image.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = range.start();
+            long remaining = range.length();
+            while (remaining > 0) {
+                long sent = file.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    private boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .anyMatch(t -> t.equals("*") || t.equals(etag) || t.equals("W/" + etag));
+    }
+
+    // "gzip;q=0" is an explicit refusal
+    private boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        return Arrays.stream(acceptEncoding.split(","))
+                .map(t -> t.trim().toLowerCase())
+                .anyMatch(t -> t.startsWith("gzip") && !t.replace(" ", "").matches("gzip;q=0(\\.0*)?"));
     }
 
     @PutMapping("/books/{id}")
@@ -92,4 +306,41 @@ public class BookController {
                 "message", "Stock incremented",
                 "data", updated));
     }
-}
\ No newline at end of file
+
+    @PostMapping("/books/stock/reserve")
+    public ResponseEntity<ApiResponse<List<StockItemDto>>> reserveStock(
+            @Valid @RequestBody StockBatchRequest request) {
+        List<StockItemDto> reserved = service.reserveStock(request.getItems(), request.getOrderId());
+        return ResponseEntity.ok(ApiResponse.success("Stock reserved", reserved));
+    }
+
+    @PostMapping("/books/stock/release")
+    public ResponseEntity<ApiResponse<List<StockItemDto>>> releaseStock(
+            @Valid @RequestBody StockBatchRequest request) {
+        List<StockItemDto> released = service.releaseStock(request.getItems());
+        return ResponseEntity.ok(ApiResponse.success("Stock released", released));
+    }
+
+    @PostMapping("/books/stock/reservations/{orderId}/release")
+    public ResponseEntity<ApiResponse<List<StockItemDto>>> releaseReservation(@PathVariable Long orderId) {
+        List<StockItemDto> released = service.releaseReservation(orderId);
+        return ResponseEntity.ok(ApiResponse.success("Reservation released", released));
+    }
+
+    @PostMapping("/books/stock/reservations/{orderId}/confirm")
+    public ResponseEntity<ApiResponse<List<StockItemDto>>> confirmReservation(@PathVariable Long orderId) {
+        List<StockItemDto> confirmed = service.confirmReservation(orderId);
+        return ResponseEntity.ok(ApiResponse.success("Reservation confirmed", confirmed));
+    }
+
+    private Map<String, Object> cursorResponse(CursorPage<?> c, int size) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", c.getContent());
+        response.put("size", size);
+        response.put("nextCursor", c.getNextCursor());
+        if (c.getTotalElements() != null) {
+            response.put("totalElements", c.getTotalElements());
+        }
+        return response;
+    }
+}
@@ -11,6 +11,7 @@ import jakarta.validation.Valid;
 import user.catalog_service.application.dto.CategoryDto;
 import user.catalog_service.application.dto.CategoryResponse;
 import user.catalog_service.application.dto.CategoryUpdate;
+import user.catalog_service.application.dto.CursorPage;
 import user.catalog_service.application.service.category.CategoryService;
 import user.catalog_service.infrastructure.exception.ApiResponse;
 
@@ -33,7 +34,14 @@ public class CategoryController {
     @GetMapping("/categories")
     public ResponseEntity<?> list(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean count) {
+
+        if (cursor != null) {
+            CursorPage<CategoryResponse> c = categoryService.scroll(cursor, size, count);
+            return ResponseEntity.ok(ApiResponse.success("Find All Category", cursorResponse(c, size)));
+        }
 
         Pageable pageable = PageRequest.of(page, size, Sort.by("name").ascending());
         Page<CategoryResponse> p = categoryService.list(pageable);
@@ -71,4 +79,15 @@ public class CategoryController {
         return ResponseEntity.ok(ApiResponse.success("Success to Delete Category", deleted));
 
     }
+
+    private Map<String, Object> cursorResponse(CursorPage<?> c, int size) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", c.getContent());
+        response.put("size", size);
+        response.put("nextCursor", c.getNextCursor());
+        if (c.getTotalElements() != null) {
+            response.put("totalElements", c.getTotalElements());
+        }
+        return response;
+    }
 }
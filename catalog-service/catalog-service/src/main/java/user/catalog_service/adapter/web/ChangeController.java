@@ -0,0 +1,41 @@
+package user.catalog_service.adapter.web;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import user.catalog_service.application.dto.ChangePage;
+import user.catalog_service.application.service.change.ChangeService;
+import user.catalog_service.infrastructure.exception.ApiResponse;
+
+@RestController
+@RequestMapping("/api/v1")
+public class ChangeController {
+
+    private final ChangeService changeService;
+
+    public ChangeController(ChangeService changeService) {
+        this.changeService = changeService;
+    }
+
+    // the request thread is handed back while a long poll waits; the feed completes it when a change is numbered
+    @GetMapping("/changes")
+    public DeferredResult<ResponseEntity<ApiResponse<ChangePage>>> changes(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "0") int wait) {
+        DeferredResult<ResponseEntity<ApiResponse<ChangePage>>> result =
+                new DeferredResult<>(TimeUnit.SECONDS.toMillis(wait) + 5_000);
+        changeService.poll(since, limit, wait).whenComplete((page, error) -> {
+            if (error != null) {
+                result.setErrorResult(error instanceof CompletionException ? error.getCause() : error);
+            } else {
+                result.setResult(ResponseEntity.ok(ApiResponse.success("Catalog changes", page)));
+            }
+        });
+        return result;
+    }
+}
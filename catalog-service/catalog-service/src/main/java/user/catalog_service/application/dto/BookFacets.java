@@ -0,0 +1,19 @@
+package user.catalog_service.application.dto;
+
+import java.util.List;
+
+import lombok.*;
+
+@Getter
+@AllArgsConstructor
+public class BookFacets {
+    private long total;
+
+    private List<FacetBucket> categories;
+
+    private List<FacetBucket> years;
+
+    private List<FacetBucket> prices;
+
+    private List<FacetBucket> stock;
+}
@@ -0,0 +1,36 @@
+package user.catalog_service.application.dto;
+
+import java.math.BigDecimal;
+
+import lombok.*;
+
+@Getter
+@Builder
+@AllArgsConstructor
+public class BookFilter {
+    private String q;
+
+    private Long categoryId;
+
+    private BigDecimal minPrice;
+
+    private BigDecimal maxPrice;
+
+    private Integer minYear;
+
+    private Integer maxYear;
+
+    private boolean inStock;
+
+    public static BookFilter of(String q, Long categoryId) {
+        return BookFilter.builder().q(q).categoryId(categoryId).build();
+    }
+
+    public boolean hasQuery() {
+        return q != null && !q.isBlank();
+    }
+
+    public boolean hasAttributeFilters() {
+        return minPrice != null || maxPrice != null || minYear != null || maxYear != null || inStock;
+    }
+}
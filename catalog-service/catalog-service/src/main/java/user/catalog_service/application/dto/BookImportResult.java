@@ -0,0 +1,22 @@
+package user.catalog_service.application.dto;
+
+import java.util.List;
+
+import lombok.*;
+
+// errors is capped at catalog.import.max-reported-errors; failed counts every rejected row
+@Getter
+@AllArgsConstructor
+public class BookImportResult {
+    private long rows;
+
+    private long imported;
+
+    private long failed;
+
+    private List<String> errors;
+
+    private long elapsedMs;
+
+    private double rowsPerSecond;
+}
@@ -0,0 +1,26 @@
+package user.catalog_service.application.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+
+// the category id wins when both id and name are given
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookImportRow {
+    private String title;
+
+    private String author;
+
+    private BigDecimal price;
+
+    private Integer stock;
+
+    private Integer year;
+
+    private Long category_id;
+
+    private String category;
+}
@@ -0,0 +1,28 @@
+package user.catalog_service.application.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookListItem {
+    private Long id;
+
+    private String title;
+
+    private String author;
+
+    private BigDecimal price;
+
+    private Integer stock;
+
+    private Integer year;
+
+    private Long categoryId;
+
+    private String imageHash;
+
+    private boolean hot;
+}
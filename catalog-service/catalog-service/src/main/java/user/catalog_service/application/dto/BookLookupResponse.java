@@ -0,0 +1,19 @@
+package user.catalog_service.application.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookLookupResponse {
+    private Long id;
+
+    private String title;
+
+    private BigDecimal price;
+
+    private Integer stock;
+}
@@ -1,5 +1,7 @@
 package user.catalog_service.application.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.*;
 import java.math.BigDecimal;
 
@@ -7,7 +9,7 @@ import java.math.BigDecimal;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class BookResponse {
     private Long id;
 
@@ -23,5 +25,13 @@ public class BookResponse {
 
     private Long category_id;
 
-    private String image_base64;
-}
\ No newline at end of file
+    private String image_url;
+
+    private String image_hash;
+
+    private Boolean hot;
+
+    // per-book row version, sent as the ETag rather than in the body
+    @JsonIgnore
+    private Long version;
+}
@@ -0,0 +1,14 @@
+package user.catalog_service.application.dto;
+
+import lombok.*;
+
+// an author entry has a null id, since it stands for all of the author's books
+@Getter
+@AllArgsConstructor
+public class BookSuggestion {
+    private String text;
+
+    private String type;
+
+    private Long bookId;
+}
@@ -24,4 +24,6 @@ public class BookUpdateDto {
     private Long category_id;
 
     private String image_base64;
+
+    private Boolean hot;
 }
@@ -11,4 +11,6 @@ public class CategoryResponse {
     private Long id;
 
     private String name;
+
+    private Long bookCount;
 }
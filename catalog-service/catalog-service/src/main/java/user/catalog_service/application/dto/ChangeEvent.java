@@ -0,0 +1,18 @@
+package user.catalog_service.application.dto;
+
+import lombok.*;
+
+// data is the entity's state when the page is read, not when the change happened
+@Getter
+@AllArgsConstructor
+public class ChangeEvent {
+    private long seq;
+
+    private String entity;
+
+    private Long id;
+
+    private String op;
+
+    private Object data;
+}
@@ -0,0 +1,17 @@
+package user.catalog_service.application.dto;
+
+import java.util.List;
+
+import lombok.*;
+
+@Getter
+@AllArgsConstructor
+public class ChangePage {
+    private List<ChangeEvent> changes;
+
+    private long next;
+
+    private long head;
+
+    private boolean resync;
+}
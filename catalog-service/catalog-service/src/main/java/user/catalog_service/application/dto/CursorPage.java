@@ -0,0 +1,16 @@
+package user.catalog_service.application.dto;
+
+import java.util.List;
+
+import lombok.*;
+
+// totalElements is only filled when the caller asked for the count
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+
+    private String nextCursor;
+
+    private Long totalElements;
+}
@@ -0,0 +1,14 @@
+package user.catalog_service.application.dto;
+
+import lombok.*;
+
+// label is the display name where the value is an id
+@Getter
+@AllArgsConstructor
+public class FacetBucket {
+    private String value;
+
+    private String label;
+
+    private long count;
+}
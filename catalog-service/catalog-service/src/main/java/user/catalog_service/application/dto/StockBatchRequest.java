@@ -0,0 +1,20 @@
+package user.catalog_service.application.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockBatchRequest {
+    @NotEmpty(message = "items is required")
+    @Valid
+    private List<StockItemDto> items;
+
+    // when set, the reservation is recorded against this order and expires after the configured TTL
+    private Long orderId;
+}
@@ -0,0 +1,18 @@
+package user.catalog_service.application.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockItemDto {
+    @NotNull(message = "bookId is required")
+    private Long bookId;
+
+    @NotNull(message = "qty is required")
+    @Min(1)
+    private Integer qty;
+}
@@ -0,0 +1,31 @@
+package user.catalog_service.application.service.book;
+
+import java.util.List;
+
+import org.springframework.http.MediaType;
+
+import user.catalog_service.infrastructure.exception.BadRequestException;
+
+public enum BookImportFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final MediaType mediaType;
+
+    BookImportFormat(String mediaType) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+    }
+
+    public static BookImportFormat fromContentType(String contentType) {
+        if (contentType != null) {
+            MediaType requested = MediaType.parseMediaType(contentType);
+            for (BookImportFormat format : values()) {
+                if (format.mediaType.isCompatibleWith(requested)) {
+                    return format;
+                }
+            }
+        }
+        throw new BadRequestException("Unsupported import format",
+                List.of("Content-Type must be application/x-ndjson or text/csv"));
+    }
+}
@@ -0,0 +1,9 @@
+package user.catalog_service.application.service.book;
+
+import java.io.InputStream;
+
+import user.catalog_service.application.dto.BookImportResult;
+
+public interface BookImportService {
+    BookImportResult importBooks(InputStream in, BookImportFormat format);
+}
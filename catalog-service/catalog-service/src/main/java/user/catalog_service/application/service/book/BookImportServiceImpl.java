@@ -0,0 +1,360 @@
+package user.catalog_service.application.service.book;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import user.catalog_service.application.dto.BookImportResult;
+import user.catalog_service.application.dto.BookImportRow;
+import user.catalog_service.domain.model.Book;
+import user.catalog_service.infrastructure.cache.CategoryCache;
+import user.catalog_service.infrastructure.changes.ChangeEntity;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.changes.ChangeOp;
+import user.catalog_service.infrastructure.exception.BadRequestException;
+import user.catalog_service.infrastructure.exception.ResourceNotFoundException;
+import user.catalog_service.infrastructure.repository.BookIdAllocator;
+import user.catalog_service.infrastructure.repository.CategoryRepository;
+import user.catalog_service.infrastructure.search.FacetIndex;
+import user.catalog_service.infrastructure.search.SearchIndex;
+import user.catalog_service.infrastructure.search.SuggestIndex;
+import user.catalog_service.infrastructure.utils.CsvUtil;
+
+// only the current batch is held in memory; a batch the database rejects is retried row by row,
+// so a bad row only fails itself
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+    private static final ObjectReader ROW_READER = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .readerFor(BookImportRow.class);
+
+    private static final String INSERT = "insert into books (id, title, author, price, stock, \"year\", category_id, "
+            + "hot, version) values (?, ?, ?, ?, ?, ?, ?, false, 0)";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final CategoryRepository categoryRepo;
+    private final CategoryCache categoryCache;
+    private final SearchIndex searchIndex;
+    private final SuggestIndex suggestIndex;
+    private final FacetIndex facetIndex;
+    private final BookIdAllocator idAllocator;
+    private final ChangeFeed changeFeed;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    private final Counter importedRows;
+    private final Counter failedRows;
+
+    public BookImportServiceImpl(JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+            CategoryRepository categoryRepo, CategoryCache categoryCache, SearchIndex searchIndex,
+            SuggestIndex suggestIndex, FacetIndex facetIndex, BookIdAllocator idAllocator, ChangeFeed changeFeed,
+            MeterRegistry registry,
+            @Value("${catalog.import.batch-size:500}") int batchSize,
+            @Value("${catalog.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.categoryRepo = categoryRepo;
+        this.categoryCache = categoryCache;
+        this.searchIndex = searchIndex;
+        this.suggestIndex = suggestIndex;
+        this.facetIndex = facetIndex;
+        this.idAllocator = idAllocator;
+        this.changeFeed = changeFeed;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+        this.importedRows = Counter.builder("catalog.import.rows")
+                .description("Rows read by the bulk book import")
+                .tag("result", "imported")
+                .register(registry);
+        this.failedRows = Counter.builder("catalog.import.rows")
+                .description("Rows read by the bulk book import")
+                .tag("result", "failed")
+                .register(registry);
+    }
+
+    @Override
+    public BookImportResult importBooks(InputStream in, BookImportFormat format) {
+        long start = System.nanoTime();
+        Run run = new Run();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            int lineNo = 0;
+            Map<String, Integer> header = null;
+            if (format == BookImportFormat.CSV) {
+                String first = reader.readLine();
+                lineNo++;
+                header = first == null ? Map.of() : csvHeader(first);
+            }
+
+            List<PendingBook> batch = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                run.rows++;
+                BookImportRow row;
+                try {
+                    row = header == null ? ROW_READER.readValue(line) : csvRow(header, line);
+                } catch (JsonProcessingException e) {
+                    run.fail(lineNo, "malformed JSON");
+                    continue;
+                } catch (IllegalArgumentException e) {
+                    run.fail(lineNo, e.getMessage());
+                    continue;
+                }
+                String error = validate(row);
+                if (error != null) {
+                    run.fail(lineNo, error);
+                    continue;
+                }
+                batch.add(new PendingBook(lineNo, row));
+                if (batch.size() == batchSize) {
+                    flush(batch, run);
+                    batch.clear();
+                }
+            }
+            flush(batch, run);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        importedRows.increment(run.imported);
+        failedRows.increment(run.failed);
+        return new BookImportResult(run.rows, run.imported, run.failed, run.errors, elapsedNanos / 1_000_000,
+                run.rows * 1_000_000_000.0 / elapsedNanos);
+    }
+
+    private void flush(List<PendingBook> batch, Run run) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        resolveCategoryNames(batch, run);
+
+        List<PendingBook> accepted = new ArrayList<>(batch.size());
+        for (PendingBook pending : batch) {
+            BookImportRow row = pending.row;
+            Long categoryId = row.getCategory_id() != null ? row.getCategory_id()
+                    : run.categoryIds.get(row.getCategory());
+            if (categoryId == null || !categoryCache.exists(categoryId)) {
+                run.fail(pending.lineNo, "category not found");
+                continue;
+            }
+            pending.categoryId = categoryId;
+            pending.id = run.nextId();
+            accepted.add(pending);
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        try {
+            tx.executeWithoutResult(status -> insert(accepted));
+            accepted.forEach(pending -> imported(pending, run));
+        } catch (DataAccessException | ResourceNotFoundException batchFailure) {
+            // find the offending rows; the others still go in
+            for (PendingBook pending : accepted) {
+                try {
+                    tx.executeWithoutResult(status -> insert(List.of(pending)));
+                    imported(pending, run);
+                } catch (ResourceNotFoundException e) {
+                    run.fail(pending.lineNo, "category not found");
+                } catch (DataAccessException e) {
+                    run.fail(pending.lineNo, "rejected by the database");
+                }
+            }
+        }
+    }
+
+    private void insert(List<PendingBook> books) {
+        // counts first and in id order, the same lock order as single book writes
+        Map<Long, Long> perCategory = new TreeMap<>();
+        books.forEach(b -> perCategory.merge(b.categoryId, 1L, Long::sum));
+        perCategory.forEach((categoryId, count) -> {
+            if (categoryRepo.adjustBookCount(categoryId, count) == 0) {
+                categoryCache.evict(categoryId);
+                throw new ResourceNotFoundException("Category not found", List.of());
+            }
+        });
+
+        List<Object[]> args = new ArrayList<>(books.size());
+        for (PendingBook b : books) {
+            BookImportRow row = b.row;
+            args.add(new Object[] { b.id, row.getTitle(), row.getAuthor(), row.getPrice(), row.getStock(),
+                    row.getYear(), b.categoryId });
+        }
+        jdbc.batchUpdate(INSERT, args);
+        changeFeed.recordAll(ChangeEntity.BOOK, books.stream().map(b -> b.id).toList(), ChangeOp.UPSERT);
+        changeFeed.recordAll(ChangeEntity.CATEGORY, perCategory.keySet(), ChangeOp.UPSERT);
+    }
+
+    private void imported(PendingBook pending, Run run) {
+        run.imported++;
+        categoryCache.adjustBookCount(pending.categoryId, 1);
+        searchIndex.put(pending.id, pending.row.getTitle(), pending.row.getAuthor(), pending.categoryId);
+        suggestIndex.put(pending.id, pending.row.getTitle(), pending.row.getAuthor(), pending.row.getStock());
+        facetIndex.put(pending.id, pending.categoryId, pending.row.getYear(), pending.row.getPrice(),
+                pending.row.getStock());
+    }
+
+    private void resolveCategoryNames(List<PendingBook> batch, Run run) {
+        Set<String> names = new HashSet<>();
+        for (PendingBook pending : batch) {
+            String name = pending.row.getCategory();
+            if (pending.row.getCategory_id() == null && !run.categoryIds.containsKey(name)) {
+                names.add(name);
+            }
+        }
+        if (!names.isEmpty()) {
+            categoryRepo.findByNameIn(names).forEach(c -> run.categoryIds.put(c.getName(), c.getId()));
+        }
+    }
+
+    private static String validate(BookImportRow row) {
+        if (row.getTitle() == null || row.getTitle().isBlank()) {
+            return "title is required";
+        }
+        if (row.getAuthor() == null || row.getAuthor().isBlank()) {
+            return "author is required";
+        }
+        if (row.getPrice() == null) {
+            return "price is required";
+        }
+        if (row.getPrice().signum() < 0) {
+            return "price must not be negative";
+        }
+        if (row.getStock() == null) {
+            return "stock is required";
+        }
+        if (row.getStock() < 1) {
+            return "stock must be at least 1";
+        }
+        if (row.getYear() == null) {
+            return "year is required";
+        }
+        if (row.getCategory_id() == null && (row.getCategory() == null || row.getCategory().isBlank())) {
+            return "category_id or category is required";
+        }
+        return null;
+    }
+
+    private static Map<String, Integer> csvHeader(String line) {
+        List<String> names = CsvUtil.split(line);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            header.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!header.containsKey("title")) {
+            throw new BadRequestException("Invalid CSV header", List.of("header row must name a title column"));
+        }
+        return header;
+    }
+
+    private static BookImportRow csvRow(Map<String, Integer> header, String line) {
+        List<String> cells = CsvUtil.split(line);
+        BookImportRow row = new BookImportRow();
+        row.setTitle(cell(header, cells, "title"));
+        row.setAuthor(cell(header, cells, "author"));
+        row.setCategory(cell(header, cells, "category"));
+        try {
+            String price = cell(header, cells, "price");
+            row.setPrice(price == null ? null : new BigDecimal(price));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("price is not a number");
+        }
+        row.setStock(intCell(header, cells, "stock"));
+        row.setYear(intCell(header, cells, "year"));
+        try {
+            String categoryId = cell(header, cells, "category_id");
+            row.setCategory_id(categoryId == null ? null : Long.valueOf(categoryId));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("category_id is not a number");
+        }
+        return row;
+    }
+
+    private static Integer intCell(Map<String, Integer> header, List<String> cells, String name) {
+        String value = cell(header, cells, name);
+        try {
+            return value == null ? null : Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a number");
+        }
+    }
+
+    private static String cell(Map<String, Integer> header, List<String> cells, String name) {
+        Integer index = header.get(name);
+        if (index == null || index >= cells.size()) {
+            return null;
+        }
+        String value = cells.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static class PendingBook {
+        final int lineNo;
+        final BookImportRow row;
+        Long categoryId;
+        long id;
+
+        PendingBook(int lineNo, BookImportRow row) {
+            this.lineNo = lineNo;
+            this.row = row;
+        }
+    }
+
+    // per-request state; the name map is bounded by the categories table
+    private class Run {
+        long rows;
+        long imported;
+        long failed;
+        final List<String> errors = new ArrayList<>();
+        final Map<String, Long> categoryIds = new HashMap<>();
+        long nextId;
+        long blockEnd;
+
+        void fail(int lineNo, String reason) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add("line " + lineNo + ": " + reason);
+            }
+        }
+
+        long nextId() {
+            if (nextId == blockEnd) {
+                nextId = idAllocator.nextBlock();
+                blockEnd = nextId + Book.ID_BLOCK_SIZE;
+            }
+            return nextId++;
+        }
+    }
+}
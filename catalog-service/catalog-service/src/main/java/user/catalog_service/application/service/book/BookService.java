@@ -1,24 +1,67 @@
 package user.catalog_service.application.service.book;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import user.catalog_service.application.dto.BookDto;
+import user.catalog_service.application.dto.BookFacets;
+import user.catalog_service.application.dto.BookFilter;
+import user.catalog_service.application.dto.BookLookupResponse;
 import user.catalog_service.application.dto.BookResponse;
+import user.catalog_service.application.dto.BookSuggestion;
 import user.catalog_service.application.dto.BookUpdateDto;
+import user.catalog_service.application.dto.CursorPage;
+import user.catalog_service.application.dto.StockItemDto;
+import user.catalog_service.infrastructure.repository.BookSort;
+import user.catalog_service.infrastructure.storage.StoredImage;
 
 public interface BookService {
-    BookDto create(BookDto dto);
+    BookResponse create(BookDto dto);
+
+    Page<BookResponse> list(BookFilter filter, Pageable pageable);
+
+    Page<Map<String, Object>> list(BookFilter filter, Pageable pageable, List<String> fields);
+
+    CursorPage<BookResponse> scroll(BookFilter filter, BookSort sort, String cursor, int size, boolean withCount);
 
-    Page<BookResponse> list(String q, Long categoryId, Pageable pageable);
+    CursorPage<Map<String, Object>> scroll(BookFilter filter, BookSort sort, String cursor, int size,
+            boolean withCount, List<String> fields);
+
+    long export(Long categoryId, OutputStream out);
 
     BookResponse getById(Long id);
 
+    List<BookLookupResponse> lookup(List<Long> ids);
+
+    List<BookResponse> getByIds(Collection<Long> ids);
+
+    List<BookSuggestion> suggest(String prefix, int limit);
+
+    BookFacets facets(BookFilter filter);
+
     BookResponse update(Long id, BookUpdateDto dto);
 
     BookResponse delete(Long id);
 
+    BookResponse uploadImage(Long id, InputStream content);
+
+    StoredImage getImage(Long id, Integer width);
+
     BookResponse decrementStock(Long id, int qty);
 
     BookResponse incrementStock(Long id, int qty);
 
+    List<StockItemDto> reserveStock(List<StockItemDto> items, Long orderId);
+
+    List<StockItemDto> releaseStock(List<StockItemDto> items);
+
+    List<StockItemDto> releaseReservation(Long orderId);
+
+    List<StockItemDto> confirmReservation(Long orderId);
+
 }
@@ -1,75 +1,306 @@
 package user.catalog_service.application.service.book;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 import org.springframework.data.domain.*;
 import user.catalog_service.application.dto.*;
 import user.catalog_service.domain.model.*;
+import user.catalog_service.infrastructure.cache.BookCache;
+import user.catalog_service.infrastructure.cache.CategoryCache;
+import user.catalog_service.infrastructure.changes.ChangeEntity;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.changes.ChangeOp;
+import user.catalog_service.infrastructure.exception.BadRequestException;
 import user.catalog_service.infrastructure.exception.ResourceNotFoundException;
 import user.catalog_service.infrastructure.repository.*;
+import user.catalog_service.infrastructure.search.FacetCounts;
+import user.catalog_service.infrastructure.search.FacetFilter;
+import user.catalog_service.infrastructure.search.FacetIndex;
+import user.catalog_service.infrastructure.search.SearchHits;
+import user.catalog_service.infrastructure.search.SearchIndex;
+import user.catalog_service.infrastructure.search.SuggestIndex;
+import user.catalog_service.infrastructure.stock.StockLedger;
+import user.catalog_service.infrastructure.storage.BlobStore;
+import user.catalog_service.infrastructure.storage.StoredImage;
+import user.catalog_service.infrastructure.storage.ThumbnailPipeline;
+import user.catalog_service.infrastructure.utils.Cursor;
 import user.catalog_service.infrastructure.utils.ImageUtil;
 
 @Service
 public class BookServiceImpl implements BookService {
 
+    private static final int MAX_LOOKUP_IDS = 500;
+    private static final int MAX_SUGGESTIONS = 20;
+
+    // the caller owns the stream, and flushing after every row would send one chunk per book
+    private static final ObjectMapper EXPORT_MAPPER = new ObjectMapper()
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
     private final BookRepository bookRepo;
     private final CategoryRepository categoryRepo;
+    private final StockLedger stockLedger;
+    private final StockReservationRepository reservationRepo;
+    private final Duration reservationTtl;
+    private final BlobStore blobStore;
+    private final ThumbnailPipeline thumbnails;
+    private final SearchIndex searchIndex;
+    private final SuggestIndex suggestIndex;
+    private final FacetIndex facetIndex;
+    private final BookCache bookCache;
+    private final CategoryCache categoryCache;
+    private final ChangeFeed changeFeed;
+    private final int exportFetchSize;
 
-    public BookServiceImpl(BookRepository bookRepo, CategoryRepository categoryRepo) {
+    public BookServiceImpl(BookRepository bookRepo, CategoryRepository categoryRepo, StockLedger stockLedger,
+            StockReservationRepository reservationRepo,
+            @Value("${catalog.reservations.ttl-seconds:900}") long reservationTtlSeconds,
+            BlobStore blobStore, ThumbnailPipeline thumbnails, SearchIndex searchIndex, SuggestIndex suggestIndex, FacetIndex facetIndex,
+            BookCache bookCache, CategoryCache categoryCache, ChangeFeed changeFeed,
+            @Value("${catalog.export.fetch-size:1000}") int exportFetchSize) {
         this.bookRepo = bookRepo;
         this.categoryRepo = categoryRepo;
+        this.stockLedger = stockLedger;
+        this.reservationRepo = reservationRepo;
+        this.reservationTtl = Duration.ofSeconds(reservationTtlSeconds);
+        this.blobStore = blobStore;
+        this.thumbnails = thumbnails;
+        this.searchIndex = searchIndex;
+        this.suggestIndex = suggestIndex;
+        this.facetIndex = facetIndex;
+        this.bookCache = bookCache;
+        this.categoryCache = categoryCache;
+        this.changeFeed = changeFeed;
+        this.exportFetchSize = exportFetchSize;
     }
 
     @Override
     @Transactional
-    public BookDto create(BookDto dto) {
+    public BookResponse create(BookDto dto) {
         List<String> errorMessages = new ArrayList<>();
         Category cat = null;
         if (dto.getCategory_id() != null) {
-            cat = categoryRepo.findById(dto.getCategory_id())
-                    .orElseThrow(() -> new ResourceNotFoundException("Category not found", errorMessages));
+            if (!categoryCache.exists(dto.getCategory_id())) {
+                throw new ResourceNotFoundException("Category not found", errorMessages);
+            }
+            moveBookCount(null, dto.getCategory_id());
+            cat = categoryRepo.getReferenceById(dto.getCategory_id());
         }
 
-        String base64Image = ImageUtil.encodeStringToBase64(dto.getImage_base64());
-
         Book b = new Book();
         b.setTitle(dto.getTitle());
         b.setAuthor(dto.getAuthor());
         b.setPrice(dto.getPrice());
         b.setStock(dto.getStock());
         b.setYear(dto.getYear());
-        b.setImageBase64(base64Image);
+        storeImage(b, ImageUtil.decodeImage(dto.getImage_base64()));
         if (cat != null) {
             b.setCategory(cat);
         }
         Book saved = bookRepo.save(b);
-        return toDto(saved);
+        reindex(saved);
+        changeFeed.record(ChangeEntity.BOOK, saved.getId(), ChangeOp.UPSERT);
+        return toResponse(saved);
     }
 
     @Override
-    public Page<BookResponse> list(String q, Long categoryId, Pageable pageable) {
-        Page<Book> page;
-        if (q != null && !q.isBlank()) {
-            page = bookRepo.findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(q, q, pageable);
-        } else if (categoryId != null) {
-            page = bookRepo.findByCategoryId(categoryId, pageable);
+    @Transactional(readOnly = true)
+    public Page<BookResponse> list(BookFilter filter, Pageable pageable) {
+        requireValidRanges(filter);
+        Page<BookListItem> page;
+        if (searchable(filter)) {
+            // search results come back in rank order, the requested sort only applies to plain listings
+            SearchHits hits = search(filter, (int) pageable.getOffset(), pageable.getPageSize());
+            Map<Long, BookListItem> byId = new HashMap<>();
+            bookRepo.findListItemsByIdIn(hits.ids()).forEach(item -> byId.put(item.getId(), item));
+            page = new PageImpl<>(ranked(hits, byId), pageable, hits.total());
+        } else if (filter.hasQuery() || filter.getCategoryId() != null || filter.hasAttributeFilters()) {
+            page = bookRepo.filterListItems(filter, pageable);
         } else {
-            page = bookRepo.findAll(pageable);
+            page = bookRepo.findListItems(pageable);
         }
         return page.map(this::toResponse);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> list(BookFilter filter, Pageable pageable, List<String> fields) {
+        requireValidRanges(filter);
+        List<String> columns = columnsFor(fields, false);
+        if (searchable(filter)) {
+            SearchHits hits = search(filter, (int) pageable.getOffset(), pageable.getPageSize());
+            Map<Long, Map<String, Object>> byId = new HashMap<>();
+            bookRepo.findFieldsByIds(columns, hits.ids()).forEach(row -> byId.put((Long) row.get("id"), row));
+            return new PageImpl<>(ranked(hits, byId), pageable, hits.total()).map(row -> toFields(row, fields));
+        }
+        return bookRepo.findFields(columns, filter, pageable).map(row -> toFields(row, fields));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<BookResponse> scroll(BookFilter filter, BookSort sort, String cursor, int size,
+            boolean withCount) {
+        requirePageSize(size);
+        requireValidRanges(filter);
+        requireCursorSort(sort);
+        // one extra row tells whether a next page exists without counting
+        List<BookListItem> items = bookRepo.findListItemsAfter(filter, sort, Cursor.decode(cursor), size + 1);
+        String next = null;
+        if (items.size() > size) {
+            items = items.subList(0, size);
+            BookListItem last = items.get(size - 1);
+            next = cursorAt(sort, last.getTitle(), last.getId());
+        }
+        return new CursorPage<>(items.stream().map(this::toResponse).toList(), next,
+                withCount ? bookRepo.countBooks(filter) : null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Map<String, Object>> scroll(BookFilter filter, BookSort sort, String cursor, int size,
+            boolean withCount, List<String> fields) {
+        requirePageSize(size);
+        requireValidRanges(filter);
+        requireCursorSort(sort);
+        List<Map<String, Object>> rows = bookRepo.findFieldsAfter(columnsFor(fields, true), filter, sort,
+                Cursor.decode(cursor), size + 1);
+        String next = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            Map<String, Object> last = rows.get(size - 1);
+            next = cursorAt(sort, (String) last.get("title"), (Long) last.get("id"));
+        }
+        return new CursorPage<>(rows.stream().map(row -> toFields(row, fields)).toList(), next,
+                withCount ? bookRepo.countBooks(filter) : null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long export(Long categoryId, OutputStream out) {
+        // read-only transaction: Postgres only honours the fetch size with autocommit off
+        long rows = 0;
+        try (Stream<BookListItem> items = bookRepo.streamListItems(categoryId, exportFetchSize);
+                JsonGenerator json = EXPORT_MAPPER.createGenerator(out)) {
+            for (BookListItem item : (Iterable<BookListItem>) items::iterator) {
+                EXPORT_MAPPER.writeValue(json, toResponse(item));
+                json.writeRaw('\n');
+                rows++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write book export", e);
+        }
+        return rows;
+    }
+
     @Override
     public BookResponse getById(Long id) {
-        Book b = bookRepo.findById(id)
+        BookResponse cached = bookCache.get(id, key -> toResponse(bookRepo.findById(key)
                 .orElseThrow(
-                        () -> new ResourceNotFoundException("Book not found with id: " + id,
-                                List.of("BOOK NOT FOUND")));
-        return toResponse(b);
+                        () -> new ResourceNotFoundException("Book not found with id: " + key,
+                                List.of("BOOK NOT FOUND")))));
+        // cached entries are shared, and a hot book's stock moves without touching its row
+        return cached.toBuilder().stock(currentStock(id, cached.getStock())).build();
+    }
+
+    @Override
+    public List<BookSuggestion> suggest(String prefix, int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new BadRequestException("Invalid limit",
+                    List.of("limit must be between 1 and " + MAX_SUGGESTIONS));
+        }
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        return suggestIndex.suggest(prefix, limit);
+    }
+
+    @Override
+    public BookFacets facets(BookFilter filter) {
+        if (!facetIndex.isReady() || (filter.hasQuery() && !searchIndex.isReady())) {
+            return null;
+        }
+        requireValidRanges(filter);
+
+        FacetCounts counts = facetIndex.count(facetFilter(filter),
+                filter.hasQuery() ? matches -> searchIndex.matching(filter.getQ(), matches) : null);
+
+        List<FacetBucket> categories = new ArrayList<>(counts.categories().size());
+        counts.categories().forEach((id, n) -> {
+            CategoryResponse c = categoryCache.get(id);
+            categories.add(new FacetBucket(String.valueOf(id), c != null ? c.getName() : null, n));
+        });
+        categories.sort(Comparator.comparingLong(FacetBucket::getCount).reversed());
+
+        List<FacetBucket> years = new ArrayList<>(counts.years().size());
+        counts.years().forEach((year, n) -> years.add(new FacetBucket(String.valueOf(year), null, n)));
+        Collections.reverse(years);
+
+        List<BigDecimal> bounds = facetIndex.priceBounds();
+        List<FacetBucket> prices = new ArrayList<>(bounds.size() + 1);
+        for (int i = 0; i <= bounds.size(); i++) {
+            String from = i == 0 ? "0" : bounds.get(i - 1).toPlainString();
+            String value = i == bounds.size() ? from + "+" : from + "-" + bounds.get(i).toPlainString();
+            prices.add(new FacetBucket(value, null, counts.priceBands()[i]));
+        }
+
+        List<FacetBucket> stock = List.of(new FacetBucket("in_stock", null, counts.inStock()),
+                new FacetBucket("out_of_stock", null, counts.outOfStock()));
+        return new BookFacets(counts.total(), categories, years, prices, stock);
+    }
+
+    @Override
+    public List<BookLookupResponse> lookup(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        LinkedHashSet<Long> distinct = new LinkedHashSet<>(ids);
+        if (distinct.size() > MAX_LOOKUP_IDS) {
+            throw new BadRequestException("Too many ids",
+                    List.of("at most " + MAX_LOOKUP_IDS + " ids can be looked up at once"));
+        }
+        List<BookLookupResponse> found = bookRepo.findLookupByIdIn(distinct);
+        for (BookLookupResponse r : found) {
+            r.setStock(currentStock(r.getId(), r.getStock()));
+        }
+        return found;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookResponse> getByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return bookRepo.findListItemsByIdIn(ids).stream().map(this::toResponse).toList();
     }
 
     @Override
@@ -79,11 +310,14 @@ public class BookServiceImpl implements BookService {
                 .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + id,
                         List.of("BOOK NOT FOUND")));
 
-        if (dto.getCategory_id() != null) {
-            Category cat = categoryRepo.findById(dto.getCategory_id())
-                    .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + id,
-                            List.of("CATEGORY NOT FOUND")));
-            b.setCategory(cat);
+        Long previousCategoryId = b.getCategory() != null ? b.getCategory().getId() : null;
+        if (dto.getCategory_id() != null && !dto.getCategory_id().equals(previousCategoryId)) {
+            if (!categoryCache.exists(dto.getCategory_id())) {
+                throw new ResourceNotFoundException("Category not found with id: " + id,
+                        List.of("CATEGORY NOT FOUND"));
+            }
+            moveBookCount(previousCategoryId, dto.getCategory_id());
+            b.setCategory(categoryRepo.getReferenceById(dto.getCategory_id()));
         }
         if (dto.getTitle() != null && !dto.getTitle().isBlank()) {
             b.setTitle(dto.getTitle());
@@ -95,65 +329,424 @@ public class BookServiceImpl implements BookService {
             b.setPrice(dto.getPrice());
         }
         if (dto.getStock() != null) {
-            b.setStock(dto.getStock());
+            if (stockLedger.tracks(id)) {
+                stockLedger.adjustTo(id, dto.getStock());
+            } else {
+                bookRepo.setStock(id, dto.getStock());
+                b.setStock(dto.getStock());
+            }
         }
         if (dto.getYear() != null) {
             b.setYear(dto.getYear());
         }
         if (dto.getImage_base64() != null && !dto.getImage_base64().isBlank()) {
-            b.setImageBase64(dto.getImage_base64());
+            storeImage(b, ImageUtil.decodeImage(dto.getImage_base64()));
+        }
+        if (dto.getHot() != null && dto.getHot() != b.isHot()) {
+            b.setHot(dto.getHot());
+            if (dto.getHot()) {
+                afterCommit(() -> stockLedger.track(id));
+            } else {
+                stockLedger.untrack(id);
+                afterRollback(() -> stockLedger.track(id));
+            }
         }
 
+        bumpVersion(b);
         Book saved = bookRepo.save(b);
+        reindex(saved);
+        changeFeed.record(ChangeEntity.BOOK, id, ChangeOp.UPSERT);
+        afterCommit(() -> bookCache.invalidate(id));
         return toResponse(saved);
     }
 
     @Override
+    @Transactional
     public BookResponse delete(Long id) {
         Book book = bookRepo.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + id,
                         List.of("BOOK NOT FOUND")));
+        BookResponse res = toResponse(book);
         bookRepo.deleteById(id);
-        return new BookResponse(book.getId(), book.getTitle(), book.getAuthor(), book.getPrice(), book.getStock(),
-                book.getYear(), book.getCategory().getId(), book.getImageBase64());
+        if (res.getCategory_id() != null) {
+            moveBookCount(res.getCategory_id(), null);
+        }
+        changeFeed.record(ChangeEntity.BOOK, id, ChangeOp.DELETE);
+        afterCommit(() -> {
+            stockLedger.forget(id);
+            searchIndex.remove(id);
+            suggestIndex.remove(id);
+            facetIndex.remove(id);
+            bookCache.invalidate(id);
+        });
+        return res;
+    }
+
+    @Override
+    @Transactional
+    public BookResponse uploadImage(Long id, InputStream content) {
+        Book b = bookRepo.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + id,
+                        List.of("BOOK NOT FOUND")));
+        try {
+            String hash = blobStore.put(content);
+            b.setImageHash(hash);
+            b.setImageContentType(ImageUtil.detectContentType(blobStore.head(hash, 16)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store image for book id " + id, e);
+        }
+        queueThumbnails(b);
+        bumpVersion(b);
+        changeFeed.record(ChangeEntity.BOOK, id, ChangeOp.UPSERT);
+        afterCommit(() -> bookCache.invalidate(id));
+        return toResponse(bookRepo.save(b));
+    }
+
+    @Override
+    public StoredImage getImage(Long id, Integer width) {
+        if (width != null && width < 1) {
+            throw new BadRequestException("Invalid width", List.of("w must be at least 1"));
+        }
+        Book b = bookRepo.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + id,
+                        List.of("BOOK NOT FOUND")));
+        if (b.getImageHash() == null) {
+            throw new ResourceNotFoundException("Book has no image with id: " + id, List.of("IMAGE NOT FOUND"));
+        }
+
+        Integer stored = width != null ? thumbnails.widthFor(width) : null;
+        if (stored != null) {
+            Path thumbnail = thumbnails.variantPath(b.getImageHash(), stored);
+            try {
+                return new StoredImage(b.getImageHash() + "-w" + stored, "image/jpeg", thumbnail,
+                        Files.size(thumbnail));
+            } catch (IOException e) {
+                // not rendered yet, or its job was dropped during a burst: queue it and serve the original
+                thumbnails.submit(b.getImageHash(), b.getImageContentType());
+            }
+        }
+
+        Path path = blobStore.path(b.getImageHash());
+        try {
+            return new StoredImage(b.getImageHash(), b.getImageContentType(), path, Files.size(path), stored != null);
+        } catch (IOException e) {
+            throw new ResourceNotFoundException("Image file missing for book id: " + id, List.of("IMAGE NOT FOUND"));
+        }
     }
 
     public Book save(Book book) {
         return bookRepo.save(book);
     }
 
-    private BookDto toDto(Book book) {
-        return BookDto.builder()
-                .id(book.getId())
-                .title(book.getTitle())
-                .author(book.getAuthor())
-                .price(book.getPrice())
-                .stock(book.getStock())
-                .year(book.getYear())
-                .category_id(book.getCategory() != null ? book.getCategory().getId() : null)
-                .image_base64(book.getImageBase64())
-                .build();
+    private void storeImage(Book b, byte[] image) {
+        if (image == null) {
+            return;
+        }
+        try {
+            b.setImageHash(blobStore.put(image));
+            b.setImageContentType(ImageUtil.detectContentType(image));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store image", e);
+        }
+        queueThumbnails(b);
+    }
+
+    private void queueThumbnails(Book b) {
+        String hash = b.getImageHash();
+        String contentType = b.getImageContentType();
+        afterCommit(() -> thumbnails.submit(hash, contentType));
     }
 
     @Override
     @Transactional
     public BookResponse decrementStock(Long id, int qty) {
-        Book book = findEntityById(id);
-        if (book.getStock() < qty) {
+        requirePositive(qty);
+        StockSource source = take(id, qty);
+        if (source == null) {
+            if (!bookRepo.existsById(id)) {
+                throw new RuntimeException("Book not found with id " + id);
+            }
             throw new RuntimeException("Not enough stock for book id " + id);
         }
-        book.setStock(book.getStock() - qty);
-        Book saved = bookRepo.save(book);
-        return toResponse(saved);
+        if (source == StockSource.TABLE) {
+            changeFeed.record(ChangeEntity.BOOK, id, ChangeOp.STOCK);
+        }
+        BookResponse res = toResponse(findEntityById(id));
+        afterCommit(() -> {
+            bookCache.invalidate(id);
+            facetIndex.setStock(id, res.getStock());
+        });
+        return res;
     }
 
     @Override
     @Transactional
     public BookResponse incrementStock(Long id, int qty) {
-        Book book = findEntityById(id);
-        book.setStock(book.getStock() + qty);
-        Book saved = bookRepo.save(book);
-        return toResponse(saved);
+        requirePositive(qty);
+        if (stockLedger.tracks(id)) {
+            stockLedger.release(id, qty);
+        } else if (bookRepo.incrementStock(id, qty) == 0) {
+            throw new RuntimeException("Book not found with id " + id);
+        } else {
+            changeFeed.record(ChangeEntity.BOOK, id, ChangeOp.STOCK);
+        }
+        BookResponse res = toResponse(findEntityById(id));
+        afterCommit(() -> {
+            bookCache.invalidate(id);
+            facetIndex.setStock(id, res.getStock());
+        });
+        return res;
+    }
+
+    @Override
+    @Transactional
+    public List<StockItemDto> reserveStock(List<StockItemDto> items, Long orderId) {
+        Map<Long, Integer> merged = mergeByBookId(items);
+        if (orderId != null && !reservationRepo.findByOrderId(orderId).isEmpty()) {
+            throw new BadRequestException("Failed to reserve stock",
+                    List.of("stock is already reserved for order id " + orderId));
+        }
+        List<Long> fromTable = new ArrayList<>();
+        List<String> errorMessages = new ArrayList<>();
+
+        // rows are locked in ascending id order so concurrent batches cannot deadlock
+        for (Map.Entry<Long, Integer> e : merged.entrySet()) {
+            StockSource source = take(e.getKey(), e.getValue());
+            if (source == StockSource.TABLE) {
+                fromTable.add(e.getKey());
+            } else if (source == null) {
+                errorMessages.add(bookRepo.existsById(e.getKey())
+                        ? "Not enough stock for book id " + e.getKey()
+                        : "Book not found with id " + e.getKey());
+            }
+        }
+
+        if (!errorMessages.isEmpty()) {
+            throw new BadRequestException("Failed to reserve stock", errorMessages);
+        }
+
+        if (orderId != null) {
+            Instant expiresAt = Instant.now().plus(reservationTtl);
+            List<StockReservation> rows = new ArrayList<>(merged.size());
+            merged.forEach((bookId, qty) -> rows.add(StockReservation.builder()
+                    .orderId(orderId)
+                    .bookId(bookId)
+                    .qty(qty)
+                    .expiresAt(expiresAt)
+                    .build()));
+            reservationRepo.saveAll(rows);
+        }
+        // ledger books are announced when their deltas are flushed
+        changeFeed.recordAll(ChangeEntity.BOOK, fromTable, ChangeOp.STOCK);
+        Map<Long, Integer> stock = stockOf(merged.keySet());
+        afterCommit(() -> {
+            bookCache.invalidateAll(merged.keySet());
+            stock.forEach(facetIndex::setStock);
+        });
+        return toStockItems(merged);
+    }
+
+    @Override
+    @Transactional
+    public List<StockItemDto> releaseStock(List<StockItemDto> items) {
+        Map<Long, Integer> merged = mergeByBookId(items);
+        Map<Long, Integer> released = new TreeMap<>();
+        List<Long> fromTable = new ArrayList<>();
+
+        // books deleted since the reservation have nothing to give back, so they are skipped
+        for (Map.Entry<Long, Integer> e : merged.entrySet()) {
+            if (stockLedger.tracks(e.getKey())) {
+                stockLedger.release(e.getKey(), e.getValue());
+                released.put(e.getKey(), e.getValue());
+            } else if (bookRepo.incrementStock(e.getKey(), e.getValue()) > 0) {
+                released.put(e.getKey(), e.getValue());
+                fromTable.add(e.getKey());
+            }
+        }
+        changeFeed.recordAll(ChangeEntity.BOOK, fromTable, ChangeOp.STOCK);
+        Map<Long, Integer> stock = stockOf(released.keySet());
+        afterCommit(() -> {
+            bookCache.invalidateAll(released.keySet());
+            stock.forEach(facetIndex::setStock);
+        });
+        return toStockItems(released);
+    }
+
+    @Override
+    @Transactional
+    public List<StockItemDto> releaseReservation(Long orderId) {
+        Map<Long, Integer> toRelease = new TreeMap<>();
+        // only rows this call actually deletes are released, so racing the sweeper cannot double release
+        for (StockReservation r : reservationRepo.findByOrderId(orderId)) {
+            if (reservationRepo.removeById(r.getId()) > 0) {
+                toRelease.merge(r.getBookId(), r.getQty(), Integer::sum);
+            }
+        }
+        if (toRelease.isEmpty()) {
+            return List.of();
+        }
+        return releaseStock(toStockItems(toRelease));
+    }
+
+    @Override
+    @Transactional
+    public List<StockItemDto> confirmReservation(Long orderId) {
+        List<StockReservation> rows = reservationRepo.findByOrderId(orderId);
+        if (rows.isEmpty() || reservationRepo.deleteActiveByOrderId(orderId, Instant.now()) < rows.size()) {
+            throw new BadRequestException("Failed to confirm reservation",
+                    List.of("reservation for order id " + orderId + " has expired"));
+        }
+        Map<Long, Integer> confirmed = new TreeMap<>();
+        rows.forEach(r -> confirmed.merge(r.getBookId(), r.getQty(), Integer::sum));
+        return toStockItems(confirmed);
+    }
+
+    // read inside the transaction, while its guarded updates still hold the rows
+    private Map<Long, Integer> stockOf(Collection<Long> ids) {
+        Map<Long, Integer> stock = new HashMap<>();
+        if (!ids.isEmpty()) {
+            bookRepo.findLookupByIdIn(ids).forEach(b -> stock.put(b.getId(), currentStock(b.getId(), b.getStock())));
+        }
+        return stock;
+    }
+
+    private Map<Long, Integer> mergeByBookId(List<StockItemDto> items) {
+        Map<Long, Integer> merged = new TreeMap<>();
+        for (StockItemDto it : items) {
+            requirePositive(it.getQty());
+            merged.merge(it.getBookId(), it.getQty(), Integer::sum);
+        }
+        return merged;
+    }
+
+    private List<StockItemDto> toStockItems(Map<Long, Integer> map) {
+        List<StockItemDto> result = new ArrayList<>(map.size());
+        map.forEach((bookId, qty) -> result.add(new StockItemDto(bookId, qty)));
+        return result;
+    }
+
+    private void requirePositive(int qty) {
+        if (qty <= 0) {
+            throw new BadRequestException("Invalid quantity", List.of("qty must be greater than 0"));
+        }
+    }
+
+    // hot books keep their live stock in the ledger; the column lags until the next flush
+    private Integer currentStock(Long id, Integer stored) {
+        Integer live = stockLedger.available(id);
+        return live != null ? live : stored;
+    }
+
+    private enum StockSource { LEDGER, TABLE }
+
+    // a hot row the table path skipped may have been picked up by the ledger since the tracks() check
+    private StockSource take(Long id, int qty) {
+        if (!stockLedger.tracks(id)) {
+            if (bookRepo.decrementStockIfAvailable(id, qty, stockLedger.isEnabled()) > 0) {
+                return StockSource.TABLE;
+            }
+            if (!stockLedger.tracks(id)) {
+                return null;
+            }
+        }
+        return stockLedger.tryReserve(id, qty) ? StockSource.LEDGER : null;
+    }
+
+    private void bumpVersion(Book b) {
+        bookRepo.bumpVersion(b.getId());
+        b.setVersion(b.getVersion() + 1);
+    }
+
+    private void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // runs before the book row points at the category: the guarded update doubles as the existence
+    // check, and its row lock keeps a concurrent deleteIfEmpty out until this transaction ends
+    private void moveBookCount(Long from, Long to) {
+        if (from != null) {
+            categoryRepo.adjustBookCount(from, -1);
+            changeFeed.record(ChangeEntity.CATEGORY, from, ChangeOp.UPSERT);
+            afterCommit(() -> categoryCache.adjustBookCount(from, -1));
+        }
+        if (to != null) {
+            if (categoryRepo.adjustBookCount(to, 1) == 0) {
+                categoryCache.evict(to);
+                throw new ResourceNotFoundException("Category not found with id: " + to,
+                        List.of("CATEGORY NOT FOUND"));
+            }
+            changeFeed.record(ChangeEntity.CATEGORY, to, ChangeOp.UPSERT);
+            afterCommit(() -> categoryCache.adjustBookCount(to, 1));
+        }
+    }
+
+    // filters beyond the category are checked against the facet columns, so both indexes have to be loaded
+    private boolean searchable(BookFilter filter) {
+        return filter.hasQuery() && searchIndex.isReady()
+                && (!filter.hasAttributeFilters() || facetIndex.isReady());
+    }
+
+    private SearchHits search(BookFilter filter, int offset, int limit) {
+        if (!filter.hasAttributeFilters()) {
+            return searchIndex.search(filter.getQ(), filter.getCategoryId(), offset, limit);
+        }
+        return facetIndex.withMatcher(facetFilter(filter),
+                accept -> searchIndex.search(filter.getQ(), filter.getCategoryId(), accept, offset, limit));
+    }
+
+    private static FacetFilter facetFilter(BookFilter filter) {
+        return new FacetFilter(filter.getCategoryId(), filter.getMinYear(), filter.getMaxYear(),
+                filter.getMinPrice(), filter.getMaxPrice(), filter.isInStock());
+    }
+
+    // hits whose row vanished between the search and the load are dropped
+    private static <T> List<T> ranked(SearchHits hits, Map<Long, T> byId) {
+        List<T> ordered = new ArrayList<>(hits.ids().size());
+        for (Long id : hits.ids()) {
+            T row = byId.get(id);
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        return ordered;
+    }
+
+    private void reindex(Book b) {
+        Long id = b.getId();
+        String title = b.getTitle();
+        String author = b.getAuthor();
+        Integer stock = b.getStock();
+        Integer year = b.getYear();
+        BigDecimal price = b.getPrice();
+        Long categoryId = b.getCategory() != null ? b.getCategory().getId() : null;
+        afterCommit(() -> {
+            searchIndex.put(id, title, author, categoryId);
+            suggestIndex.put(id, title, author, stock);
+            facetIndex.put(id, categoryId, year, price, stock);
+        });
     }
 
     private Book findEntityById(Long id) {
@@ -161,16 +754,105 @@ public class BookServiceImpl implements BookService {
                 .orElseThrow(() -> new RuntimeException("Book not found with id " + id));
     }
 
+    // id is always selected: stock overlay and image_url need it, and so does the cursor together with title
+    private List<String> columnsFor(List<String> fields, boolean keyset) {
+        List<String> unknown = fields.stream()
+                .filter(f -> !BookRepositoryImpl.COLUMNS.containsKey(f) && !"image_url".equals(f))
+                .toList();
+        if (!unknown.isEmpty()) {
+            throw new BadRequestException("Invalid fields", unknown.stream().map(f -> "unknown field: " + f).toList());
+        }
+
+        LinkedHashSet<String> columns = new LinkedHashSet<>();
+        columns.add("id");
+        if (keyset) {
+            columns.add("title");
+        }
+        for (String f : fields) {
+            columns.add("image_url".equals(f) ? "image_hash" : f);
+        }
+        return List.copyOf(columns);
+    }
+
+    private Map<String, Object> toFields(Map<String, Object> row, List<String> fields) {
+        Long id = (Long) row.get("id");
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (String f : fields) {
+            if ("image_url".equals(f)) {
+                out.put(f, imageUrl(id, (String) row.get("image_hash")));
+            } else if ("stock".equals(f)) {
+                out.put(f, currentStock(id, (Integer) row.get("stock")));
+            } else {
+                out.put(f, row.get(f));
+            }
+        }
+        return out;
+    }
+
+    private void requirePageSize(int size) {
+        if (size < 1) {
+            throw new BadRequestException("Invalid size", List.of("size must be at least 1"));
+        }
+    }
+
+    private void requireValidRanges(BookFilter filter) {
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null
+                && filter.getMinPrice().compareTo(filter.getMaxPrice()) > 0) {
+            throw new BadRequestException("Invalid price range", List.of("minPrice must not exceed maxPrice"));
+        }
+        if (filter.getMinYear() != null && filter.getMaxYear() != null
+                && filter.getMinYear() > filter.getMaxYear()) {
+            throw new BadRequestException("Invalid year range", List.of("minYear must not exceed maxYear"));
+        }
+    }
+
+    private void requireCursorSort(BookSort sort) {
+        if (!sort.supportsCursor()) {
+            throw new BadRequestException("Invalid sort",
+                    List.of("sort " + sort.param() + " cannot be used with a cursor"));
+        }
+    }
+
+    private static String cursorAt(BookSort sort, String title, Long id) {
+        return new Cursor(sort == BookSort.NEWEST ? "" : title, id).encode();
+    }
+
+    private String imageUrl(Long id, String imageHash) {
+        if (imageHash == null) {
+            return null;
+        }
+        // the version parameter changes with the content, so clients can cache the URL aggressively
+        return "/api/v1/books/" + id + "/image?v=" + imageHash.substring(0, 16);
+    }
+
+    private BookResponse toResponse(BookListItem item) {
+        return BookResponse.builder()
+                .id(item.getId())
+                .title(item.getTitle())
+                .author(item.getAuthor())
+                .price(item.getPrice())
+                .stock(currentStock(item.getId(), item.getStock()))
+                .year(item.getYear())
+                .category_id(item.getCategoryId())
+                .image_url(imageUrl(item.getId(), item.getImageHash()))
+                .image_hash(item.getImageHash())
+                .hot(item.isHot())
+                .build();
+    }
+
     private BookResponse toResponse(Book book) {
         return BookResponse.builder()
                 .id(book.getId())
                 .title(book.getTitle())
                 .author(book.getAuthor())
                 .price(book.getPrice())
-                .stock(book.getStock())
+                .stock(currentStock(book.getId(), book.getStock()))
                 .year(book.getYear())
                 .category_id(book.getCategory() != null ? book.getCategory().getId() : null)
-                .image_base64(book.getImageBase64())
+                .image_url(imageUrl(book.getId(), book.getImageHash()))
+                .image_hash(book.getImageHash())
+                .hot(book.isHot())
+                .version(book.getVersion())
                 .build();
     }
 
@@ -3,6 +3,7 @@ package user.catalog_service.application.service.category;
 import user.catalog_service.application.dto.CategoryDto;
 import user.catalog_service.application.dto.CategoryResponse;
 import user.catalog_service.application.dto.CategoryUpdate;
+import user.catalog_service.application.dto.CursorPage;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -14,6 +15,8 @@ public interface CategoryService {
 
     Page<CategoryResponse> list(Pageable pageable);
 
+    CursorPage<CategoryResponse> scroll(String cursor, int size, boolean withCount);
+
     CategoryResponse update(Long id, CategoryUpdate dto);
 
     CategoryResponse delete(Long id);
@@ -3,17 +3,25 @@ package user.catalog_service.application.service.category;
 import user.catalog_service.application.dto.CategoryDto;
 import user.catalog_service.application.dto.CategoryResponse;
 import user.catalog_service.application.dto.CategoryUpdate;
+import user.catalog_service.application.dto.CursorPage;
 import user.catalog_service.domain.model.Category;
+import user.catalog_service.infrastructure.cache.CategoryCache;
+import user.catalog_service.infrastructure.changes.ChangeEntity;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.changes.ChangeOp;
 import user.catalog_service.infrastructure.exception.BadRequestException;
 import user.catalog_service.infrastructure.exception.ResourceNotFoundException;
-import user.catalog_service.infrastructure.repository.BookRepository;
 import user.catalog_service.infrastructure.repository.CategoryRepository;
+import user.catalog_service.infrastructure.utils.Cursor;
 
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import jakarta.transaction.Transactional;
 
@@ -21,18 +29,22 @@ import jakarta.transaction.Transactional;
 public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository repo;
-    private final BookRepository bookRepository;
+    private final CategoryCache cache;
+    private final ChangeFeed changeFeed;
 
-    public CategoryServiceImpl(CategoryRepository repo, BookRepository bookRepository) {
+    public CategoryServiceImpl(CategoryRepository repo, CategoryCache cache, ChangeFeed changeFeed) {
         this.repo = repo;
-        this.bookRepository = bookRepository;
+        this.cache = cache;
+        this.changeFeed = changeFeed;
     }
 
     @Override
+    @Transactional
     public CategoryDto create(CategoryDto dto) {
         Category c = new Category();
         c.setName(dto.getName());
         Category saved = repo.save(c);
+        changeFeed.record(ChangeEntity.CATEGORY, saved.getId(), ChangeOp.UPSERT);
 
         dto.setId(saved.getId());
         return dto;
@@ -43,14 +55,37 @@ public class CategoryServiceImpl implements CategoryService {
         return repo.findAll(pageable).map(this::toResponse);
     }
 
+    @Override
+    public CursorPage<CategoryResponse> scroll(String cursor, int size, boolean withCount) {
+        if (size < 1) {
+            throw new BadRequestException("Invalid size", List.of("size must be at least 1"));
+        }
+        Cursor after = Cursor.decode(cursor);
+        List<Category> categories = after == null
+                ? repo.findAllByOrderByNameAscIdAsc(Limit.of(size + 1))
+                : repo.findAfter(after.key(), after.id(), Limit.of(size + 1));
+
+        String next = null;
+        if (categories.size() > size) {
+            categories = categories.subList(0, size);
+            Category last = categories.get(size - 1);
+            next = new Cursor(last.getName(), last.getId()).encode();
+        }
+        return new CursorPage<>(categories.stream().map(this::toResponse).toList(), next,
+                withCount ? repo.count() : null);
+    }
+
     @Override
     public CategoryResponse getById(Long id) {
-        Category b = repo.findById(id).orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + id,
-                List.of("CATEGORY NOT FOUND")));
-        return toResponse(b);
+        CategoryResponse c = cache.get(id);
+        if (c == null) {
+            throw new ResourceNotFoundException("Book not found with id: " + id, List.of("CATEGORY NOT FOUND"));
+        }
+        return c;
     }
 
     @Override
+    @Transactional
     public CategoryResponse update(Long id, CategoryUpdate dto) {
         Category c = repo.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + id,
@@ -61,33 +96,48 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         Category updated = repo.save(c);
+        changeFeed.record(ChangeEntity.CATEGORY, id, ChangeOp.UPSERT);
+        afterCommit(() -> cache.evict(id));
 
-        return CategoryResponse.builder()
-                .id(updated.getId())
-                .name(updated.getName())
-                .build();
+        return toResponse(updated);
     }
 
     @Override
     @Transactional
     public CategoryResponse delete(Long id) {
-        Category c = repo.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Category not found with id: " + id,
-                        List.of("CATEGORY NOT FOUND")));
+        CategoryResponse c = cache.get(id);
+        if (c == null) {
+            throw new ResourceNotFoundException("Category not found with id: " + id, List.of("CATEGORY NOT FOUND"));
+        }
 
-        if (!bookRepository.findByCategoryId(id).isEmpty()) {
+        // the count check and the delete are one statement, so a book added meanwhile cannot slip through
+        if (repo.deleteIfEmpty(id) == 0) {
             throw new BadRequestException("Can't Delete this Category",
                     List.of("there are still books that use this category with id: " + id));
         }
+        changeFeed.record(ChangeEntity.CATEGORY, id, ChangeOp.DELETE);
+        afterCommit(() -> cache.evict(id));
+        return c;
+    }
 
-        repo.delete(c);
-        return new CategoryResponse(c.getId(), c.getName());
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     private CategoryResponse toResponse(Category c) {
         CategoryResponse r = new CategoryResponse();
         r.setId(c.getId());
         r.setName(c.getName());
+        r.setBookCount(c.getBookCount());
         return r;
     }
 }
@@ -0,0 +1,11 @@
+package user.catalog_service.application.service.change;
+
+import java.util.concurrent.CompletableFuture;
+
+import user.catalog_service.application.dto.ChangePage;
+
+public interface ChangeService {
+    ChangePage changes(long since, int limit);
+
+    CompletableFuture<ChangePage> poll(long since, int limit, int waitSeconds);
+}
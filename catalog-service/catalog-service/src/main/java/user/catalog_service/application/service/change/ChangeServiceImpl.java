@@ -0,0 +1,148 @@
+package user.catalog_service.application.service.change;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import user.catalog_service.application.dto.BookResponse;
+import user.catalog_service.application.dto.CategoryResponse;
+import user.catalog_service.application.dto.ChangeEvent;
+import user.catalog_service.application.dto.ChangePage;
+import user.catalog_service.application.service.book.BookService;
+import user.catalog_service.domain.model.Category;
+import user.catalog_service.infrastructure.changes.ChangeEntity;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.changes.ChangeOp;
+import user.catalog_service.infrastructure.changes.ChangeRow;
+import user.catalog_service.infrastructure.exception.BadRequestException;
+import user.catalog_service.infrastructure.repository.CategoryRepository;
+
+@Service
+public class ChangeServiceImpl implements ChangeService, DisposableBean {
+
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_WAIT_SECONDS = 30;
+
+    private final ChangeFeed changeFeed;
+    private final BookService bookService;
+    private final CategoryRepository categoryRepo;
+    // builds the answer of a woken long poll; bounded so a burst of wake-ups cannot swamp the pool
+    private final ExecutorService pollExecutor;
+
+    public ChangeServiceImpl(ChangeFeed changeFeed, BookService bookService, CategoryRepository categoryRepo,
+            @Value("${catalog.changes.poll-threads:4}") int pollThreads) {
+        this.changeFeed = changeFeed;
+        this.bookService = bookService;
+        this.categoryRepo = categoryRepo;
+        AtomicInteger threadNo = new AtomicInteger();
+        this.pollExecutor = Executors.newFixedThreadPool(Math.max(1, pollThreads), r -> {
+            Thread t = new Thread(r, "change-poll-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public ChangePage changes(long since, int limit) {
+        if (since < 0) {
+            throw new BadRequestException("Invalid since", List.of("since must not be negative"));
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("Invalid limit", List.of("limit must be between 1 and " + MAX_LIMIT));
+        }
+        List<ChangeRow> rows = changeFeed.read(since, limit);
+        long next = rows.isEmpty() ? since : rows.get(rows.size() - 1).seq();
+        // a reader behind the oldest kept row has missed changes that were pruned
+        boolean resync = since + 1 < changeFeed.oldest();
+        return new ChangePage(hydrate(latestPerEntity(rows)), next, Math.max(changeFeed.head(), next), resync);
+    }
+
+    @Override
+    public CompletableFuture<ChangePage> poll(long since, int limit, int waitSeconds) {
+        if (waitSeconds < 0 || waitSeconds > MAX_WAIT_SECONDS) {
+            throw new BadRequestException("Invalid wait",
+                    List.of("wait must be between 0 and " + MAX_WAIT_SECONDS + " seconds"));
+        }
+        ChangePage page = changes(since, limit);
+        if (!page.getChanges().isEmpty() || page.isResync() || waitSeconds == 0) {
+            return CompletableFuture.completedFuture(page);
+        }
+        // a timeout is not an error here, the reader just gets the empty page
+        return changeFeed.awaitAfter(since, Duration.ofSeconds(waitSeconds))
+                .handleAsync((woken, timedOut) -> changes(since, limit), pollExecutor);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        pollExecutor.shutdownNow();
+        pollExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    // an entity changed several times within the page is sent once, at its last seq, since its state is read now
+    private static List<ChangeRow> latestPerEntity(List<ChangeRow> rows) {
+        Set<String> seen = new HashSet<>();
+        List<ChangeRow> latest = new ArrayList<>(rows.size());
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            ChangeRow row = rows.get(i);
+            if (seen.add(row.entity() + ":" + row.entityId())) {
+                latest.add(row);
+            }
+        }
+        Collections.reverse(latest);
+        return latest;
+    }
+
+    private List<ChangeEvent> hydrate(List<ChangeRow> rows) {
+        List<Long> bookIds = new ArrayList<>();
+        List<Long> categoryIds = new ArrayList<>();
+        for (ChangeRow row : rows) {
+            if (row.op() != ChangeOp.DELETE) {
+                (row.entity() == ChangeEntity.BOOK ? bookIds : categoryIds).add(row.entityId());
+            }
+        }
+        Map<Long, BookResponse> books = new HashMap<>();
+        bookService.getByIds(bookIds).forEach(b -> books.put(b.getId(), b));
+        Map<Long, CategoryResponse> categories = new HashMap<>();
+        if (!categoryIds.isEmpty()) {
+            categoryRepo.findAllById(categoryIds).forEach(c -> categories.put(c.getId(), toResponse(c)));
+        }
+
+        List<ChangeEvent> events = new ArrayList<>(rows.size());
+        for (ChangeRow row : rows) {
+            Object data = null;
+            if (row.op() != ChangeOp.DELETE) {
+                if (row.entity() == ChangeEntity.BOOK) {
+                    BookResponse book = books.get(row.entityId());
+                    data = book == null || row.op() != ChangeOp.STOCK ? book : Map.of("stock", book.getStock());
+                } else {
+                    data = categories.get(row.entityId());
+                }
+            }
+            String op = data == null ? "delete" : row.op().name().toLowerCase();
+            events.add(new ChangeEvent(row.seq(), row.entity().name().toLowerCase(), row.entityId(), op, data));
+        }
+        return events;
+    }
+
+    private static CategoryResponse toResponse(Category c) {
+        CategoryResponse r = new CategoryResponse();
+        r.setId(c.getId());
+        r.setName(c.getName());
+        r.setBookCount(c.getBookCount());
+        return r;
+    }
+}
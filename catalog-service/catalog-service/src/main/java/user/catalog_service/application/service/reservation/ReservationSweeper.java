@@ -0,0 +1,103 @@
+package user.catalog_service.application.service.reservation;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import user.catalog_service.application.dto.StockItemDto;
+import user.catalog_service.application.service.book.BookService;
+import user.catalog_service.domain.model.StockReservation;
+import user.catalog_service.infrastructure.repository.StockReservationRepository;
+
+// expired rows are deleted and their summed quantity released per book in the same transaction
+@Component
+public class ReservationSweeper {
+
+    private final StockReservationRepository reservationRepo;
+    private final BookService bookService;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final int batchSize;
+
+    private final DistributionSummary batchSizes;
+    private final Timer sweepLatency;
+    private final Counter expired;
+
+    public ReservationSweeper(StockReservationRepository reservationRepo, BookService bookService,
+            JdbcTemplate jdbc, PlatformTransactionManager transactionManager, MeterRegistry registry,
+            @Value("${catalog.reservations.sweep-batch-size:500}") int batchSize) {
+        this.reservationRepo = reservationRepo;
+        this.bookService = bookService;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.batchSizes = DistributionSummary.builder("catalog.reservations.sweep.batch.size")
+                .description("Expired reservations released per sweeper batch")
+                .register(registry);
+        this.sweepLatency = Timer.builder("catalog.reservations.sweep.latency")
+                .description("Time taken by one full sweep")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.expired = Counter.builder("catalog.reservations.expired")
+                .description("Reservations released because their TTL passed")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.reservations.sweep-interval-ms:30000}")
+    public void sweep() {
+        sweepLatency.record(() -> {
+            Instant now = Instant.now();
+            int swept;
+            do {
+                swept = sweepBatch(now);
+            } while (swept == batchSize);
+        });
+    }
+
+    // returns how many rows the batch looked at, so the caller knows whether to continue
+    int sweepBatch(Instant now) {
+        Integer seen = tx.execute(status -> {
+            List<StockReservation> batch = reservationRepo.findExpired(now, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            List<Object[]> ids = batch.stream().map(r -> new Object[] { r.getId() }).toList();
+            int[] deleted = jdbc.batchUpdate("delete from stock_reservations where id = ?", ids);
+
+            // rows already released or confirmed concurrently report 0 and are skipped
+            Map<Long, Integer> toRelease = new TreeMap<>();
+            int released = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                if (deleted[i] != 0) {
+                    StockReservation r = batch.get(i);
+                    toRelease.merge(r.getBookId(), r.getQty(), Integer::sum);
+                    released++;
+                }
+            }
+            if (!toRelease.isEmpty()) {
+                bookService.releaseStock(toRelease.entrySet().stream()
+                        .map(e -> new StockItemDto(e.getKey(), e.getValue()))
+                        .toList());
+            }
+
+            batchSizes.record(released);
+            expired.increment(released);
+            return batch.size();
+        });
+        return seen != null ? seen : 0;
+    }
+}
@@ -6,14 +6,29 @@ import lombok.*;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "books")
+@Table(name = "books", indexes = {
+        @Index(name = "idx_books_title_id", columnList = "title, id"),
+        @Index(name = "idx_books_category_id", columnList = "category_id"),
+        // one per listing order, alone and behind a category, so a filtered page is an index range scan
+        // and a sorted one stops after the page instead of sorting every match
+        @Index(name = "idx_books_price_id", columnList = "price, id"),
+        @Index(name = "idx_books_year_id", columnList = "\"year\", id"),
+        @Index(name = "idx_books_category_price", columnList = "category_id, price, id"),
+        @Index(name = "idx_books_category_year", columnList = "category_id, \"year\", id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Book {
+    // ids come from a pooled sequence so inserts can be batched; the bulk
+    // importer reserves blocks of the same size straight from the sequence
+    public static final String ID_SEQUENCE = "books_id_pool_seq";
+    public static final int ID_BLOCK_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_id")
+    @SequenceGenerator(name = "book_id", sequenceName = ID_SEQUENCE, allocationSize = ID_BLOCK_SIZE)
     private Long id;
 
     @Column(nullable = false)
@@ -24,15 +39,29 @@ public class Book {
     @Column(precision = 10, scale = 2)
     private BigDecimal price;
 
+    // written only by SQL updates, so saving the entity never writes back a stale value
+    @Column(updatable = false)
     private Integer stock;
 
+    // quoted: YEAR is a keyword to H2, and a quoted lowercase name is the same column to Postgres
+    @Column(name = "\"year\"")
     private Integer year;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
 
-    @Lob
-    @Column(columnDefinition = "TEXT")
-    private String imageBase64;
+    // SHA-256 of the cover in the blob store; the bytes never live in this row
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
+
+    @Column(name = "image_content_type", length = 100)
+    private String imageContentType;
+
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean hot;
+
+    // bumped in SQL by every write to the row; backs the ETag of GET /books/{id}
+    @Column(nullable = false, updatable = false, columnDefinition = "bigint default 0")
+    private long version;
 }
\ No newline at end of file
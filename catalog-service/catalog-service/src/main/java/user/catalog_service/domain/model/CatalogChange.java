@@ -0,0 +1,36 @@
+package user.catalog_service.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// seq stays null until the feed numbers the committed row
+@Entity
+@Table(name = "catalog_changes", indexes = {
+        @Index(name = "idx_catalog_changes_seq", columnList = "seq", unique = true),
+        @Index(name = "idx_catalog_changes_created_at", columnList = "created_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long seq;
+
+    @Column(nullable = false, length = 16)
+    private String entity;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(nullable = false, length = 16)
+    private String op;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,19 @@
+package user.catalog_service.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// its row lock lets one sequencer at a time number changes
+@Entity
+@Table(name = "catalog_change_head")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogChangeHead {
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private Long lastSeq;
+}
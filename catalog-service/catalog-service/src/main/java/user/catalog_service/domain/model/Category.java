@@ -2,6 +2,7 @@ package user.catalog_service.domain.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
 @Table(name = "categories")
@@ -17,4 +18,10 @@ public class Category {
 
     @Column(nullable = false, unique = true)
     private String name;
+
+    // kept in step by the book write paths so deletes and listings never count rows; @ColumnDefault
+    // rather than columnDefinition, which Hibernate would reuse as the cast type of bound deltas
+    @ColumnDefault("0")
+    @Column(name = "book_count", nullable = false)
+    private long bookCount;
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package user.catalog_service.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Table(name = "stock_ledger_checkpoint")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLedgerCheckpoint {
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private Long appliedSeq;
+}
@@ -0,0 +1,66 @@
+package user.catalog_service.infrastructure.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import user.catalog_service.application.dto.BookResponse;
+
+// bounded by estimated entry bytes, not entry count; the expiry only covers writes made outside the service
+@Component
+public class BookCache {
+
+    private final boolean enabled;
+    private final Cache<Long, BookResponse> cache;
+
+    public BookCache(
+            @Value("${catalog.book-cache.enabled:true}") boolean enabled,
+            @Value("${catalog.book-cache.max-weight-bytes:33554432}") long maxWeightBytes,
+            @Value("${catalog.book-cache.expire-after-write-seconds:600}") long expireAfterWriteSeconds,
+            MeterRegistry registry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Long id, BookResponse book) -> weigh(book))
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .build();
+
+        // cache.gets{result=hit|miss}, cache.evictions, cache.eviction.weight, cache.load.duration, ...
+        CaffeineCacheMetrics.monitor(registry, cache, "books");
+        Gauge.builder("catalog.book-cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Share of book reads served from the cache")
+                .register(registry);
+    }
+
+    public BookResponse get(Long id, Function<Long, BookResponse> loader) {
+        return enabled ? cache.get(id, loader) : loader.apply(id);
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll(Collection<Long> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    // rough retained size: object headers and boxed fields plus two bytes per string char
+    private static int weigh(BookResponse book) {
+        return 160 + 2 * (length(book.getTitle()) + length(book.getAuthor()) + length(book.getImage_url())
+                + length(book.getImage_hash()));
+    }
+
+    private static int length(String s) {
+        return s != null ? s.length() : 0;
+    }
+}
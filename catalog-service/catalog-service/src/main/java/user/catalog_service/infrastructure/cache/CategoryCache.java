@@ -0,0 +1,74 @@
+package user.catalog_service.infrastructure.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import user.catalog_service.application.dto.CategoryResponse;
+import user.catalog_service.domain.model.Category;
+import user.catalog_service.infrastructure.repository.CategoryRepository;
+
+// categories.book_count stays the source of truth; another instance's writes show up once the entry is reloaded
+@Component
+public class CategoryCache implements SmartInitializingSingleton {
+
+    private final CategoryRepository repo;
+    private final JdbcTemplate jdbc;
+    private final boolean reconcileOnStartup;
+    private final Map<Long, CategoryResponse> categories = new ConcurrentHashMap<>();
+
+    public CategoryCache(CategoryRepository repo, JdbcTemplate jdbc,
+            @Value("${catalog.category-cache.reconcile-on-startup:true}") boolean reconcileOnStartup) {
+        this.repo = repo;
+        this.jdbc = jdbc;
+        this.reconcileOnStartup = reconcileOnStartup;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // databases that predate the column start with zero counts
+        if (reconcileOnStartup) {
+            jdbc.update("update categories set book_count = "
+                    + "(select count(*) from books where books.category_id = categories.id)");
+        }
+        repo.findAll().forEach(c -> categories.put(c.getId(), toResponse(c)));
+    }
+
+    public CategoryResponse get(Long id) {
+        CategoryResponse cached = categories.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        return repo.findById(id)
+                .map(c -> categories.computeIfAbsent(id, key -> toResponse(c)))
+                .orElse(null);
+    }
+
+    public boolean exists(Long id) {
+        return get(id) != null;
+    }
+
+    public void evict(Long id) {
+        categories.remove(id);
+    }
+
+    public void adjustBookCount(Long id, long delta) {
+        categories.computeIfPresent(id, (key, c) -> CategoryResponse.builder()
+                .id(c.getId())
+                .name(c.getName())
+                .bookCount(c.getBookCount() + delta)
+                .build());
+    }
+
+    private static CategoryResponse toResponse(Category c) {
+        return CategoryResponse.builder()
+                .id(c.getId())
+                .name(c.getName())
+                .bookCount(c.getBookCount())
+                .build();
+    }
+}
@@ -0,0 +1,6 @@
+package user.catalog_service.infrastructure.changes;
+
+public enum ChangeEntity {
+    BOOK,
+    CATEGORY
+}
@@ -0,0 +1,276 @@
+package user.catalog_service.infrastructure.changes;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// rows are inserted without a seq and numbered only once committed, so a reader resuming after a seq
+// cannot miss a change whose transaction committed late
+@Component
+public class ChangeFeed implements SmartInitializingSingleton {
+
+    private static final int HEAD_ID = 1;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxWaiters;
+    private final Duration retention;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    // the highest seq this instance has seen numbered, by itself or by another instance
+    private final AtomicLong head = new AtomicLong();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter sequenced;
+    private final Counter pruned;
+
+    public ChangeFeed(
+            @Value("${catalog.changes.enabled:true}") boolean enabled,
+            @Value("${catalog.changes.sequence-batch-size:1000}") int batchSize,
+            @Value("${catalog.changes.max-waiters:1000}") int maxWaiters,
+            @Value("${catalog.changes.retention-hours:168}") long retentionHours,
+            JdbcTemplate jdbc,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry registry) {
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxWaiters = maxWaiters;
+        this.retention = Duration.ofHours(retentionHours);
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        // the sequencer must not join a caller's transaction and hold the head lock until it ends
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        Gauge.builder("catalog.changes.waiters", waiting, AtomicInteger::get)
+                .description("Readers long-polling for catalog changes")
+                .register(registry);
+        this.sequenced = Counter.builder("catalog.changes.sequenced")
+                .description("Catalog changes numbered and published to readers")
+                .register(registry);
+        this.pruned = Counter.builder("catalog.changes.pruned")
+                .description("Catalog changes deleted after the retention period")
+                .register(registry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        Integer rows = jdbc.queryForObject("select count(*) from catalog_change_head where id = ?", Integer.class,
+                HEAD_ID);
+        if (rows == null || rows == 0) {
+            try {
+                jdbc.update("insert into catalog_change_head (id, last_seq) values (?, 0)", HEAD_ID);
+            } catch (DuplicateKeyException e) {
+                // another instance created it first
+            }
+        }
+        head.set(readHead());
+    }
+
+    public void record(ChangeEntity entity, Long id, ChangeOp op) {
+        recordAll(entity, List.of(id), op);
+    }
+
+    public void recordAll(ChangeEntity entity, Collection<Long> ids, ChangeOp op) {
+        if (!enabled || ids.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Map<Key, ChangeOp> changes = new LinkedHashMap<>();
+            ids.forEach(id -> changes.merge(new Key(entity, id), op, ChangeOp::merge));
+            insert(changes);
+            return;
+        }
+        Pending pending = pending();
+        ids.forEach(id -> pending.changes.merge(new Key(entity, id), op, ChangeOp::merge));
+    }
+
+    public long head() {
+        return head.get();
+    }
+
+    public long oldest() {
+        Long min = jdbc.queryForObject("select min(seq) from catalog_changes where seq is not null", Long.class);
+        return min != null ? min : head.get() + 1;
+    }
+
+    public List<ChangeRow> read(long since, int limit) {
+        return jdbc.query("select seq, entity, entity_id, op from catalog_changes where seq > ? order by seq limit ?",
+                (rs, i) -> new ChangeRow(rs.getLong("seq"), ChangeEntity.valueOf(rs.getString("entity")),
+                        rs.getLong("entity_id"), ChangeOp.valueOf(rs.getString("op"))),
+                since, limit);
+    }
+
+    // past the waiter cap a reader just waits out the timeout, so it polls at that interval instead of spinning
+    public CompletableFuture<Void> awaitAfter(long since, Duration timeout) {
+        if (!enabled || head.get() > since) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (waiting.get() >= maxWaiters) {
+            return CompletableFuture.runAsync(() -> {
+            }, CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS));
+        }
+        Waiter waiter = new Waiter(since, new CompletableFuture<>());
+        waiting.incrementAndGet();
+        waiters.add(waiter);
+        waiter.future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((v, e) -> {
+            if (waiters.remove(waiter)) {
+                waiting.decrementAndGet();
+            }
+        });
+        // the head may have moved between the check above and joining the queue
+        if (head.get() > since) {
+            waiter.future.complete(null);
+        }
+        return waiter.future;
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.changes.sequence-interval-ms:100}")
+    public void sequence() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int numbered;
+            do {
+                numbered = sequenceBatch();
+            } while (numbered == batchSize);
+            // rows numbered by another instance wake this instance's readers too
+            advance(readHead());
+        } catch (DataAccessException e) {
+            // unnumbered rows stay put and are picked up on the next run
+            System.err.println("Catalog change sequencing failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.changes.prune-interval-ms:3600000}")
+    public void prune() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            pruned.increment(jdbc.update("delete from catalog_changes where seq is not null and created_at < ?",
+                    Timestamp.from(Instant.now().minus(retention))));
+        } catch (DataAccessException e) {
+            System.err.println("Catalog change pruning failed");
+            e.printStackTrace();
+        }
+    }
+
+    private int sequenceBatch() {
+        Integer numbered = tx.execute(status -> {
+            Long last = jdbc.queryForObject("select last_seq from catalog_change_head where id = ? for update",
+                    Long.class, HEAD_ID);
+            List<Long> ids = jdbc.queryForList(
+                    "select id from catalog_changes where seq is null order by id limit ?", Long.class, batchSize);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            long seq = last != null ? last : 0;
+            List<Object[]> args = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                args.add(new Object[] { ++seq, id });
+            }
+            jdbc.batchUpdate("update catalog_changes set seq = ? where id = ?", args);
+            jdbc.update("update catalog_change_head set last_seq = ? where id = ?", seq, HEAD_ID);
+            return ids.size();
+        });
+        int count = numbered != null ? numbered : 0;
+        sequenced.increment(count);
+        return count;
+    }
+
+    private void advance(long latest) {
+        if (latest <= head.get()) {
+            return;
+        }
+        head.accumulateAndGet(latest, Math::max);
+        for (Waiter waiter : waiters) {
+            if (waiter.since < latest) {
+                waiter.future.complete(null);
+            }
+        }
+    }
+
+    private long readHead() {
+        Long last = jdbc.queryForObject("select last_seq from catalog_change_head where id = ?", Long.class,
+                HEAD_ID);
+        return last != null ? last : 0;
+    }
+
+    private Pending pending() {
+        // looked up among the synchronizations rather than bound as a resource, so a transaction
+        // suspended by a nested REQUIRES_NEW keeps its changes apart from the inner one's
+        for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) {
+            if (s instanceof Pending p && p.feed() == this) {
+                return p;
+            }
+        }
+        Pending pending = new Pending();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    private void insert(Map<Key, ChangeOp> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> args = new ArrayList<>(changes.size());
+        changes.forEach((key, op) -> args.add(new Object[] { key.entity.name(), key.id, op.name(), now }));
+        jdbc.batchUpdate("insert into catalog_changes (entity, entity_id, op, created_at) values (?, ?, ?, ?)",
+                args);
+    }
+
+    private record Key(ChangeEntity entity, Long id) {
+    }
+
+    private record Waiter(long since, CompletableFuture<Void> future) {
+    }
+
+    private class Pending implements TransactionSynchronization {
+
+        private final Map<Key, ChangeOp> changes = new LinkedHashMap<>();
+
+        ChangeFeed feed() {
+            return ChangeFeed.this;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            insert(changes);
+        }
+    }
+}
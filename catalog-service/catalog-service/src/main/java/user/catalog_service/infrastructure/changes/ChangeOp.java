@@ -0,0 +1,12 @@
+package user.catalog_service.infrastructure.changes;
+
+// declared weakest to strongest; coalescing within a transaction keeps the strongest
+public enum ChangeOp {
+    STOCK,
+    UPSERT,
+    DELETE;
+
+    ChangeOp merge(ChangeOp other) {
+        return other.ordinal() > ordinal() ? other : this;
+    }
+}
@@ -0,0 +1,4 @@
+package user.catalog_service.infrastructure.changes;
+
+public record ChangeRow(long seq, ChangeEntity entity, long entityId, ChangeOp op) {
+}
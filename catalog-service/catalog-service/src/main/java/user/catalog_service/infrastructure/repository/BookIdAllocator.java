@@ -0,0 +1,42 @@
+package user.catalog_service.infrastructure.repository;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import user.catalog_service.domain.model.Book;
+
+// same sequence as Hibernate's pooled optimizer, so batch inserts and entity saves never collide;
+// each sequence value is the high end of a block of Book.ID_BLOCK_SIZE ids
+@Component
+public class BookIdAllocator implements SmartInitializingSingleton {
+
+    private final JdbcTemplate jdbc;
+
+    public BookIdAllocator(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // rows written while ids were identity columns sit ahead of a fresh sequence; move it past them.
+        // Two instances aligning at the same moment can hand out one block twice, the primary key rejects it
+        long maxId = jdbc.queryForObject("select coalesce(max(id), 0) from books", Long.class);
+        if (nextHi() - Book.ID_BLOCK_SIZE < maxId) {
+            jdbc.execute("alter sequence " + Book.ID_SEQUENCE + " restart with " + (maxId + Book.ID_BLOCK_SIZE + 1));
+        }
+    }
+
+    public long nextBlock() {
+        return nextHi() - Book.ID_BLOCK_SIZE + 1;
+    }
+
+    private long nextHi() {
+        long hi = jdbc.queryForObject("select nextval('" + Book.ID_SEQUENCE + "')", Long.class);
+        // the first value of a fresh sequence is below the block size; Hibernate skips it too
+        if (hi < Book.ID_BLOCK_SIZE) {
+            hi = jdbc.queryForObject("select nextval('" + Book.ID_SEQUENCE + "')", Long.class);
+        }
+        return hi;
+    }
+}
@@ -1,18 +1,48 @@
 package user.catalog_service.infrastructure.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import user.catalog_service.application.dto.BookListItem;
+import user.catalog_service.application.dto.BookLookupResponse;
 import user.catalog_service.domain.model.Book;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
-  Page<Book> findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(String title, String author,
-      Pageable pageable);
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
+  String LIST_ITEM = "select new user.catalog_service.application.dto.BookListItem("
+      + "b.id, b.title, b.author, b.price, b.stock, b.year, b.category.id, b.imageHash, b.hot) from Book b";
 
-  Page<Book> findByCategoryId(Long categoryId, Pageable pageable);
+  @Query(value = LIST_ITEM, countQuery = "select count(b) from Book b")
+  Page<BookListItem> findListItems(Pageable pageable);
 
-  List<Book> findByCategoryId(Long categoryId);
+  @Query(LIST_ITEM + " where b.id in :ids")
+  List<BookListItem> findListItemsByIdIn(@Param("ids") Collection<Long> ids);
 
-}
\ No newline at end of file
+  @Query("select new user.catalog_service.application.dto.BookLookupResponse(b.id, b.title, b.price, b.stock) "
+      + "from Book b where b.id in :ids")
+  List<BookLookupResponse> findLookupByIdIn(@Param("ids") Collection<Long> ids);
+
+  // guarded update: returns 0 when the book is missing, short of stock, or hot while the ledger is on
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("update Book b set b.stock = b.stock - :qty, b.version = b.version + 1"
+      + " where b.id = :id and b.stock >= :qty and (b.hot = false or :ledger = false)")
+  int decrementStockIfAvailable(@Param("id") Long id, @Param("qty") int qty, @Param("ledger") boolean ledger);
+
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("update Book b set b.stock = b.stock + :qty, b.version = b.version + 1 where b.id = :id")
+  int incrementStock(@Param("id") Long id, @Param("qty") int qty);
+
+  @Modifying(flushAutomatically = true)
+  @Query("update Book b set b.stock = :stock where b.id = :id")
+  int setStock(@Param("id") Long id, @Param("stock") int stock);
+
+  @Modifying(flushAutomatically = true)
+  @Query("update Book b set b.version = b.version + 1 where b.id = :id")
+  int bumpVersion(@Param("id") Long id);
+
+}
@@ -0,0 +1,35 @@
+package user.catalog_service.infrastructure.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import user.catalog_service.application.dto.BookFilter;
+import user.catalog_service.application.dto.BookListItem;
+import user.catalog_service.infrastructure.utils.Cursor;
+
+public interface BookRepositoryCustom {
+
+  // row keys are the API field names of BookRepositoryImpl.COLUMNS
+  Page<Map<String, Object>> findFields(List<String> fields, BookFilter filter, Pageable pageable);
+
+  Page<BookListItem> filterListItems(BookFilter filter, Pageable pageable);
+
+  // rows strictly after the cursor, or from the start when it is null; the sort must support cursors
+  List<BookListItem> findListItemsAfter(BookFilter filter, BookSort sort, Cursor after, int limit);
+
+  List<Map<String, Object>> findFieldsAfter(List<String> fields, BookFilter filter, BookSort sort, Cursor after,
+      int limit);
+
+  // in no particular order
+  List<Map<String, Object>> findFieldsByIds(List<String> fields, Collection<Long> ids);
+
+  long countBooks(BookFilter filter);
+
+  // forward-only; must be consumed inside a transaction and closed
+  Stream<BookListItem> streamListItems(Long categoryId, int fetchSize);
+}
@@ -0,0 +1,211 @@
+package user.catalog_service.infrastructure.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import user.catalog_service.application.dto.BookFilter;
+import user.catalog_service.application.dto.BookListItem;
+import user.catalog_service.infrastructure.utils.Cursor;
+
+// JPQL strings, not criteria trees: Hibernate caches the plan of a string, a criteria query is translated every call
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+  public static final Map<String, String> COLUMNS = Map.of(
+      "id", "id",
+      "title", "title",
+      "author", "author",
+      "price", "price",
+      "stock", "stock",
+      "year", "year",
+      "category_id", "category.id",
+      "image_hash", "imageHash",
+      "hot", "hot");
+
+  // (title, id) > (:title, :id); the leading title >= :title gives the planner a range start on the
+  // books(title, id) index, which a bare OR of the two cases does not on every database
+  private static final String AFTER = "b.title >= :afterTitle and (b.title > :afterTitle or b.id > :afterId)";
+
+  // newest first is plain descending id order, so the id alone is the position
+  private static final String AFTER_NEWEST = "b.id < :afterId";
+
+  @PersistenceContext
+  private EntityManager em;
+
+  @Override
+  public Page<Map<String, Object>> findFields(List<String> fields, BookFilter filter, Pageable pageable) {
+    String jpql = "select " + selections(fields) + " from Book b" + where(filter, null, null)
+        + orderBy(pageable.getSort());
+    TypedQuery<Tuple> query = em.createQuery(jpql, Tuple.class)
+        .setFirstResult((int) pageable.getOffset())
+        .setMaxResults(pageable.getPageSize());
+    bind(query, filter, null, null);
+    return PageableExecutionUtils.getPage(rows(query.getResultList(), fields), pageable,
+        () -> countBooks(filter));
+  }
+
+  @Override
+  public Page<BookListItem> filterListItems(BookFilter filter, Pageable pageable) {
+    String jpql = BookRepository.LIST_ITEM + where(filter, null, null) + orderBy(pageable.getSort());
+    TypedQuery<BookListItem> query = em.createQuery(jpql, BookListItem.class)
+        .setFirstResult((int) pageable.getOffset())
+        .setMaxResults(pageable.getPageSize());
+    bind(query, filter, null, null);
+    return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> countBooks(filter));
+  }
+
+  @Override
+  public Stream<BookListItem> streamListItems(Long categoryId, int fetchSize) {
+    // projections are never managed, so the persistence context stays empty however many rows pass through
+    BookFilter filter = BookFilter.of(null, categoryId);
+    TypedQuery<BookListItem> query = em.createQuery(BookRepository.LIST_ITEM + where(filter, null, null)
+        + " order by b.id", BookListItem.class)
+        .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+        .setHint(HibernateHints.HINT_READ_ONLY, true);
+    bind(query, filter, null, null);
+    return query.getResultStream();
+  }
+
+  @Override
+  public List<BookListItem> findListItemsAfter(BookFilter filter, BookSort sort, Cursor after, int limit) {
+    String jpql = BookRepository.LIST_ITEM + where(filter, sort, after) + orderBy(sort.sort());
+    TypedQuery<BookListItem> query = em.createQuery(jpql, BookListItem.class).setMaxResults(limit);
+    bind(query, filter, sort, after);
+    return query.getResultList();
+  }
+
+  @Override
+  public List<Map<String, Object>> findFieldsAfter(List<String> fields, BookFilter filter, BookSort sort,
+      Cursor after, int limit) {
+    String jpql = "select " + selections(fields) + " from Book b" + where(filter, sort, after)
+        + orderBy(sort.sort());
+    TypedQuery<Tuple> query = em.createQuery(jpql, Tuple.class).setMaxResults(limit);
+    bind(query, filter, sort, after);
+    return rows(query.getResultList(), fields);
+  }
+
+  @Override
+  public List<Map<String, Object>> findFieldsByIds(List<String> fields, Collection<Long> ids) {
+    TypedQuery<Tuple> query = em.createQuery("select " + selections(fields) + " from Book b where b.id in :ids",
+        Tuple.class);
+    query.setParameter("ids", ids);
+    return rows(query.getResultList(), fields);
+  }
+
+  @Override
+  public long countBooks(BookFilter filter) {
+    TypedQuery<Long> query = em.createQuery("select count(b) from Book b" + where(filter, null, null), Long.class);
+    bind(query, filter, null, null);
+    return query.getSingleResult();
+  }
+
+  private static String where(BookFilter filter, BookSort sort, Cursor after) {
+    List<String> predicates = new ArrayList<>(8);
+    if (filter.hasQuery()) {
+      predicates.add("(lower(b.title) like :q escape '\\' or lower(b.author) like :q escape '\\')");
+    }
+    if (filter.getCategoryId() != null) {
+      predicates.add("b.category.id = :categoryId");
+    }
+    if (filter.getMinPrice() != null) {
+      predicates.add("b.price >= :minPrice");
+    }
+    if (filter.getMaxPrice() != null) {
+      predicates.add("b.price <= :maxPrice");
+    }
+    if (filter.getMinYear() != null) {
+      predicates.add("b.year >= :minYear");
+    }
+    if (filter.getMaxYear() != null) {
+      predicates.add("b.year <= :maxYear");
+    }
+    if (filter.isInStock()) {
+      predicates.add("b.stock > 0");
+    }
+    if (after != null) {
+      predicates.add(sort == BookSort.NEWEST ? AFTER_NEWEST : AFTER);
+    }
+    return predicates.isEmpty() ? "" : " where " + String.join(" and ", predicates);
+  }
+
+  private static void bind(Query query, BookFilter filter, BookSort sort, Cursor after) {
+    if (filter.hasQuery()) {
+      query.setParameter("q", "%" + escapeLike(filter.getQ().toLowerCase()) + "%");
+    }
+    if (filter.getCategoryId() != null) {
+      query.setParameter("categoryId", filter.getCategoryId());
+    }
+    if (filter.getMinPrice() != null) {
+      query.setParameter("minPrice", filter.getMinPrice());
+    }
+    if (filter.getMaxPrice() != null) {
+      query.setParameter("maxPrice", filter.getMaxPrice());
+    }
+    if (filter.getMinYear() != null) {
+      query.setParameter("minYear", filter.getMinYear());
+    }
+    if (filter.getMaxYear() != null) {
+      query.setParameter("maxYear", filter.getMaxYear());
+    }
+    if (after != null) {
+      if (sort != BookSort.NEWEST) {
+        query.setParameter("afterTitle", after.key());
+      }
+      query.setParameter("afterId", after.id());
+    }
+  }
+
+  private static String selections(List<String> fields) {
+    StringJoiner select = new StringJoiner(", ");
+    for (String field : fields) {
+      select.add("b." + COLUMNS.get(field) + " as " + field);
+    }
+    return select.toString();
+  }
+
+  private static String orderBy(Sort sort) {
+    if (sort.isUnsorted()) {
+      return "";
+    }
+    StringJoiner order = new StringJoiner(", ", " order by ", "");
+    for (Sort.Order o : sort) {
+      if (!COLUMNS.containsValue(o.getProperty())) {
+        throw new IllegalArgumentException("Unsupported sort property: " + o.getProperty());
+      }
+      order.add("b." + o.getProperty() + (o.isAscending() ? " asc" : " desc"));
+    }
+    return order.toString();
+  }
+
+  private static List<Map<String, Object>> rows(List<Tuple> tuples, List<String> fields) {
+    List<Map<String, Object>> content = new ArrayList<>(tuples.size());
+    for (Tuple t : tuples) {
+      Map<String, Object> row = new LinkedHashMap<>();
+      for (String field : fields) {
+        row.put(field, t.get(field));
+      }
+      content.add(row);
+    }
+    return content;
+  }
+
+  // q is matched literally: its own %, _ and \ must not act as wildcards or as the escape
+  private static String escapeLike(String q) {
+    return q.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+}
@@ -0,0 +1,52 @@
+package user.catalog_service.infrastructure.repository;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+
+import user.catalog_service.infrastructure.exception.BadRequestException;
+
+// the id tie-break runs the same direction as the key, so a backward scan of the (key, id) index serves DESC too
+public enum BookSort {
+    TITLE("title", Sort.by("title", "id")),
+    PRICE("price", Sort.by("price", "id")),
+    PRICE_DESC("-price", Sort.by(Sort.Direction.DESC, "price", "id")),
+    YEAR("year", Sort.by("year", "id")),
+    YEAR_DESC("-year", Sort.by(Sort.Direction.DESC, "year", "id")),
+    // ids grow with every insert, so the id order is the insertion order
+    NEWEST("newest", Sort.by(Sort.Direction.DESC, "id"));
+
+    private final String param;
+    private final Sort sort;
+
+    BookSort(String param, Sort sort) {
+        this.param = param;
+        this.sort = sort;
+    }
+
+    public String param() {
+        return param;
+    }
+
+    public Sort sort() {
+        return sort;
+    }
+
+    // keyset paging needs a non-null leading key, which price and year do not guarantee
+    public boolean supportsCursor() {
+        return this == TITLE || this == NEWEST;
+    }
+
+    public static BookSort parse(String value) {
+        if (value == null || value.isBlank()) {
+            return TITLE;
+        }
+        return Arrays.stream(values())
+                .filter(s -> s.param.equals(value))
+                .findFirst()
+                .orElseThrow(() -> new BadRequestException("Invalid sort",
+                        List.of("sort must be one of " + String.join(", ",
+                                Arrays.stream(values()).map(s -> s.param).toList()))));
+    }
+}
@@ -1,8 +1,34 @@
 package user.catalog_service.infrastructure.repository;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import user.catalog_service.domain.model.Category;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
 
+  List<Category> findByNameIn(Collection<String> names);
+
+  List<Category> findAllByOrderByNameAscIdAsc(Limit limit);
+
+  // keyset seek on (name, id); walks the unique name index instead of skipping OFFSET rows
+  @Query("select c from Category c where c.name >= :name and (c.name > :name or c.id > :id) order by c.name, c.id")
+  List<Category> findAfter(@Param("name") String name, @Param("id") Long id, Limit limit);
+
+  // returns 0 when the category does not exist, so book writes need no separate lookup
+  @Transactional
+  @Modifying(flushAutomatically = true)
+  @Query("update Category c set c.bookCount = c.bookCount + :delta where c.id = :id")
+  int adjustBookCount(@Param("id") Long id, @Param("delta") long delta);
+
+  // guarded delete: returns 0 when the category is missing or still has books
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("delete from Category c where c.id = :id and c.bookCount = 0")
+  int deleteIfEmpty(@Param("id") Long id);
 }
@@ -0,0 +1,8 @@
+package user.catalog_service.infrastructure.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import user.catalog_service.domain.model.StockLedgerCheckpoint;
+
+public interface StockLedgerCheckpointRepository extends JpaRepository<StockLedgerCheckpoint, Integer> {
+
+}
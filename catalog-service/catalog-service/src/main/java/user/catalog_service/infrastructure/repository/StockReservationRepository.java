@@ -0,0 +1,29 @@
+package user.catalog_service.infrastructure.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import user.catalog_service.domain.model.StockReservation;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+  List<StockReservation> findByOrderId(Long orderId);
+
+  @Query("select r from StockReservation r where r.expiresAt < :now order by r.id")
+  List<StockReservation> findExpired(@Param("now") Instant now, Pageable pageable);
+
+  // returns 0 when the row was already released, confirmed or swept by someone else
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("delete from StockReservation r where r.id = :id")
+  int removeById(@Param("id") Long id);
+
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("delete from StockReservation r where r.orderId = :orderId and r.expiresAt > :now")
+  int deleteActiveByOrderId(@Param("orderId") Long orderId, @Param("now") Instant now);
+
+}
@@ -0,0 +1,44 @@
+package user.catalog_service.infrastructure.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// documents and queries go through the same folding, or accented titles would never match
+final class Analyzer {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private Analyzer() {
+    }
+
+    static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for (String t : SEPARATORS.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!t.isEmpty()) {
+                terms.add(t);
+            }
+        }
+        return terms;
+    }
+
+    // padded with '$' so two-letter terms still get trigrams
+    static List<String> trigrams(String term) {
+        String padded = "$" + term + "$";
+        List<String> grams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            String g = padded.substring(i, i + 3);
+            if (!grams.contains(g)) {
+                grams.add(g);
+            }
+        }
+        return grams;
+    }
+}
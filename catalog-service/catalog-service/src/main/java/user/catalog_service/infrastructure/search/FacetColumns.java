@@ -0,0 +1,236 @@
+package user.catalog_service.infrastructure.search;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongPredicate;
+
+// not thread-safe, FacetIndex guards it. A delete only clears the live bit; dead slots linger until a rebuild
+final class FacetColumns {
+
+    private static final int NO_CATEGORY = -1;
+    // the ordinal of a filtered category that no book has, so nothing matches it
+    private static final int UNKNOWN_CATEGORY = -2;
+    private static final int NO_YEAR = Integer.MIN_VALUE;
+    private static final long NO_PRICE = -1;
+
+    private static final int CATEGORY = 1;
+    private static final int YEAR = 2;
+    private static final int PRICE = 3;
+    private static final int STOCK = 4;
+
+    private final long[] bounds;
+
+    private long[] bookIds = new long[1024];
+    private int[] categories = new int[1024];
+    private int[] years = new int[1024];
+    private long[] prices = new long[1024];
+    private byte[] bands = new byte[1024];
+    private int[] stocks = new int[1024];
+    private final BitSet live = new BitSet();
+    private int docCount;
+    private int liveCount;
+    private final Map<Long, Integer> docOf = new HashMap<>();
+
+    private long[] categoryIds = new long[64];
+    private int categoryCount;
+    private final Map<Long, Integer> ordinalOf = new HashMap<>();
+    private int minYear = Integer.MAX_VALUE;
+    private int maxYear = Integer.MIN_VALUE;
+
+    // n ascending edges in cents make n + 1 bands
+    FacetColumns(long[] bounds) {
+        if (bounds.length > Byte.MAX_VALUE - 1) {
+            throw new IllegalArgumentException("too many price bands");
+        }
+        this.bounds = bounds.clone();
+    }
+
+    void put(long bookId, Long categoryId, Integer year, BigDecimal price, Integer stock) {
+        Integer existing = docOf.get(bookId);
+        int doc;
+        if (existing != null) {
+            doc = existing;
+        } else {
+            if (docCount == bookIds.length) {
+                int capacity = docCount * 2;
+                bookIds = Arrays.copyOf(bookIds, capacity);
+                categories = Arrays.copyOf(categories, capacity);
+                years = Arrays.copyOf(years, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                bands = Arrays.copyOf(bands, capacity);
+                stocks = Arrays.copyOf(stocks, capacity);
+            }
+            doc = docCount++;
+            bookIds[doc] = bookId;
+            live.set(doc);
+            liveCount++;
+            docOf.put(bookId, doc);
+        }
+        categories[doc] = categoryId != null ? ordinal(categoryId) : NO_CATEGORY;
+        years[doc] = year != null ? year : NO_YEAR;
+        if (year != null) {
+            minYear = Math.min(minYear, year);
+            maxYear = Math.max(maxYear, year);
+        }
+        prices[doc] = price != null ? cents(price) : NO_PRICE;
+        bands[doc] = (byte) (price != null ? band(prices[doc]) : -1);
+        stocks[doc] = stock != null ? stock : 0;
+    }
+
+    void setStock(long bookId, int stock) {
+        Integer doc = docOf.get(bookId);
+        if (doc != null) {
+            stocks[doc] = stock;
+        }
+    }
+
+    void remove(long bookId) {
+        Integer doc = docOf.remove(bookId);
+        if (doc == null) {
+            return;
+        }
+        live.clear(doc);
+        liveCount--;
+    }
+
+    int live() {
+        return liveCount;
+    }
+
+    int tombstones() {
+        return docCount - liveCount;
+    }
+
+    long bytes() {
+        return (long) bookIds.length * (8 + 4 + 4 + 8 + 1 + 4) + docCount / 8 + 8L * categoryIds.length;
+    }
+
+    int docOf(long bookId) {
+        Integer doc = docOf.get(bookId);
+        return doc != null ? doc : -1;
+    }
+
+    // a book failing exactly one filter still counts toward that filter's own facet
+    FacetCounts count(FacetFilter filter, BitSet only) {
+        int category = filter.categoryId() == null ? NO_CATEGORY
+                : ordinalOf.getOrDefault(filter.categoryId(), UNKNOWN_CATEGORY);
+        boolean byCategory = filter.categoryId() != null;
+        boolean byYear = filter.minYear() != null || filter.maxYear() != null;
+        int fromYear = filter.minYear() != null ? filter.minYear() : Integer.MIN_VALUE + 1;
+        int toYear = filter.maxYear() != null ? filter.maxYear() : Integer.MAX_VALUE;
+        boolean byPrice = filter.minPrice() != null || filter.maxPrice() != null;
+        long minPrice = filter.minPrice() != null ? cents(filter.minPrice()) : 0;
+        long maxPrice = filter.maxPrice() != null ? cents(filter.maxPrice()) : Long.MAX_VALUE;
+        boolean byStock = filter.inStock();
+
+        int[] categoryCounts = new int[categoryCount];
+        int[] yearCounts = new int[minYear <= maxYear ? maxYear - minYear + 1 : 0];
+        long[] bandCounts = new long[bounds.length + 1];
+        long[] stockCounts = new long[2];
+        long total = 0;
+
+        BitSet docs = only != null ? only : live;
+        for (int doc = docs.nextSetBit(0); doc >= 0; doc = docs.nextSetBit(doc + 1)) {
+            int misses = 0;
+            int missed = 0;
+            if (byCategory && categories[doc] != category) {
+                misses++;
+                missed = CATEGORY;
+            }
+            if (byYear && (years[doc] < fromYear || years[doc] > toYear)) {
+                misses++;
+                missed = YEAR;
+            }
+            if (byPrice && (prices[doc] == NO_PRICE || prices[doc] < minPrice || prices[doc] > maxPrice)) {
+                misses++;
+                missed = PRICE;
+            }
+            if (byStock && stocks[doc] <= 0) {
+                misses++;
+                missed = STOCK;
+            }
+            if (misses > 1) {
+                continue;
+            }
+            if (misses == 0) {
+                total++;
+            }
+            if ((misses == 0 || missed == CATEGORY) && categories[doc] >= 0) {
+                categoryCounts[categories[doc]]++;
+            }
+            if ((misses == 0 || missed == YEAR) && years[doc] != NO_YEAR) {
+                yearCounts[years[doc] - minYear]++;
+            }
+            if ((misses == 0 || missed == PRICE) && bands[doc] >= 0) {
+                bandCounts[bands[doc]]++;
+            }
+            if (misses == 0 || missed == STOCK) {
+                stockCounts[stocks[doc] > 0 ? 0 : 1]++;
+            }
+        }
+
+        Map<Long, Long> byCategoryId = new LinkedHashMap<>();
+        for (int i = 0; i < categoryCount; i++) {
+            if (categoryCounts[i] > 0) {
+                byCategoryId.put(categoryIds[i], (long) categoryCounts[i]);
+            }
+        }
+        Map<Integer, Long> byYearValue = new TreeMap<>();
+        for (int i = 0; i < yearCounts.length; i++) {
+            if (yearCounts[i] > 0) {
+                byYearValue.put(minYear + i, (long) yearCounts[i]);
+            }
+        }
+        return new FacetCounts(total, byCategoryId, byYearValue, bandCounts, stockCounts[0], stockCounts[1]);
+    }
+
+    // reads the columns on every call, so the owner's lock must be held while the predicate is in use
+    LongPredicate matcher(FacetFilter filter) {
+        boolean byYear = filter.minYear() != null || filter.maxYear() != null;
+        int fromYear = filter.minYear() != null ? filter.minYear() : Integer.MIN_VALUE + 1;
+        int toYear = filter.maxYear() != null ? filter.maxYear() : Integer.MAX_VALUE;
+        boolean byPrice = filter.minPrice() != null || filter.maxPrice() != null;
+        long minPrice = filter.minPrice() != null ? cents(filter.minPrice()) : 0;
+        long maxPrice = filter.maxPrice() != null ? cents(filter.maxPrice()) : Long.MAX_VALUE;
+        boolean byStock = filter.inStock();
+        return bookId -> {
+            Integer doc = docOf.get(bookId);
+            return doc != null
+                    && (!byYear || (years[doc] >= fromYear && years[doc] <= toYear))
+                    && (!byPrice || (prices[doc] != NO_PRICE && prices[doc] >= minPrice && prices[doc] <= maxPrice))
+                    && (!byStock || stocks[doc] > 0);
+        };
+    }
+
+    // ordinals are never reused, so a deleted category just keeps a slot with a zero count
+    private int ordinal(long categoryId) {
+        Integer known = ordinalOf.get(categoryId);
+        if (known != null) {
+            return known;
+        }
+        if (categoryCount == categoryIds.length) {
+            categoryIds = Arrays.copyOf(categoryIds, categoryCount * 2);
+        }
+        categoryIds[categoryCount] = categoryId;
+        ordinalOf.put(categoryId, categoryCount);
+        return categoryCount++;
+    }
+
+    private int band(long cents) {
+        int band = 0;
+        while (band < bounds.length && cents >= bounds[band]) {
+            band++;
+        }
+        return band;
+    }
+
+    static long cents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,7 @@
+package user.catalog_service.infrastructure.search;
+
+import java.util.Map;
+
+public record FacetCounts(long total, Map<Long, Long> categories, Map<Integer, Long> years, long[] priceBands,
+        long inStock, long outOfStock) {
+}
@@ -0,0 +1,7 @@
+package user.catalog_service.infrastructure.search;
+
+import java.math.BigDecimal;
+
+public record FacetFilter(Long categoryId, Integer minYear, Integer maxYear, BigDecimal minPrice, BigDecimal maxPrice,
+        boolean inStock) {
+}
@@ -0,0 +1,193 @@
+package user.catalog_service.infrastructure.search;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// stock arrives as the book's new value, never a delta, so replaying one that raced a rebuild is harmless
+@Component
+public class FacetIndex implements SmartInitializingSingleton {
+
+    private final boolean enabled;
+    private final long refreshIntervalMs;
+    private final List<BigDecimal> priceBounds;
+    private final long[] boundCents;
+    private final JdbcTemplate jdbc;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildLock = new Object();
+    private FacetColumns columns;
+    // changes made while a rebuild reads the table, replayed onto the new columns before they are swapped in
+    private List<Consumer<FacetColumns>> pending;
+    private volatile boolean ready;
+    private volatile long builtAt;
+
+    public FacetIndex(
+            @Value("${catalog.facets.enabled:true}") boolean enabled,
+            @Value("${catalog.facets.refresh-interval-ms:600000}") long refreshIntervalMs,
+            @Value("${catalog.facets.price-bands:50000,100000,200000,500000}") List<BigDecimal> priceBounds,
+            JdbcTemplate jdbc) {
+        this.enabled = enabled;
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.priceBounds = priceBounds.stream().sorted().distinct().toList();
+        this.boundCents = this.priceBounds.stream().mapToLong(FacetColumns::cents).toArray();
+        this.jdbc = jdbc;
+        this.columns = new FacetColumns(boundCents);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public List<BigDecimal> priceBounds() {
+        return priceBounds;
+    }
+
+    public void put(Long bookId, Long categoryId, Integer year, BigDecimal price, Integer stock) {
+        apply(c -> c.put(bookId, categoryId, year, price, stock));
+    }
+
+    public void setStock(Long bookId, Integer stock) {
+        apply(c -> c.setStock(bookId, stock != null ? stock : 0));
+    }
+
+    public void remove(Long bookId) {
+        apply(c -> c.remove(bookId));
+    }
+
+    public FacetCounts count(FacetFilter filter, Consumer<LongConsumer> restrictTo) {
+        lock.readLock().lock();
+        try {
+            BitSet only = null;
+            if (restrictTo != null) {
+                BitSet docs = new BitSet();
+                FacetColumns snapshot = columns;
+                restrictTo.accept(bookId -> {
+                    int doc = snapshot.docOf(bookId);
+                    if (doc >= 0) {
+                        docs.set(doc);
+                    }
+                });
+                only = docs;
+            }
+            return columns.count(filter, only);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // the predicate is only valid inside body, which runs under the read lock
+    public <T> T withMatcher(FacetFilter filter, Function<LongPredicate, T> body) {
+        lock.readLock().lock();
+        try {
+            return body.apply(columns.matcher(filter));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long bytes() {
+        lock.readLock().lock();
+        try {
+            return columns.bytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            FacetColumns fresh = new FacetColumns(boundCents);
+            try {
+                jdbc.query("select id, category_id, \"year\", price, stock from books", rs -> {
+                    long categoryId = rs.getLong("category_id");
+                    Long category = rs.wasNull() ? null : categoryId;
+                    int year = rs.getInt("year");
+                    fresh.put(rs.getLong("id"), category, rs.wasNull() ? null : year, rs.getBigDecimal("price"),
+                            rs.getInt("stock"));
+                });
+            } catch (DataAccessException e) {
+                System.err.println("Facet index rebuild failed: " + e.getMessage());
+                lock.writeLock().lock();
+                try {
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                return;
+            }
+
+            lock.writeLock().lock();
+            try {
+                pending.forEach(change -> change.accept(fresh));
+                pending = null;
+                columns = fresh;
+                ready = true;
+                builtAt = System.currentTimeMillis();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // reclaims the slots of deleted books and resyncs stock with the table, which hot books flush to
+    @Scheduled(fixedDelayString = "${catalog.facets.compact-check-interval-ms:60000}")
+    public void compact() {
+        if (!isReady()) {
+            return;
+        }
+        boolean due;
+        lock.readLock().lock();
+        try {
+            due = columns.tombstones() > Math.max(10_000, columns.live())
+                    || System.currentTimeMillis() - builtAt > refreshIntervalMs;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (due) {
+            rebuild();
+        }
+    }
+
+    private void apply(Consumer<FacetColumns> change) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            change.accept(columns);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package user.catalog_service.infrastructure.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+// not thread-safe, SearchIndex guards it. An update tombstones the old doc number and appends a new one,
+// so postings stay sorted and append-only
+final class InvertedIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    // a term in the title counts as much as two occurrences in the author
+    private static final int TITLE_WEIGHT = 2;
+    private static final float PREFIX_WEIGHT = 0.9f;
+    private static final float FUZZY_WEIGHT = 0.8f;
+    private static final int MAX_QUERY_TERMS = 8;
+    private static final long NO_CATEGORY = Long.MIN_VALUE;
+
+    private long[] bookIds = new long[1024];
+    private long[] categories = new long[1024];
+    private int[] lengths = new int[1024];
+    private final BitSet deleted = new BitSet();
+    private int docCount;
+    private int liveCount;
+    private long totalLength;
+
+    private final Map<Long, Integer> docOf = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final NavigableSet<String> vocabulary = new TreeSet<>();
+    private final Map<String, List<String>> termsByTrigram = new HashMap<>();
+
+    void put(long bookId, String title, String author, Long categoryId) {
+        remove(bookId);
+        List<String> titleTerms = Analyzer.terms(title);
+        List<String> authorTerms = Analyzer.terms(author);
+        Map<String, Integer> tf = new HashMap<>();
+        titleTerms.forEach(t -> tf.merge(t, TITLE_WEIGHT, Integer::sum));
+        authorTerms.forEach(t -> tf.merge(t, 1, Integer::sum));
+
+        if (docCount == bookIds.length) {
+            int capacity = docCount * 2;
+            bookIds = Arrays.copyOf(bookIds, capacity);
+            categories = Arrays.copyOf(categories, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        int doc = docCount++;
+        bookIds[doc] = bookId;
+        categories[doc] = categoryId != null ? categoryId : NO_CATEGORY;
+        lengths[doc] = titleTerms.size() * TITLE_WEIGHT + authorTerms.size();
+        totalLength += lengths[doc];
+        liveCount++;
+        docOf.put(bookId, doc);
+        tf.forEach((term, f) -> postings.computeIfAbsent(term, this::newTerm).add(doc, f));
+    }
+
+    void remove(long bookId) {
+        Integer doc = docOf.remove(bookId);
+        if (doc == null) {
+            return;
+        }
+        deleted.set(doc);
+        liveCount--;
+        totalLength -= lengths[doc];
+    }
+
+    int live() {
+        return liveCount;
+    }
+
+    int tombstones() {
+        return docCount - liveCount;
+    }
+
+    SearchHits search(String q, Long categoryId, int offset, int limit, float minSimilarity, int maxExpansions) {
+        return search(q, categoryId, null, offset, limit, minSimilarity, maxExpansions, null);
+    }
+
+    // only the last term may match as a prefix; accept is asked last, once per doc that matched every term
+    SearchHits search(String q, Long categoryId, LongPredicate accept, int offset, int limit, float minSimilarity,
+            int maxExpansions, LongConsumer matches) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(Analyzer.terms(q)));
+        if (terms.isEmpty()) {
+            return new SearchHits(List.of(), 0);
+        }
+        if (terms.size() > MAX_QUERY_TERMS) {
+            terms = terms.subList(0, MAX_QUERY_TERMS);
+        }
+
+        float avgLength = liveCount == 0 ? 1f : (float) totalLength / liveCount;
+        float[] score = new float[docCount];
+        float[] best = new float[docCount];
+        byte[] matched = new byte[docCount];
+        int[] touched = new int[16];
+
+        for (int i = 0; i < terms.size(); i++) {
+            int touchedCount = 0;
+            Map<String, Float> expansions = expand(terms.get(i), i == terms.size() - 1, minSimilarity, maxExpansions);
+            // all expansions share the idf of the most frequent one, otherwise a typo that happens to
+            // hit a rare word would outrank the exact match
+            int df = 0;
+            for (String t : expansions.keySet()) {
+                df = Math.max(df, postings.get(t).size);
+            }
+            float idf = (float) Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+            for (Map.Entry<String, Float> e : expansions.entrySet()) {
+                Postings p = postings.get(e.getKey());
+                for (int j = 0; j < p.size; j++) {
+                    int doc = p.docs[j];
+                    // docs that missed an earlier term can never qualify, so they are not scored
+                    if (matched[doc] != i || deleted.get(doc)
+                            || (categoryId != null && categories[doc] != categoryId)) {
+                        continue;
+                    }
+                    int tf = p.tf[j];
+                    float norm = tf * (K1 + 1) / (tf + K1 * (1 - B + B * lengths[doc] / avgLength));
+                    float s = e.getValue() * idf * norm;
+                    if (best[doc] == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = doc;
+                    }
+                    best[doc] = Math.max(best[doc], s);
+                }
+            }
+            // a term contributes its best expansion once, however many expansions hit the doc
+            for (int k = 0; k < touchedCount; k++) {
+                int doc = touched[k];
+                matched[doc]++;
+                score[doc] += best[doc];
+                best[doc] = 0;
+            }
+        }
+
+        int needed = terms.size();
+        Comparator<Integer> rank = (a, b) -> score[a] != score[b]
+                ? Float.compare(score[a], score[b])
+                : Long.compare(bookIds[b], bookIds[a]);
+        int keep = offset + limit;
+        PriorityQueue<Integer> top = new PriorityQueue<>(Math.max(1, Math.min(keep, 1024)), rank);
+        long total = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (matched[doc] != needed || (accept != null && !accept.test(bookIds[doc]))) {
+                continue;
+            }
+            total++;
+            if (matches != null) {
+                matches.accept(bookIds[doc]);
+            }
+            if (keep == 0) {
+                continue;
+            }
+            if (top.size() < keep) {
+                top.add(doc);
+            } else if (rank.compare(doc, top.peek()) > 0) {
+                top.poll();
+                top.add(doc);
+            }
+        }
+
+        Long[] ranked = new Long[top.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = bookIds[top.poll()];
+        }
+        List<Long> page = offset >= ranked.length
+                ? List.of()
+                : Arrays.asList(ranked).subList(offset, ranked.length);
+        return new SearchHits(page, total);
+    }
+
+    private Map<String, Float> expand(String term, boolean prefix, float minSimilarity, int maxExpansions) {
+        Map<String, Float> out = new HashMap<>();
+        if (postings.containsKey(term)) {
+            out.put(term, 1f);
+        }
+        if (prefix) {
+            int n = 0;
+            for (String t : vocabulary.tailSet(term, false)) {
+                if (!t.startsWith(term) || n++ >= maxExpansions) {
+                    break;
+                }
+                out.putIfAbsent(t, PREFIX_WEIGHT);
+            }
+        }
+        if (term.length() >= 3) {
+            List<String> grams = Analyzer.trigrams(term);
+            Map<String, Integer> shared = new HashMap<>();
+            for (String g : grams) {
+                List<String> candidates = termsByTrigram.get(g);
+                if (candidates == null) {
+                    continue;
+                }
+                for (String t : candidates) {
+                    if (Math.abs(t.length() - term.length()) <= 2) {
+                        shared.merge(t, 1, Integer::sum);
+                    }
+                }
+            }
+            shared.entrySet().stream()
+                    .map(e -> Map.entry(e.getKey(), 2f * e.getValue() / (grams.size() + e.getKey().length())))
+                    .filter(e -> e.getValue() >= minSimilarity)
+                    .sorted(Map.Entry.<String, Float>comparingByValue().reversed())
+                    .limit(maxExpansions)
+                    .forEach(e -> out.merge(e.getKey(), e.getValue() * FUZZY_WEIGHT, Math::max));
+        }
+        return out;
+    }
+
+    private Postings newTerm(String term) {
+        vocabulary.add(term);
+        for (String g : Analyzer.trigrams(term)) {
+            termsByTrigram.computeIfAbsent(g, k -> new ArrayList<>()).add(term);
+        }
+        return new Postings();
+    }
+
+    private static final class Postings {
+        private int[] docs = new int[2];
+        private short[] tf = new short[2];
+        private int size;
+
+        void add(int doc, int frequency) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                tf = Arrays.copyOf(tf, size * 2);
+            }
+            docs[size] = doc;
+            tf[size] = (short) Math.min(frequency, Short.MAX_VALUE);
+            size++;
+        }
+    }
+}
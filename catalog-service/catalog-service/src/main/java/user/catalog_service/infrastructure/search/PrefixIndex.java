@@ -0,0 +1,341 @@
+package user.catalog_service.infrastructure.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.LongPredicate;
+
+import user.catalog_service.application.dto.BookSuggestion;
+
+// not thread-safe, SuggestIndex guards it. Keys sit sorted in immutable segments, so a prefix is one
+// contiguous range, and a segment tree over each segment yields the top k of a range in O(k log n).
+// Writes go to a small delta that is folded into a second, recent segment once it outgrows an eighth of
+// the books changed since the build
+final class PrefixIndex {
+
+    static final String TITLE = "title";
+    static final String AUTHOR = "author";
+
+    private static final int MIN_DELTA = 256;
+
+    private final Segment base;
+    private Segment recent = new Builder().segment();
+
+    // every book written since the base was built, null once deleted; hides the book's base entries
+    private final Map<Long, Book> changed = new HashMap<>();
+    // books written since the recent segment was built; hides their recent entries
+    private final Set<Long> touched = new HashSet<>();
+    private final TreeMap<String, List<DeltaEntry>> delta = new TreeMap<>();
+    private final Map<Long, List<String>> deltaKeys = new HashMap<>();
+    private int deltaEntries;
+
+    private PrefixIndex(Segment base) {
+        this.base = base;
+    }
+
+    static PrefixIndex empty() {
+        return new Builder().build();
+    }
+
+    void put(long bookId, String title, String author, int weight) {
+        remove(bookId);
+        Book book = new Book(title, author, Math.max(0, weight));
+        changed.put(bookId, book);
+        addDelta(bookId, title, book.weight, false);
+        addDelta(bookId, author, book.weight, true);
+        if (deltaEntries > Math.max(MIN_DELTA, changed.size() / 8)) {
+            fold();
+        }
+    }
+
+    void remove(long bookId) {
+        changed.put(bookId, null);
+        touched.add(bookId);
+        List<String> bookKeys = deltaKeys.remove(bookId);
+        if (bookKeys == null) {
+            return;
+        }
+        for (String key : bookKeys) {
+            List<DeltaEntry> entries = delta.get(key);
+            int before = entries.size();
+            entries.removeIf(e -> e.bookId == bookId);
+            deltaEntries -= before - entries.size();
+            if (entries.isEmpty()) {
+                delta.remove(key);
+            }
+        }
+    }
+
+    // one suggestion per normalized text and kind
+    List<BookSuggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        // an entry outside the top `limit` keys of its own part is outranked by `limit` distinct keys
+        // overall, so each part only has to offer that many
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        Map<String, Candidate> merged = new HashMap<>();
+        base.walk(bytes, limit, changed::containsKey, merged);
+        recent.walk(bytes, limit, touched::contains, merged);
+
+        List<Map.Entry<String, DeltaEntry>> fresh = new ArrayList<>();
+        delta.subMap(key, true, key + Character.MAX_VALUE, false)
+                .forEach((k, entries) -> entries.forEach(e -> fresh.add(Map.entry(k, e))));
+        fresh.sort(Comparator.comparingInt((Map.Entry<String, DeltaEntry> e) -> e.getValue().weight).reversed());
+        Set<String> freshKeys = new HashSet<>();
+        for (int i = 0; i < fresh.size() && freshKeys.size() < limit; i++) {
+            DeltaEntry e = fresh.get(i).getValue();
+            String mergeKey = (e.author ? AUTHOR : TITLE) + "\n" + fresh.get(i).getKey();
+            if (freshKeys.add(mergeKey)) {
+                merge(merged, mergeKey, new Candidate(e.text, e.author ? AUTHOR : TITLE,
+                        e.author ? null : e.bookId, e.weight));
+            }
+        }
+
+        return merged.values().stream()
+                .sorted(Comparator.comparingInt((Candidate c) -> c.weight).reversed())
+                .limit(limit)
+                .map(c -> new BookSuggestion(c.text, c.kind, c.bookId))
+                .toList();
+    }
+
+    int size() {
+        return base.count;
+    }
+
+    int changes() {
+        return changed.size();
+    }
+
+    long staticBytes() {
+        return base.bytes();
+    }
+
+    // rebuilds the recent segment from every live change since the base, emptying the delta
+    private void fold() {
+        Builder builder = new Builder();
+        changed.forEach((bookId, book) -> {
+            if (book != null) {
+                builder.add(bookId, book.title, book.author, book.weight);
+            }
+        });
+        recent = builder.segment();
+        touched.clear();
+        delta.clear();
+        deltaKeys.clear();
+        deltaEntries = 0;
+    }
+
+    private void addDelta(long bookId, String text, int weight, boolean author) {
+        String key = normalize(text);
+        if (key.isEmpty()) {
+            return;
+        }
+        delta.computeIfAbsent(key, k -> new ArrayList<>(1)).add(new DeltaEntry(bookId, text.trim(), weight, author));
+        deltaKeys.computeIfAbsent(bookId, id -> new ArrayList<>(2)).add(key);
+        deltaEntries++;
+    }
+
+    private static void merge(Map<String, Candidate> merged, String key, Candidate candidate) {
+        merged.merge(key, candidate, (a, b) -> a.weight >= b.weight ? a : b);
+    }
+
+    static String normalize(String text) {
+        return String.join(" ", Analyzer.terms(text));
+    }
+
+    private record Book(String title, String author, int weight) {
+    }
+
+    private record DeltaEntry(long bookId, String text, int weight, boolean author) {
+    }
+
+    private record Candidate(String text, String kind, Long bookId, int weight) {
+    }
+
+    private record Pending(byte[] key, byte[] text, long bookId, int weight, boolean author) {
+    }
+
+    private static final class Segment {
+
+        // bounds the walk when one author or title repeats across many books
+        private static final int MAX_POPS_PER_RESULT = 64;
+
+        private final int count;
+        private final byte[] keys;
+        private final int[] keyStarts;
+        private final byte[] texts;
+        private final int[] textStarts;
+        private final long[] bookIds;
+        private final int[] weights;
+        private final BitSet authors;
+        private final int leaves;
+        private final int[] heaviest;
+
+        private Segment(List<Pending> sorted) {
+            count = sorted.size();
+            keyStarts = new int[count + 1];
+            textStarts = new int[count + 1];
+            bookIds = new long[count];
+            weights = new int[count];
+            authors = new BitSet(count);
+            int keyBytes = 0;
+            int textBytes = 0;
+            for (Pending p : sorted) {
+                keyBytes += p.key.length;
+                textBytes += p.text.length;
+            }
+            keys = new byte[keyBytes];
+            texts = new byte[textBytes];
+            for (int i = 0; i < count; i++) {
+                Pending p = sorted.get(i);
+                System.arraycopy(p.key, 0, keys, keyStarts[i], p.key.length);
+                keyStarts[i + 1] = keyStarts[i] + p.key.length;
+                System.arraycopy(p.text, 0, texts, textStarts[i], p.text.length);
+                textStarts[i + 1] = textStarts[i] + p.text.length;
+                bookIds[i] = p.bookId;
+                weights[i] = p.weight;
+                authors.set(i, p.author);
+            }
+
+            leaves = Integer.highestOneBit(Math.max(1, count - 1)) << 1;
+            heaviest = new int[2 * leaves];
+            Arrays.fill(heaviest, -1);
+            for (int i = 0; i < count; i++) {
+                heaviest[leaves + i] = i;
+            }
+            for (int node = leaves - 1; node > 0; node--) {
+                heaviest[node] = heavier(heaviest[2 * node], heaviest[2 * node + 1]);
+            }
+        }
+
+        long bytes() {
+            return keys.length + texts.length + 4L * (keyStarts.length + textStarts.length + weights.length
+                    + heaviest.length) + 8L * bookIds.length + authors.size() / 8;
+        }
+
+        void walk(byte[] prefix, int want, LongPredicate hidden, Map<String, Candidate> merged) {
+            int lo = lowerBound(prefix, false);
+            int hi = lowerBound(prefix, true);
+            if (lo >= hi) {
+                return;
+            }
+            PriorityQueue<Integer> queue = new PriorityQueue<>(
+                    Comparator.comparingInt((Integer node) -> weights[heaviest[node]]).reversed());
+            // the O(log n) tree nodes that exactly cover [lo, hi)
+            for (int l = lo + leaves, r = hi + leaves; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) == 1) {
+                    queue.add(l++);
+                }
+                if ((r & 1) == 1) {
+                    queue.add(--r);
+                }
+            }
+
+            Set<String> seen = new HashSet<>();
+            int maxPops = want * MAX_POPS_PER_RESULT;
+            for (int pops = 0; !queue.isEmpty() && seen.size() < want && pops < maxPops; pops++) {
+                int node = queue.poll();
+                if (node < leaves) {
+                    if (heaviest[2 * node] >= 0) {
+                        queue.add(2 * node);
+                    }
+                    if (heaviest[2 * node + 1] >= 0) {
+                        queue.add(2 * node + 1);
+                    }
+                    continue;
+                }
+                int i = node - leaves;
+                if (hidden.test(bookIds[i])) {
+                    continue;
+                }
+                String kind = authors.get(i) ? AUTHOR : TITLE;
+                String key = kind + "\n" + decode(keys, keyStarts, i);
+                if (seen.add(key)) {
+                    merge(merged, key, new Candidate(decode(texts, textStarts, i), kind,
+                            authors.get(i) ? null : bookIds[i], weights[i]));
+                }
+            }
+        }
+
+        // with past, the first entry no longer starting with the prefix
+        private int lowerBound(byte[] prefix, boolean past) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = comparePrefix(mid, prefix);
+                if (cmp < 0 || (past && cmp == 0)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        // 0 when the key starts with the prefix
+        private int comparePrefix(int i, byte[] prefix) {
+            int start = keyStarts[i];
+            int length = keyStarts[i + 1] - start;
+            int n = Math.min(length, prefix.length);
+            int cmp = Arrays.compareUnsigned(keys, start, start + n, prefix, 0, n);
+            if (cmp != 0) {
+                return cmp;
+            }
+            return length >= prefix.length ? 0 : -1;
+        }
+
+        private int heavier(int a, int b) {
+            if (a < 0) {
+                return b;
+            }
+            if (b < 0) {
+                return a;
+            }
+            return weights[b] > weights[a] ? b : a;
+        }
+
+        private static String decode(byte[] pool, int[] starts, int i) {
+            return new String(pool, starts[i], starts[i + 1] - starts[i], StandardCharsets.UTF_8);
+        }
+    }
+
+    static final class Builder {
+        private final List<Pending> entries = new ArrayList<>();
+
+        Builder add(long bookId, String title, String author, int weight) {
+            add(bookId, title, weight, false);
+            add(bookId, author, weight, true);
+            return this;
+        }
+
+        private void add(long bookId, String text, int weight, boolean author) {
+            String key = normalize(text);
+            if (!key.isEmpty()) {
+                entries.add(new Pending(key.getBytes(StandardCharsets.UTF_8),
+                        text.trim().getBytes(StandardCharsets.UTF_8), bookId, Math.max(0, weight), author));
+            }
+        }
+
+        PrefixIndex build() {
+            return new PrefixIndex(segment());
+        }
+
+        private Segment segment() {
+            entries.sort((a, b) -> Arrays.compareUnsigned(a.key, b.key));
+            return new Segment(entries);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package user.catalog_service.infrastructure.search;
+
+import java.util.List;
+
+public record SearchHits(List<Long> ids, long total) {
+}
@@ -0,0 +1,155 @@
+package user.catalog_service.infrastructure.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SearchIndex implements SmartInitializingSingleton {
+
+    private final boolean enabled;
+    private final float minSimilarity;
+    private final int maxExpansions;
+    private final JdbcTemplate jdbc;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildLock = new Object();
+    private InvertedIndex index = new InvertedIndex();
+    // changes made while a rebuild reads the table, replayed onto the new index before it is swapped in
+    private List<Consumer<InvertedIndex>> pending;
+    private volatile boolean ready;
+
+    public SearchIndex(
+            @Value("${catalog.search.enabled:true}") boolean enabled,
+            @Value("${catalog.search.min-similarity:0.45}") float minSimilarity,
+            @Value("${catalog.search.max-expansions:20}") int maxExpansions,
+            JdbcTemplate jdbc) {
+        this.enabled = enabled;
+        this.minSimilarity = minSimilarity;
+        this.maxExpansions = maxExpansions;
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public void put(Long bookId, String title, String author, Long categoryId) {
+        apply(i -> i.put(bookId, title, author, categoryId));
+    }
+
+    public void remove(Long bookId) {
+        apply(i -> i.remove(bookId));
+    }
+
+    public SearchHits search(String q, Long categoryId, int offset, int limit) {
+        return search(q, categoryId, null, offset, limit);
+    }
+
+    public SearchHits search(String q, Long categoryId, LongPredicate accept, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            return index.search(q, categoryId, accept, offset, limit, minSimilarity, maxExpansions, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long matching(String q, LongConsumer matches) {
+        lock.readLock().lock();
+        try {
+            return index.search(q, null, null, 0, 0, minSimilarity, maxExpansions, matches).total();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            InvertedIndex fresh = new InvertedIndex();
+            try {
+                jdbc.query("select id, title, author, category_id from books", rs -> {
+                    long categoryId = rs.getLong("category_id");
+                    fresh.put(rs.getLong("id"), rs.getString("title"), rs.getString("author"),
+                            rs.wasNull() ? null : categoryId);
+                });
+            } catch (DataAccessException e) {
+                System.err.println("Search index rebuild failed: " + e.getMessage());
+                lock.writeLock().lock();
+                try {
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                return;
+            }
+
+            lock.writeLock().lock();
+            try {
+                pending.forEach(change -> change.accept(fresh));
+                pending = null;
+                index = fresh;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // updates only tombstone old entries, so rebuild once the dead ones outnumber the live ones
+    @Scheduled(fixedDelayString = "${catalog.search.compact-check-interval-ms:60000}")
+    public void compact() {
+        if (!isReady()) {
+            return;
+        }
+        boolean due;
+        lock.readLock().lock();
+        try {
+            due = index.tombstones() > Math.max(10_000, index.live());
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (due) {
+            rebuild();
+        }
+    }
+
+    private void apply(Consumer<InvertedIndex> change) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            change.accept(index);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
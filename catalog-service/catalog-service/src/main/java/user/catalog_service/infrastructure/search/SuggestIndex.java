@@ -0,0 +1,161 @@
+package user.catalog_service.infrastructure.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import user.catalog_service.application.dto.BookSuggestion;
+
+// ranked by stock, since the catalog has no sales figures; stock moves from orders only reach the
+// ranking at the next rebuild
+@Component
+public class SuggestIndex implements SmartInitializingSingleton {
+
+    private final boolean enabled;
+    private final long refreshIntervalMs;
+    private final int maxChanges;
+    private final JdbcTemplate jdbc;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildLock = new Object();
+    private PrefixIndex index = PrefixIndex.empty();
+    // changes made while a rebuild reads the table, replayed onto the new index before it is swapped in
+    private List<Consumer<PrefixIndex>> pending;
+    private volatile long builtAt;
+
+    public SuggestIndex(
+            @Value("${catalog.suggest.enabled:true}") boolean enabled,
+            @Value("${catalog.suggest.refresh-interval-ms:600000}") long refreshIntervalMs,
+            @Value("${catalog.suggest.max-changes:10000}") int maxChanges,
+            JdbcTemplate jdbc, MeterRegistry registry) {
+        this.enabled = enabled;
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.maxChanges = maxChanges;
+        this.jdbc = jdbc;
+        Gauge.builder("catalog.suggest.entries", this, s -> s.read(PrefixIndex::size))
+                .description("Titles and author names in the static part of the suggest index")
+                .register(registry);
+        Gauge.builder("catalog.suggest.bytes", this, s -> s.read(PrefixIndex::staticBytes))
+                .description("Approximate heap held by the static part of the suggest index")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public void put(Long bookId, String title, String author, Integer stock) {
+        apply(i -> i.put(bookId, title, author, stock == null ? 0 : stock));
+    }
+
+    public void remove(Long bookId) {
+        apply(i -> i.remove(bookId));
+    }
+
+    // empty until the first build completes
+    public List<BookSuggestion> suggest(String prefix, int limit) {
+        if (!enabled) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return index.suggest(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public double bytesPerEntry() {
+        return read(i -> i.size() == 0 ? 0 : (double) i.staticBytes() / i.size());
+    }
+
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            PrefixIndex.Builder builder = new PrefixIndex.Builder();
+            try {
+                jdbc.query("select id, title, author, stock from books", rs -> {
+                    builder.add(rs.getLong("id"), rs.getString("title"), rs.getString("author"), rs.getInt("stock"));
+                });
+            } catch (DataAccessException e) {
+                System.err.println("Suggest index rebuild failed: " + e.getMessage());
+                lock.writeLock().lock();
+                try {
+                    pending = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                return;
+            }
+            PrefixIndex fresh = builder.build();
+
+            lock.writeLock().lock();
+            try {
+                pending.forEach(change -> change.accept(fresh));
+                pending = null;
+                index = fresh;
+                builtAt = System.currentTimeMillis();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // the delta is scanned on every lookup, so fold it into the static part before it grows
+    @Scheduled(fixedDelayString = "${catalog.suggest.compact-check-interval-ms:60000}")
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        boolean due = System.currentTimeMillis() - builtAt > refreshIntervalMs
+                || read(PrefixIndex::changes) > maxChanges;
+        if (due) {
+            rebuild();
+        }
+    }
+
+    private <T> T read(Function<PrefixIndex, T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.apply(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<PrefixIndex> change) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            change.accept(index);
+            if (pending != null) {
+                pending.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
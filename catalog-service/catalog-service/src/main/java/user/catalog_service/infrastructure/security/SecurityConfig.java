@@ -1,5 +1,6 @@
 package user.catalog_service.infrastructure.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,16 +25,39 @@ public class SecurityConfig {
         @Bean
         public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
                 http.csrf(csrf -> csrf.disable()).authorizeHttpRequests(auth -> auth
+                                // a long poll's answer is written on an async dispatch, after the request was
+                                // already authorized; the stateless JWT filter does not run again for it
+                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                 .requestMatchers("/api/v1/auth/**").permitAll()
                                 .requestMatchers(HttpMethod.POST, "/api/v1/books").hasRole("ADMIN")
+                                .requestMatchers(HttpMethod.POST, "/api/v1/books/import").hasRole("ADMIN")
+                                // moving stock, holding it for an order id or settling a reservation is not a
+                                // shopper's call; order ids are sequential, so anyone could hold a future order's stock
                                 .requestMatchers(HttpMethod.POST, "/api/v1/books/{id}/decrement")
-                                .hasAnyRole("ADMIN", "USER")
+                                .hasAnyRole("ADMIN", "SERVICE")
                                 .requestMatchers(HttpMethod.POST, "/api/v1/books/{id}/increment")
+                                .hasAnyRole("ADMIN", "SERVICE")
+                                .requestMatchers(HttpMethod.POST, "/api/v1/books/stock/reserve")
+                                .hasAnyRole("ADMIN", "SERVICE")
+                                .requestMatchers(HttpMethod.POST, "/api/v1/books/stock/release")
+                                .hasAnyRole("ADMIN", "SERVICE")
+                                .requestMatchers(HttpMethod.POST, "/api/v1/books/stock/reservations/{orderId}/release")
+                                .hasAnyRole("ADMIN", "SERVICE")
+                                .requestMatchers(HttpMethod.POST, "/api/v1/books/stock/reservations/{orderId}/confirm")
+                                .hasAnyRole("ADMIN", "SERVICE")
+                                .requestMatchers(HttpMethod.PUT, "/api/v1/books/{id}/image").hasRole("ADMIN")
+                                .requestMatchers(HttpMethod.GET, "/api/v1/books/{id}/image")
                                 .hasAnyRole("ADMIN", "USER")
                                 .requestMatchers(HttpMethod.PUT, "/api/v1/books/{id}").hasRole("ADMIN")
                                 .requestMatchers(HttpMethod.DELETE, "/api/v1/books/{id}").hasRole("ADMIN")
+                                .requestMatchers(HttpMethod.GET, "/api/v1/books/export").hasAnyRole("ADMIN", "USER")
+                                .requestMatchers(HttpMethod.GET, "/api/v1/books/suggest").hasAnyRole("ADMIN", "USER")
+                                .requestMatchers(HttpMethod.GET, "/api/v1/books/facets").hasAnyRole("ADMIN", "USER")
+                                .requestMatchers(HttpMethod.GET, "/api/v1/books/lookup")
+                                .hasAnyRole("ADMIN", "USER", "SERVICE")
                                 .requestMatchers(HttpMethod.GET, "/api/v1/books/{id}").hasAnyRole("ADMIN", "USER")
                                 .requestMatchers(HttpMethod.GET, "/api/v1/books").hasAnyRole("ADMIN", "USER")
+                                .requestMatchers(HttpMethod.GET, "/api/v1/changes").hasAnyRole("ADMIN", "USER")
 
                                 .requestMatchers(HttpMethod.POST, "/api/v1/categories").hasRole("ADMIN")
                                 .requestMatchers(HttpMethod.PUT, "/api/v1/categories/{id}").hasRole("ADMIN")
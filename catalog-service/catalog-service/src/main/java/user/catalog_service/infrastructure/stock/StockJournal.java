@@ -0,0 +1,115 @@
+package user.catalog_service.infrastructure.stock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// the last applied seq is checkpointed with the stock update, so a replayed segment applies once
+final class StockJournal implements Closeable {
+
+    static final int ENTRY_BYTES = Long.BYTES + Long.BYTES + Integer.BYTES;
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+
+    record Entry(long seq, long bookId, int delta) {
+    }
+
+    private final Path dir;
+    private final boolean fsync;
+    private final ByteBuffer buf = ByteBuffer.allocate(ENTRY_BYTES);
+
+    private FileChannel active;
+    private Path activePath;
+    private long activeSegment;
+    private long activeEntries;
+    private long nextSeq;
+
+    StockJournal(Path dir, boolean fsync, long nextSeq, long nextSegment) throws IOException {
+        this.dir = dir;
+        this.fsync = fsync;
+        this.nextSeq = nextSeq;
+        this.activeSegment = nextSegment;
+        Files.createDirectories(dir);
+        open();
+    }
+
+    synchronized long append(long bookId, int delta) throws IOException {
+        long seq = nextSeq;
+        buf.clear();
+        buf.putLong(seq).putLong(bookId).putInt(delta).flip();
+        while (buf.hasRemaining()) {
+            active.write(buf);
+        }
+        if (fsync) {
+            active.force(false);
+        }
+        nextSeq++;
+        activeEntries++;
+        return seq;
+    }
+
+    // null when there was nothing to seal
+    synchronized Path roll() throws IOException {
+        if (activeEntries == 0) {
+            return null;
+        }
+        Path sealed = activePath;
+        active.force(false);
+        active.close();
+        activeSegment++;
+        open();
+        return sealed;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        active.force(false);
+        active.close();
+        if (activeEntries == 0) {
+            Files.deleteIfExists(activePath);
+        }
+    }
+
+    private void open() throws IOException {
+        activePath = dir.resolve(String.format("%s%020d%s", PREFIX, activeSegment, SUFFIX));
+        active = FileChannel.open(activePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        activeEntries = active.size() / ENTRY_BYTES;
+    }
+
+    static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(PREFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    // a torn trailing entry from a crash mid-write is ignored
+    static List<Entry> read(Path segment) throws IOException {
+        byte[] bytes = Files.readAllBytes(segment);
+        int count = bytes.length / ENTRY_BYTES;
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(new Entry(in.getLong(), in.getLong(), in.getInt()));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,327 @@
+package user.catalog_service.infrastructure.stock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import user.catalog_service.domain.model.StockLedgerCheckpoint;
+import user.catalog_service.infrastructure.changes.ChangeEntity;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.changes.ChangeOp;
+import user.catalog_service.infrastructure.repository.StockLedgerCheckpointRepository;
+
+// write-behind stock for hot books: while tracked, books.stock lags by the unflushed deltas
+@Component
+public class StockLedger implements SmartInitializingSingleton, DisposableBean {
+
+    private static final int CHECKPOINT_ID = 1;
+    private static final long MAX_FLUSH_BACKOFF_MS = 30_000;
+
+    private final boolean enabled;
+    private final int stripes;
+    private final Path journalDir;
+    private final boolean fsync;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final StockLedgerCheckpointRepository checkpointRepo;
+    private final ChangeFeed changeFeed;
+    private final long flushIntervalMs;
+    private final Counter flushFailures;
+
+    private final Map<Long, StripedStock> hot = new ConcurrentHashMap<>();
+    private final Deque<Path> sealed = new ArrayDeque<>();
+    private final Object flushLock = new Object();
+
+    private StockJournal journal;
+    private long appliedSeq;
+    private int failedFlushes;
+    private long nextFlushAt;
+
+    public StockLedger(
+            @Value("${catalog.stock-ledger.enabled:false}") boolean enabled,
+            @Value("${catalog.stock-ledger.stripes:16}") int stripes,
+            @Value("${catalog.stock-ledger.journal-dir:./data/stock-ledger}") String journalDir,
+            @Value("${catalog.stock-ledger.journal-fsync:true}") boolean fsync,
+            @Value("${catalog.stock-ledger.flush-interval-ms:200}") long flushIntervalMs,
+            JdbcTemplate jdbc,
+            PlatformTransactionManager transactionManager,
+            StockLedgerCheckpointRepository checkpointRepo,
+            ChangeFeed changeFeed,
+            MeterRegistry registry) {
+        this.enabled = enabled;
+        this.stripes = Math.max(1, stripes);
+        this.journalDir = Paths.get(journalDir);
+        this.fsync = fsync;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        // a flush triggered from inside a request's transaction must commit on its own, with its checkpoint
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.checkpointRepo = checkpointRepo;
+        this.changeFeed = changeFeed;
+        this.flushIntervalMs = flushIntervalMs;
+        this.flushFailures = Counter.builder("catalog.stock.ledger.flush.failures")
+                .description("Ledger flushes that failed and were retried with backoff")
+                .register(registry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover stock ledger journal", e);
+        }
+        jdbc.query("select id, stock from books where hot = true",
+                rs -> {
+                    hot.put(rs.getLong("id"), new StripedStock(stripes, rs.getInt("stock")));
+                });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean tracks(Long bookId) {
+        return enabled && hot.containsKey(bookId);
+    }
+
+    public Integer available(Long bookId) {
+        StripedStock s = enabled ? hot.get(bookId) : null;
+        return s != null ? s.sum() : null;
+    }
+
+    public boolean tryReserve(Long bookId, int qty) {
+        StripedStock s = hot.get(bookId);
+        if (s == null || !s.tryTake(qty)) {
+            return false;
+        }
+        journalOnCommit(bookId, -qty, () -> s.add(qty));
+        return true;
+    }
+
+    // a release rolled back after a concurrent take already used it cannot be drained back in full
+    public void release(Long bookId, int qty) {
+        StripedStock s = hot.get(bookId);
+        if (s == null) {
+            return;
+        }
+        s.add(qty);
+        journalOnCommit(bookId, qty, () -> s.drain(qty));
+    }
+
+    public void adjustTo(Long bookId, int stock) {
+        StripedStock s = hot.get(bookId);
+        if (s == null) {
+            return;
+        }
+        int delta = stock - s.sum();
+        if (delta > 0) {
+            release(bookId, delta);
+        } else if (delta < 0) {
+            int drained = s.drain(-delta);
+            if (drained > 0) {
+                journalOnCommit(bookId, -drained, () -> s.add(drained));
+            }
+        }
+    }
+
+    // the row lock waits out table-path decrements still in flight; later ones find hot = true and match nothing
+    public void track(Long bookId) {
+        if (!enabled || hot.containsKey(bookId)) {
+            return;
+        }
+        tx.executeWithoutResult(status -> {
+            List<Integer> stock = jdbc.queryForList("select stock from books where id = ? for update", Integer.class,
+                    bookId);
+            if (!stock.isEmpty()) {
+                hot.putIfAbsent(bookId, new StripedStock(stripes, stock.get(0) != null ? stock.get(0) : 0));
+            }
+        });
+    }
+
+    // on a failed flush the book stays tracked
+    public void untrack(Long bookId) {
+        StripedStock s = enabled ? hot.remove(bookId) : null;
+        if (s == null) {
+            return;
+        }
+        try {
+            synchronized (flushLock) {
+                drain();
+            }
+        } catch (Exception e) {
+            hot.putIfAbsent(bookId, s);
+            throw new IllegalStateException("Failed to flush stock ledger for book id " + bookId, e);
+        }
+    }
+
+    public void forget(Long bookId) {
+        if (enabled) {
+            hot.remove(bookId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.stock-ledger.flush-interval-ms:200}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (flushLock) {
+            if (System.currentTimeMillis() < nextFlushAt) {
+                return;
+            }
+            try {
+                drain();
+                failedFlushes = 0;
+            } catch (Exception e) {
+                // sealed segments stay queued and are retried once the backoff has passed
+                flushFailures.increment();
+                failedFlushes++;
+                long backoff = Math.min(MAX_FLUSH_BACKOFF_MS, flushIntervalMs << Math.min(failedFlushes, 20));
+                nextFlushAt = System.currentTimeMillis() + backoff;
+                System.err.println("Stock ledger flush failed, retrying in " + backoff + " ms");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        synchronized (flushLock) {
+            try {
+                drain();
+            } catch (Exception e) {
+                System.err.println("Stock ledger flush on shutdown failed, the journal is replayed on start");
+                e.printStackTrace();
+            }
+        }
+        journal.close();
+    }
+
+    // the journal only holds committed moves, so a crash before the commit replays nothing; the stripes move
+    // at once and are put back if the transaction rolls back
+    private void journalOnCommit(Long bookId, int delta, Runnable undo) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(bookId, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    append(bookId, delta);
+                } else {
+                    undo.run();
+                }
+            }
+        });
+    }
+
+    // the move is already committed, so when the journal cannot take it it goes straight to the table
+    private void append(Long bookId, int delta) {
+        try {
+            journal.append(bookId, delta);
+        } catch (IOException e) {
+            System.err.println("Failed to journal stock move for book id " + bookId + ", writing it through");
+            e.printStackTrace();
+            tx.executeWithoutResult(status -> {
+                jdbc.update("update books set stock = stock + ? where id = ?", delta, bookId);
+                changeFeed.record(ChangeEntity.BOOK, bookId, ChangeOp.STOCK);
+            });
+        }
+    }
+
+    private void drain() throws IOException {
+        Path segment = journal.roll();
+        if (segment != null) {
+            sealed.addLast(segment);
+        }
+        while (!sealed.isEmpty()) {
+            Path next = sealed.peekFirst();
+            apply(StockJournal.read(next));
+            Files.deleteIfExists(next);
+            sealed.pollFirst();
+        }
+    }
+
+    private void recover() throws IOException {
+        appliedSeq = checkpointRepo.findById(CHECKPOINT_ID)
+                .map(StockLedgerCheckpoint::getAppliedSeq)
+                .orElse(0L);
+
+        long lastSeq = appliedSeq;
+        long nextSegment = 0;
+        List<Path> segments = StockJournal.segments(journalDir);
+        for (Path segment : segments) {
+            List<StockJournal.Entry> entries = StockJournal.read(segment);
+            if (!entries.isEmpty()) {
+                lastSeq = Math.max(lastSeq, entries.get(entries.size() - 1).seq());
+            }
+            apply(entries);
+            nextSegment = StockJournal.segmentNumber(segment) + 1;
+        }
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+        }
+
+        journal = new StockJournal(journalDir, fsync, lastSeq + 1, nextSegment);
+    }
+
+    // entries at or below the checkpoint were already applied before a crash
+    private void apply(List<StockJournal.Entry> entries) {
+        Map<Long, Integer> deltas = new TreeMap<>();
+        long lastSeq = appliedSeq;
+        for (StockJournal.Entry e : entries) {
+            if (e.seq() > appliedSeq) {
+                deltas.merge(e.bookId(), e.delta(), Integer::sum);
+                lastSeq = Math.max(lastSeq, e.seq());
+            }
+        }
+        if (lastSeq == appliedSeq) {
+            return;
+        }
+
+        List<Object[]> args = deltas.entrySet().stream()
+                .filter(e -> e.getValue() != 0)
+                .map(e -> new Object[] { e.getValue(), e.getKey() })
+                .toList();
+        long checkpoint = lastSeq;
+        tx.executeWithoutResult(status -> {
+            if (!args.isEmpty()) {
+                jdbc.batchUpdate("update books set stock = stock + ? where id = ?", args);
+                // one stock change per book per flush, however many reservations it folded in
+                changeFeed.recordAll(ChangeEntity.BOOK, args.stream().map(a -> (Long) a[1]).toList(), ChangeOp.STOCK);
+            }
+            checkpointRepo.save(new StockLedgerCheckpoint(CHECKPOINT_ID, checkpoint));
+        });
+        appliedSeq = checkpoint;
+    }
+}
@@ -0,0 +1,96 @@
+package user.catalog_service.infrastructure.stock;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// a cell never goes below zero, so the sum is never oversold
+final class StripedStock {
+
+    // 16 ints = 64 bytes between cells to keep them on separate cache lines
+    private static final int PAD = 16;
+
+    private final int stripes;
+    private final AtomicIntegerArray cells;
+
+    StripedStock(int stripes, int initial) {
+        this.stripes = stripes;
+        this.cells = new AtomicIntegerArray(stripes * PAD);
+        int share = Math.max(initial, 0) / stripes;
+        int rest = Math.max(initial, 0) % stripes;
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * PAD, share + (i < rest ? 1 : 0));
+        }
+    }
+
+    boolean tryTake(int qty) {
+        int home = ThreadLocalRandom.current().nextInt(stripes);
+        int remaining = qty;
+        int[] taken = null;
+
+        for (int i = 0; i < stripes && remaining > 0; i++) {
+            int idx = ((home + i) % stripes) * PAD;
+            while (true) {
+                int cur = cells.get(idx);
+                if (cur <= 0) {
+                    break;
+                }
+                int take = Math.min(cur, remaining);
+                if (cells.compareAndSet(idx, cur, cur - take)) {
+                    remaining -= take;
+                    if (remaining > 0) {
+                        if (taken == null) {
+                            taken = new int[stripes];
+                        }
+                        taken[idx / PAD] += take;
+                    }
+                    break;
+                }
+            }
+        }
+
+        if (remaining == 0) {
+            return true;
+        }
+        // not enough across all cells: hand back the partial grab
+        if (taken != null) {
+            for (int i = 0; i < stripes; i++) {
+                if (taken[i] > 0) {
+                    cells.addAndGet(i * PAD, taken[i]);
+                }
+            }
+        }
+        return false;
+    }
+
+    // takes up to qty, whatever is left; returns the amount actually removed
+    int drain(int qty) {
+        int remaining = qty;
+        for (int i = 0; i < stripes && remaining > 0; i++) {
+            int idx = i * PAD;
+            while (true) {
+                int cur = cells.get(idx);
+                if (cur <= 0) {
+                    break;
+                }
+                int take = Math.min(cur, remaining);
+                if (cells.compareAndSet(idx, cur, cur - take)) {
+                    remaining -= take;
+                    break;
+                }
+            }
+        }
+        return qty - remaining;
+    }
+
+    void add(int qty) {
+        cells.addAndGet(ThreadLocalRandom.current().nextInt(stripes) * PAD, qty);
+    }
+
+    int sum() {
+        int total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += cells.get(i * PAD);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,128 @@
+package user.catalog_service.infrastructure.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import user.catalog_service.infrastructure.exception.BadRequestException;
+
+// keyed by the SHA-256 of the content, so a duplicate upload maps to the same file; files are never modified
+@Component
+public class BlobStore {
+
+    private final Path root;
+    private final Path tmp;
+    private final long maxBytes;
+
+    public BlobStore(
+            @Value("${catalog.images.dir:./data/images}") String dir,
+            @Value("${catalog.images.max-bytes:10485760}") long maxBytes) {
+        this.root = Paths.get(dir).toAbsolutePath();
+        this.tmp = root.resolve("tmp");
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(tmp);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create blob store at " + root, e);
+        }
+    }
+
+    public String put(InputStream in) throws IOException {
+        MessageDigest digest = sha256();
+        Path staging = Files.createTempFile(tmp, "upload-", ".part");
+        try {
+            long written = 0;
+            byte[] buf = new byte[64 * 1024];
+            try (DigestInputStream din = new DigestInputStream(in, digest);
+                    OutputStream out = Files.newOutputStream(staging)) {
+                int n;
+                while ((n = din.read(buf)) != -1) {
+                    written += n;
+                    if (written > maxBytes) {
+                        throw new BadRequestException("Image too large",
+                                List.of("image must not exceed " + maxBytes + " bytes"));
+                    }
+                    out.write(buf, 0, n);
+                }
+            }
+            if (written == 0) {
+                throw new BadRequestException("Image is empty", List.of("image content is required"));
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = path(hash);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // a concurrent upload of the same content won the race
+                }
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+    }
+
+    public String put(byte[] content) throws IOException {
+        return put(new ByteArrayInputStream(content));
+    }
+
+    public Path path(String hash) {
+        if (hash == null || !hash.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Invalid blob hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    public Path variantPath(String hash, String variant) {
+        if (variant == null || !variant.matches("[a-z0-9.]+")) {
+            throw new IllegalArgumentException("Invalid variant: " + variant);
+        }
+        Path blob = path(hash);
+        return blob.resolveSibling(hash + "-" + variant);
+    }
+
+    // readers see either nothing or the whole file
+    public void putVariant(String hash, String variant, byte[] content) throws IOException {
+        Path target = variantPath(hash, variant);
+        Path staging = Files.createTempFile(tmp, "variant-", ".part");
+        try {
+            Files.write(staging, content);
+            Files.createDirectories(target.getParent());
+            Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+    }
+
+    public byte[] head(String hash, int bytes) throws IOException {
+        try (InputStream in = Files.newInputStream(path(hash))) {
+            return in.readNBytes(bytes);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package user.catalog_service.infrastructure.storage;
+
+// multi-range requests are answered with the full content, which RFC 9110 allows
+public record ByteRange(long start, long end) {
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    // null when the range cannot be satisfied; the whole content when there is no single bytes range
+    public static ByteRange parse(String header, long size) {
+        ByteRange full = new ByteRange(0, size - 1);
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return full;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return full;
+        }
+        try {
+            String from = spec.substring(0, dash).trim();
+            String to = spec.substring(dash + 1).trim();
+            if (from.isEmpty()) {
+                long suffix = Long.parseLong(to);
+                if (suffix <= 0) {
+                    return null;
+                }
+                return new ByteRange(Math.max(0, size - suffix), size - 1);
+            }
+            long start = Long.parseLong(from);
+            long end = to.isEmpty() ? size - 1 : Math.min(Long.parseLong(to), size - 1);
+            if (start >= size || end < start) {
+                return null;
+            }
+            return new ByteRange(start, end);
+        } catch (NumberFormatException e) {
+            return full;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package user.catalog_service.infrastructure.storage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import user.catalog_service.infrastructure.utils.ImageUtil;
+
+@Component
+public class LegacyImageMigration implements ApplicationRunner {
+
+    private static final int BATCH = 100;
+
+    private final JdbcTemplate jdbc;
+    private final BlobStore blobStore;
+
+    public LegacyImageMigration(JdbcTemplate jdbc, BlobStore blobStore) {
+        this.jdbc = jdbc;
+        this.blobStore = blobStore;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            long lastId = 0;
+            List<Map<String, Object>> rows;
+            do {
+                rows = jdbc.queryForList("select id, image_base64 from books "
+                        + "where image_base64 is not null and id > ? order by id limit " + BATCH, lastId);
+                for (Map<String, Object> row : rows) {
+                    lastId = ((Number) row.get("id")).longValue();
+                    migrate(lastId, (String) row.get("image_base64"));
+                }
+            } while (rows.size() == BATCH);
+        } catch (DataAccessException e) {
+            // no legacy column on this database
+        }
+    }
+
+    private void migrate(long id, String base64) {
+        byte[] image = ImageUtil.decodeImage(base64);
+        String hash = null;
+        String contentType = null;
+        if (image != null) {
+            try {
+                hash = blobStore.put(image);
+                contentType = ImageUtil.detectContentType(image);
+            } catch (IOException e) {
+                System.err.println("Failed to migrate image of book " + id + ": " + e.getMessage());
+                return;
+            }
+        }
+        jdbc.update("update books set image_hash = ?, image_content_type = ?, image_base64 = null where id = ?",
+                hash, contentType, id);
+    }
+}
@@ -0,0 +1,11 @@
+package user.catalog_service.infrastructure.storage;
+
+import java.nio.file.Path;
+
+// substitute: the original stands in for a thumbnail not rendered yet, so it must not be cached as one
+public record StoredImage(String hash, String contentType, Path path, long size, boolean substitute) {
+
+    public StoredImage(String hash, String contentType, Path path, long size) {
+        this(hash, contentType, path, size, false);
+    }
+}
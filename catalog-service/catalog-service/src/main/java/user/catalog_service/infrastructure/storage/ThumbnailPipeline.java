@@ -0,0 +1,176 @@
+package user.catalog_service.infrastructure.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// variants are keyed by the original's hash, so they never go stale. A job dropped by the full queue is
+// queued again the next time one of its thumbnails is found missing
+@Component
+public class ThumbnailPipeline implements DisposableBean {
+
+    // formats the JDK can decode without extra plugins
+    private static final Set<String> RENDERABLE = Set.of("image/jpeg", "image/png", "image/gif");
+
+    private final boolean enabled;
+    private final int[] widths;
+    private final float quality;
+    private final BlobStore blobStore;
+    private final ThreadPoolExecutor executor;
+    // covers queued or rendering, so repeated requests for a missing thumbnail queue it once
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // covers the decoder choked on; retrying them on every request would only burn the workers
+    private final Set<String> unrenderable = ConcurrentHashMap.newKeySet();
+
+    private final Counter rendered;
+    private final Counter failed;
+    private final Counter rejected;
+    private final Timer renderLatency;
+
+    public ThumbnailPipeline(
+            @Value("${catalog.thumbnails.enabled:true}") boolean enabled,
+            @Value("${catalog.thumbnails.widths:64,160,320}") List<Integer> widths,
+            @Value("${catalog.thumbnails.jpeg-quality:0.82}") float quality,
+            @Value("${catalog.thumbnails.threads:2}") int threads,
+            @Value("${catalog.thumbnails.queue-capacity:200}") int queueCapacity,
+            BlobStore blobStore, MeterRegistry registry) {
+        this.enabled = enabled;
+        this.widths = widths.stream().mapToInt(Integer::intValue).filter(w -> w > 0).sorted().distinct().toArray();
+        this.quality = quality;
+        this.blobStore = blobStore;
+
+        AtomicInteger threadNo = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "thumbnail-" + threadNo.incrementAndGet());
+                    t.setDaemon(true);
+                    // rendering is CPU bound; request threads get the cores first during a burst
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("catalog.thumbnails.queue.depth", executor, e -> e.getQueue().size())
+                .description("Covers waiting for their thumbnails to be rendered")
+                .register(registry);
+        Gauge.builder("catalog.thumbnails.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Covers being rendered right now")
+                .register(registry);
+        this.rendered = Counter.builder("catalog.thumbnails.jobs")
+                .description("Thumbnail jobs by outcome")
+                .tag("result", "rendered")
+                .register(registry);
+        this.failed = Counter.builder("catalog.thumbnails.jobs")
+                .description("Thumbnail jobs by outcome")
+                .tag("result", "failed")
+                .register(registry);
+        this.rejected = Counter.builder("catalog.thumbnails.jobs")
+                .description("Thumbnail jobs by outcome")
+                .tag("result", "rejected")
+                .register(registry);
+        this.renderLatency = Timer.builder("catalog.thumbnails.render.latency")
+                .description("Time to decode a cover and write all of its thumbnails")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public boolean submit(String hash, String contentType) {
+        if (!enabled || hash == null || !RENDERABLE.contains(contentType) || unrenderable.contains(hash)
+                || !inFlight.add(hash)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    render(hash);
+                } finally {
+                    inFlight.remove(hash);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(hash);
+            rejected.increment();
+            return false;
+        }
+    }
+
+    // null when only the original will do
+    public Integer widthFor(int requested) {
+        if (!enabled) {
+            return null;
+        }
+        for (int w : widths) {
+            if (w >= requested) {
+                return w;
+            }
+        }
+        return null;
+    }
+
+    public Path variantPath(String hash, int width) {
+        return blobStore.variantPath(hash, variant(width));
+    }
+
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // queued jobs are dropped, running ones finish their current write
+        executor.shutdown();
+        executor.getQueue().clear();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void render(String hash) {
+        if (Arrays.stream(widths).allMatch(w -> Files.exists(variantPath(hash, w)))) {
+            return;
+        }
+        long begin = System.nanoTime();
+        Map<Integer, byte[]> thumbnails;
+        try {
+            thumbnails = Thumbnailer.render(blobStore.path(hash), widths, quality);
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            unrenderable.add(hash);
+            System.err.println("Thumbnail rendering failed for " + hash + ": " + e.getMessage());
+            return;
+        }
+        try {
+            for (Map.Entry<Integer, byte[]> t : thumbnails.entrySet()) {
+                blobStore.putVariant(hash, variant(t.getKey()), t.getValue());
+            }
+            rendered.increment();
+        } catch (IOException e) {
+            // a storage problem, not the cover's fault, so a later request may queue it again
+            failed.increment();
+            System.err.println("Thumbnail write failed for " + hash + ": " + e.getMessage());
+        } finally {
+            renderLatency.record(System.nanoTime() - begin, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String variant(int width) {
+        return "w" + width + ".jpg";
+    }
+}
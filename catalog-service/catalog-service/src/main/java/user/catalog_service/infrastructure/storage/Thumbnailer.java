@@ -0,0 +1,113 @@
+package user.catalog_service.infrastructure.storage;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+// each width is scaled from the next larger one by repeated halving, which keeps bilinear filtering sharp
+// at a fraction of the cost of one large step with a heavier filter
+final class Thumbnailer {
+
+    private Thumbnailer() {
+    }
+
+    // images narrower than a width are not enlarged
+    static Map<Integer, byte[]> render(Path source, int[] widths, float quality) throws IOException {
+        int[] descending = Arrays.stream(widths).boxed().sorted((a, b) -> b - a).mapToInt(Integer::intValue).toArray();
+        BufferedImage current = toRgb(decode(source, descending[0]));
+        Map<Integer, byte[]> out = new LinkedHashMap<>();
+        for (int width : descending) {
+            current = scaleTo(current, Math.min(width, current.getWidth()));
+            out.put(width, encode(current, quality));
+        }
+        return out;
+    }
+
+    private static BufferedImage decode(Path source, int largest) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + source.getFileName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                // skipping source pixels while decoding bounds the memory a huge cover needs; twice the
+                // largest width is kept so the downscale still has pixels to average
+                int step = Math.max(1, reader.getWidth(0) / (2 * largest));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // JPEG has no alpha channel, so transparent covers are flattened onto white
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, rgb.getWidth(), rgb.getHeight());
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    private static BufferedImage scaleTo(BufferedImage image, int width) {
+        BufferedImage current = image;
+        while (current.getWidth() > width) {
+            int next = Math.max(width, current.getWidth() / 2);
+            int height = Math.max(1, (int) Math.round((double) current.getHeight() * next / current.getWidth()));
+            BufferedImage scaled = new BufferedImage(next, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = scaled.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(current, 0, 0, next, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = scaled;
+        }
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,30 @@
+package user.catalog_service.infrastructure.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import user.catalog_service.infrastructure.exception.BadRequestException;
+
+// clients only ever see the opaque encoded form
+public record Cursor(String key, Long id) {
+
+    public String encode() {
+        String raw = id + "\n" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // a blank cursor decodes to null, the first page
+    public static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int newline = raw.indexOf('\n');
+            return new Cursor(raw.substring(newline + 1), Long.parseLong(raw.substring(0, newline)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestException("Invalid cursor", List.of("cursor is malformed"));
+        }
+    }
+}
@@ -1,13 +1,80 @@
 package user.catalog_service.infrastructure.utils;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
 public class ImageUtil {
 
+    public static final String OCTET_STREAM = "application/octet-stream";
+
     public static String encodeStringToBase64(String text) {
         if (text == null || text.isEmpty()) {
             return null;
         }
         return Base64.getEncoder().encodeToString(text.getBytes());
     }
-}
\ No newline at end of file
+
+    // accepts a data: URI prefix and values the old create path base64-encoded twice
+    public static byte[] decodeImage(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String text = value.trim();
+        int comma = text.indexOf(',');
+        if (text.startsWith("data:") && comma > 0) {
+            text = text.substring(comma + 1);
+        }
+
+        byte[] bytes = tryDecode(text);
+        if (bytes == null) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+        if (OCTET_STREAM.equals(detectContentType(bytes))) {
+            byte[] twice = tryDecode(new String(bytes, StandardCharsets.US_ASCII));
+            if (twice != null && !OCTET_STREAM.equals(detectContentType(twice))) {
+                return twice;
+            }
+        }
+        return bytes;
+    }
+
+    public static String detectContentType(byte[] head) {
+        if (head == null) {
+            return OCTET_STREAM;
+        }
+        if (startsWith(head, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, 0x89, 'P', 'N', 'G')) {
+            return "image/png";
+        }
+        if (startsWith(head, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (head.length >= 12 && startsWith(head, 'R', 'I', 'F', 'F')
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return "image/webp";
+        }
+        return OCTET_STREAM;
+    }
+
+    private static byte[] tryDecode(String text) {
+        try {
+            return Base64.getMimeDecoder().decode(text);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean startsWith(byte[] data, int... prefix) {
+        if (data.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((data[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
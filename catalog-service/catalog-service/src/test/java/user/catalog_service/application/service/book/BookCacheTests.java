@@ -0,0 +1,120 @@
+package user.catalog_service.application.service.book;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.catalog_service.application.dto.BookResponse;
+import user.catalog_service.application.dto.BookUpdateDto;
+import user.catalog_service.application.dto.StockItemDto;
+import user.catalog_service.domain.model.Book;
+import user.catalog_service.infrastructure.cache.BookCache;
+import user.catalog_service.infrastructure.cache.CategoryCache;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.repository.BookRepository;
+import user.catalog_service.infrastructure.search.FacetIndex;
+import user.catalog_service.infrastructure.search.SearchIndex;
+import user.catalog_service.infrastructure.search.SuggestIndex;
+import user.catalog_service.infrastructure.stock.StockLedger;
+import user.catalog_service.infrastructure.storage.BlobStore;
+import user.catalog_service.infrastructure.storage.ThumbnailPipeline;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bookcache;MODE=PostgreSQL;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "catalog.images.dir=${java.io.tmpdir}/catalog-test-images"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ BookServiceImpl.class, StockLedger.class, BlobStore.class, ThumbnailPipeline.class, SearchIndex.class,
+        SuggestIndex.class, FacetIndex.class, BookCache.class, CategoryCache.class, ChangeFeed.class,
+        SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookCacheTests {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepo;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private Long id;
+
+    @BeforeEach
+    void seed() {
+        Book book = new Book();
+        book.setTitle("Ronggeng Dukuh Paruk");
+        book.setAuthor("Ahmad Tohari");
+        book.setPrice(BigDecimal.TEN);
+        book.setStock(10);
+        book.setYear(1982);
+        id = bookRepo.save(book).getId();
+    }
+
+    @Test
+    void repeatedReadsAreServedFromCache() {
+        double hitsBefore = hits();
+        bookService.getById(id);
+        bookService.getById(id);
+        bookService.getById(id);
+
+        assertEquals(hitsBefore + 2, hits());
+    }
+
+    @Test
+    void everyWritePathInvalidatesAndBumpsTheVersion() {
+        BookResponse first = bookService.getById(id);
+
+        bookService.decrementStock(id, 2);
+        BookResponse afterDecrement = bookService.getById(id);
+        assertEquals(8, afterDecrement.getStock());
+        assertNotEquals(first.getVersion(), afterDecrement.getVersion());
+
+        bookService.incrementStock(id, 1);
+        assertEquals(9, bookService.getById(id).getStock());
+
+        bookService.reserveStock(List.of(new StockItemDto(id, 4)), null);
+        assertEquals(5, bookService.getById(id).getStock());
+
+        bookService.releaseStock(List.of(new StockItemDto(id, 4)));
+        assertEquals(9, bookService.getById(id).getStock());
+
+        BookUpdateDto update = new BookUpdateDto();
+        update.setTitle("Lintang Kemukus Dini Hari");
+        bookService.update(id, update);
+        BookResponse afterUpdate = bookService.getById(id);
+        assertEquals("Lintang Kemukus Dini Hari", afterUpdate.getTitle());
+        assertEquals(first.getVersion() + 5, afterUpdate.getVersion());
+    }
+
+    @Test
+    void writesOutsideTheServiceStayCachedUntilInvalidated() {
+        bookService.getById(id);
+        jdbc.update("update books set title = 'Changed' where id = ?", id);
+
+        assertEquals("Ronggeng Dukuh Paruk", bookService.getById(id).getTitle());
+    }
+
+    private double hits() {
+        return registry.get("cache.gets").tag("cache", "books").tag("result", "hit").functionCounter().count();
+    }
+}
@@ -0,0 +1,148 @@
+package user.catalog_service.application.service.book;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.catalog_service.infrastructure.cache.BookCache;
+import user.catalog_service.infrastructure.cache.CategoryCache;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.search.FacetIndex;
+import user.catalog_service.infrastructure.search.SearchIndex;
+import user.catalog_service.infrastructure.search.SuggestIndex;
+import user.catalog_service.infrastructure.stock.StockLedger;
+import user.catalog_service.infrastructure.storage.BlobStore;
+import user.catalog_service.infrastructure.storage.ThumbnailPipeline;
+
+// defaults to 200k rows, -Dbench.export.rows=1000000 for the full-size catalog. The H2 table lives in the
+// test heap, so the figure to watch is the growth during the export
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bookexport;MODE=PostgreSQL;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "catalog.images.dir=${java.io.tmpdir}/catalog-test-images",
+        "catalog.search.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ BookServiceImpl.class, StockLedger.class, BlobStore.class, ThumbnailPipeline.class, SearchIndex.class,
+        SuggestIndex.class, FacetIndex.class, BookCache.class, CategoryCache.class, ChangeFeed.class,
+        SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookExportBenchmarkTests {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void exportStreamsEveryRow() {
+        int rows = Integer.getInteger("bench.export.rows", 200_000);
+        seed(rows);
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long baseline = runtime.totalMemory() - runtime.freeMemory();
+        HeapSamplingSink sink = new HeapSamplingSink(runtime);
+
+        long begin = System.nanoTime();
+        long exported = bookService.export(null, sink);
+        long elapsedNanos = System.nanoTime() - begin;
+
+        assertEquals(rows, exported);
+        assertEquals(rows, sink.lines);
+        System.out.printf("export of %d rows: %d ms, %.0f rows/s, %.1f MB written, peak live heap growth %.1f MB%n",
+                rows, elapsedNanos / 1_000_000, rows * 1_000_000_000.0 / elapsedNanos, sink.bytes / 1048576.0,
+                Math.max(0, sink.peak - baseline) / 1048576.0);
+    }
+
+    @Test
+    void gzippedExportRoundTrips() throws IOException {
+        seed(3);
+        jdbc.update("insert into categories (id, name, book_count) values (7, 'Novel', 1)");
+        jdbc.update("update books set category_id = 7 where id = 2");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            assertEquals(1, bookService.export(7L, gzip));
+        }
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray())), StandardCharsets.UTF_8))) {
+            reader.lines().forEach(lines::add);
+        }
+        assertEquals(1, lines.size());
+        JsonNode book = new ObjectMapper().readTree(lines.get(0));
+        assertEquals(2, book.get("id").asLong());
+        assertEquals("Title 1", book.get("title").asText());
+        assertEquals(7, book.get("category_id").asLong());
+    }
+
+    private void seed(int rows) {
+        jdbc.update("delete from books");
+        jdbc.update("delete from categories");
+        List<Object[]> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[] { i + 1L, "Title " + i, "Author " + (i % 500), 2 + i % 40, 2000 + i % 25 });
+            if (batch.size() == 10_000 || i == rows - 1) {
+                jdbc.batchUpdate("insert into books (id, title, author, price, stock, \"year\", hot) "
+                        + "values (?, ?, ?, 9.99, ?, ?, false)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private static class HeapSamplingSink extends OutputStream {
+        private final Runtime runtime;
+        long bytes;
+        long lines;
+        long peak;
+
+        HeapSamplingSink(Runtime runtime) {
+            this.runtime = runtime;
+        }
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+            if ((bytes & 0x3FFFFF) == 0) {
+                System.gc();
+                peak = Math.max(peak, runtime.totalMemory() - runtime.freeMemory());
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+    }
+}
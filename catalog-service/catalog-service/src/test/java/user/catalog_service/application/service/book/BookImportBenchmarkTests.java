@@ -0,0 +1,171 @@
+package user.catalog_service.application.service.book;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.catalog_service.application.dto.BookDto;
+import user.catalog_service.application.dto.BookFilter;
+import user.catalog_service.application.dto.BookImportResult;
+import user.catalog_service.application.dto.BookResponse;
+import user.catalog_service.application.dto.CategoryDto;
+import user.catalog_service.application.service.category.CategoryService;
+import user.catalog_service.application.service.category.CategoryServiceImpl;
+import user.catalog_service.infrastructure.cache.BookCache;
+import user.catalog_service.infrastructure.cache.CategoryCache;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.repository.BookIdAllocator;
+import user.catalog_service.infrastructure.search.FacetIndex;
+import user.catalog_service.infrastructure.search.SearchIndex;
+import user.catalog_service.infrastructure.search.SuggestIndex;
+import user.catalog_service.infrastructure.stock.StockLedger;
+import user.catalog_service.infrastructure.storage.BlobStore;
+import user.catalog_service.infrastructure.storage.ThumbnailPipeline;
+
+// the generated file defaults to 50k rows; raise it with -Dbench.import.rows
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bookimport;MODE=PostgreSQL;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "catalog.images.dir=${java.io.tmpdir}/catalog-test-images"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ BookImportServiceImpl.class, BookIdAllocator.class, BookServiceImpl.class, CategoryServiceImpl.class,
+        StockLedger.class, BlobStore.class, ThumbnailPipeline.class, SearchIndex.class, SuggestIndex.class,
+        FacetIndex.class, BookCache.class, CategoryCache.class, ChangeFeed.class, SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookImportBenchmarkTests {
+
+    @Autowired
+    private BookImportService importService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private Long novels;
+
+    @BeforeEach
+    void seed() {
+        jdbc.update("delete from books");
+        jdbc.update("delete from categories");
+        novels = categoryService.create(new CategoryDto(null, "Novels")).getId();
+    }
+
+    @Test
+    void badRowsFailAloneAndTheRestIsImported() {
+        String ndjson = String.join("\n",
+                row("Bumi Manusia", "\"category\":\"Novels\""),
+                "{\"title\":\"Broken\",",
+                row("Anak Semua Bangsa", "\"category_id\":" + novels),
+                "{\"author\":\"Nobody\",\"price\":1,\"stock\":1,\"year\":2000,\"category\":\"Novels\"}",
+                row("Jejak Langkah", "\"category\":\"Poetry\""),
+                row("x".repeat(300), "\"category\":\"Novels\""),
+                "",
+                row("Rumah Kaca", "\"category\":\"Novels\""));
+
+        BookImportResult res = importService.importBooks(stream(ndjson), BookImportFormat.NDJSON);
+
+        assertEquals(7, res.getRows());
+        assertEquals(3, res.getImported());
+        assertEquals(List.of("line 2: malformed JSON", "line 4: title is required", "line 5: category not found",
+                "line 6: rejected by the database"), res.getErrors());
+        assertEquals(3, jdbc.queryForObject("select count(*) from books", Integer.class));
+        assertEquals(3, categoryService.getById(novels).getBookCount());
+        assertEquals(3L, jdbc.queryForObject("select book_count from categories where id = ?", Long.class, novels));
+        assertEquals(1, bookService.list(BookFilter.of("rumah kaca", novels), PageRequest.of(0, 10))
+                .getTotalElements());
+
+        // entity saves draw from the same sequence as the importer
+        BookResponse created = bookService.create(BookDto.builder().title("Arus Balik").author("Pramoedya")
+                .price(BigDecimal.TEN).stock(1).year(1995).category_id(novels).build());
+        assertEquals(4, jdbc.queryForObject("select count(distinct id) from books", Integer.class));
+        assertTrue(created.getId() > 0);
+    }
+
+    @Test
+    void csvCellsMayBeQuoted() {
+        String csv = "title,author,price,stock,year,category\n"
+                + "\"Cantik Itu Luka\",\"Kurniawan, Eka\",99.5,2,2002,Novels\n"
+                + "\"Say \"\"Hi\"\"\",Anon,abc,1,2001,Novels\n";
+
+        BookImportResult res = importService.importBooks(stream(csv), BookImportFormat.CSV);
+
+        assertEquals(1, res.getImported());
+        assertEquals(List.of("line 3: price is not a number"), res.getErrors());
+        assertEquals("Kurniawan, Eka", jdbc.queryForObject("select author from books", String.class));
+    }
+
+    @Test
+    void rowsPerSecond() {
+        int rows = Integer.getInteger("bench.import.rows", 50_000);
+        BookImportResult res = importService.importBooks(generated(rows, novels), BookImportFormat.NDJSON);
+
+        assertEquals(rows, res.getImported());
+
+        // what loading the same file through one create call per row achieves
+        int singles = Math.min(rows, 2_000);
+        long begin = System.nanoTime();
+        for (int i = 0; i < singles; i++) {
+            bookService.create(BookDto.builder().title("Single " + i).author("Bench").price(BigDecimal.ONE)
+                    .stock(3).year(2024).category_id(novels).build());
+        }
+        double singleRate = singles * 1_000_000_000.0 / (System.nanoTime() - begin);
+
+        System.out.printf("import of %d rows: %d ms, %.0f rows/s; per-row create: %.0f rows/s%n", rows,
+                res.getElapsedMs(), res.getRowsPerSecond(), singleRate);
+    }
+
+    private static String row(String title, String category) {
+        return "{\"title\":\"" + title + "\",\"author\":\"Pramoedya\",\"price\":10,\"stock\":2,\"year\":1980,"
+                + category + "}";
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // produces the file lazily so the benchmark itself does not hold it in memory
+    private static InputStream generated(int rows, Long categoryId) {
+        return new InputStream() {
+            private int row;
+            private byte[] line = new byte[0];
+            private int pos;
+
+            @Override
+            public int read() {
+                if (pos == line.length) {
+                    if (row == rows) {
+                        return -1;
+                    }
+                    line = ("{\"title\":\"Generated " + row + "\",\"author\":\"Bench\",\"price\":12.5,\"stock\":3,"
+                            + "\"year\":2024,\"category_id\":" + categoryId + "}\n").getBytes(StandardCharsets.UTF_8);
+                    row++;
+                    pos = 0;
+                }
+                return line[pos++] & 0xff;
+            }
+        };
+    }
+}
@@ -0,0 +1,120 @@
+package user.catalog_service.application.service.book;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.catalog_service.application.dto.BookFilter;
+import user.catalog_service.application.dto.BookResponse;
+import user.catalog_service.domain.model.Book;
+import user.catalog_service.domain.model.Category;
+import user.catalog_service.infrastructure.cache.BookCache;
+import user.catalog_service.infrastructure.cache.CategoryCache;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.exception.BadRequestException;
+import user.catalog_service.infrastructure.repository.BookRepository;
+import user.catalog_service.infrastructure.repository.CategoryRepository;
+import user.catalog_service.infrastructure.search.FacetIndex;
+import user.catalog_service.infrastructure.search.SearchIndex;
+import user.catalog_service.infrastructure.search.SuggestIndex;
+import user.catalog_service.infrastructure.stock.StockLedger;
+import user.catalog_service.infrastructure.storage.BlobStore;
+import user.catalog_service.infrastructure.storage.ThumbnailPipeline;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:booklist;MODE=PostgreSQL;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "catalog.images.dir=${java.io.tmpdir}/catalog-test-images",
+        "catalog.search.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ BookServiceImpl.class, StockLedger.class, BlobStore.class, ThumbnailPipeline.class, SearchIndex.class,
+        SuggestIndex.class, FacetIndex.class, BookCache.class, CategoryCache.class, ChangeFeed.class,
+        SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookListProjectionTests {
+
+    private static final Pageable BY_TITLE = PageRequest.of(0, 10, Sort.by("title").ascending());
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepo;
+
+    @Autowired
+    private CategoryRepository categoryRepo;
+
+    private Category fiction;
+
+    @BeforeEach
+    void seed() {
+        bookRepo.deleteAll();
+        categoryRepo.deleteAll();
+        fiction = new Category();
+        fiction.setName("Fiction");
+        fiction = categoryRepo.save(fiction);
+        save("Dune", "Herbert", fiction, "ab".repeat(32));
+        save("Emma", "Austen", null, null);
+    }
+
+    @Test
+    void listReadsProjectedColumns() {
+        Page<BookResponse> page = bookService.list(BookFilter.of(null, null), BY_TITLE);
+
+        assertEquals(2, page.getTotalElements());
+        BookResponse dune = page.getContent().get(0);
+        assertEquals("Dune", dune.getTitle());
+        assertEquals(fiction.getId(), dune.getCategory_id());
+        assertEquals("/api/v1/books/" + dune.getId() + "/image?v=abababababababab", dune.getImage_url());
+        assertEquals(1, bookService.list(BookFilter.of(null, fiction.getId()), BY_TITLE).getTotalElements());
+        assertEquals("Emma", bookService.list(BookFilter.of("aus", null), BY_TITLE).getContent().get(0).getTitle());
+    }
+
+    @Test
+    void fieldsNarrowTheRows() {
+        Page<Map<String, Object>> page = bookService.list(BookFilter.of(null, null), BY_TITLE,
+                List.of("title", "image_url"));
+
+        assertEquals(List.of("title", "image_url"), List.copyOf(page.getContent().get(0).keySet()));
+        assertEquals("Dune", page.getContent().get(0).get("title"));
+        assertEquals(null, page.getContent().get(1).get("image_url"));
+
+        Map<String, Object> dune = bookService.list(BookFilter.of(null, fiction.getId()), BY_TITLE,
+                List.of("year", "category_id", "hot", "stock", "price")).getContent().get(0);
+        assertEquals(2020, dune.get("year"));
+        assertEquals(fiction.getId(), dune.get("category_id"));
+        assertEquals(5, dune.get("stock"));
+        assertThrows(BadRequestException.class,
+                () -> bookService.list(BookFilter.of(null, null), BY_TITLE, List.of("title", "image_content_type")));
+    }
+
+    private void save(String title, String author, Category category, String imageHash) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setPrice(BigDecimal.TEN);
+        book.setStock(5);
+        book.setYear(2020);
+        book.setCategory(category);
+        book.setImageHash(imageHash);
+        bookRepo.save(book);
+    }
+}
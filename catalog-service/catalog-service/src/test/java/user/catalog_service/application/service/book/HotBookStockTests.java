@@ -0,0 +1,129 @@
+package user.catalog_service.application.service.book;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.catalog_service.application.dto.BookUpdateDto;
+import user.catalog_service.application.dto.StockItemDto;
+import user.catalog_service.domain.model.Book;
+import user.catalog_service.infrastructure.cache.BookCache;
+import user.catalog_service.infrastructure.cache.CategoryCache;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.exception.BadRequestException;
+import user.catalog_service.infrastructure.repository.BookRepository;
+import user.catalog_service.infrastructure.search.FacetIndex;
+import user.catalog_service.infrastructure.search.SearchIndex;
+import user.catalog_service.infrastructure.search.SuggestIndex;
+import user.catalog_service.infrastructure.stock.StockLedger;
+import user.catalog_service.infrastructure.storage.BlobStore;
+import user.catalog_service.infrastructure.storage.ThumbnailPipeline;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:hotbookstock;MODE=PostgreSQL;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "catalog.images.dir=${java.io.tmpdir}/catalog-test-images",
+        "catalog.stock-ledger.enabled=true",
+        "catalog.stock-ledger.journal-dir=${java.io.tmpdir}/catalog-test-ledger-${random.uuid}",
+        "catalog.stock-ledger.journal-fsync=false",
+        "catalog.stock-ledger.flush-interval-ms=3600000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ BookServiceImpl.class, StockLedger.class, BlobStore.class, ThumbnailPipeline.class, SearchIndex.class,
+        SuggestIndex.class, FacetIndex.class, BookCache.class, CategoryCache.class, ChangeFeed.class,
+        SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HotBookStockTests {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepo;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long id;
+
+    @BeforeEach
+    void seed() {
+        Book book = new Book();
+        book.setTitle("Bumi Manusia");
+        book.setAuthor("Pramoedya Ananta Toer");
+        book.setPrice(BigDecimal.TEN);
+        book.setStock(10);
+        book.setYear(1980);
+        id = bookRepo.save(book).getId();
+
+        BookUpdateDto hot = new BookUpdateDto();
+        hot.setHot(true);
+        bookService.update(id, hot);
+    }
+
+    @Test
+    void editingATrackedBookKeepsFlushedStock() {
+        bookService.decrementStock(id, 3);
+        long version = bookService.getById(id).getVersion();
+
+        // the edit loads the row before the flush lands, as a request racing the scheduler would
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            bookRepo.findById(id).orElseThrow();
+            stockLedger.flush();
+            assertEquals(7, stockInDb());
+
+            BookUpdateDto update = new BookUpdateDto();
+            update.setTitle("Anak Semua Bangsa");
+            bookService.update(id, update);
+        });
+
+        assertEquals(7, stockInDb());
+        assertEquals(7, bookService.getById(id).getStock());
+        assertEquals(version + 1, bookService.getById(id).getVersion());
+    }
+
+    @Test
+    void tablePathLeavesHotRowsToTheLedger() {
+        stockLedger.untrack(id);
+        jdbc.update("update books set hot = true where id = ?", id);
+
+        assertThrows(RuntimeException.class, () -> bookService.decrementStock(id, 1));
+        assertEquals(10, stockInDb());
+
+        stockLedger.track(id);
+        assertEquals(9, bookService.decrementStock(id, 1).getStock());
+    }
+
+    @Test
+    void ledgerGrantsAreHandedBackWhenTheTransactionRollsBack() {
+        assertThrows(BadRequestException.class,
+                () -> bookService.reserveStock(List.of(new StockItemDto(id, 4), new StockItemDto(-1L, 1)), null));
+
+        assertEquals(10, stockLedger.available(id));
+    }
+
+    private int stockInDb() {
+        return jdbc.queryForObject("select stock from books where id = ?", Integer.class, id);
+    }
+}
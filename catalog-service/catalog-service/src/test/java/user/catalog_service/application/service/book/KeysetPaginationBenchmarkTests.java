@@ -0,0 +1,136 @@
+package user.catalog_service.application.service.book;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.catalog_service.application.dto.BookFilter;
+import user.catalog_service.application.dto.BookResponse;
+import user.catalog_service.application.dto.CategoryResponse;
+import user.catalog_service.application.dto.CursorPage;
+import user.catalog_service.application.service.category.CategoryService;
+import user.catalog_service.application.service.category.CategoryServiceImpl;
+import user.catalog_service.infrastructure.cache.BookCache;
+import user.catalog_service.infrastructure.cache.CategoryCache;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.repository.BookSort;
+import user.catalog_service.infrastructure.search.FacetIndex;
+import user.catalog_service.infrastructure.search.SearchIndex;
+import user.catalog_service.infrastructure.search.SuggestIndex;
+import user.catalog_service.infrastructure.stock.StockLedger;
+import user.catalog_service.infrastructure.storage.BlobStore;
+import user.catalog_service.infrastructure.storage.ThumbnailPipeline;
+import user.catalog_service.infrastructure.utils.Cursor;
+
+// sizes can be raised with -Dbench.rows and -Dbench.rounds
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:keysetbench;MODE=PostgreSQL;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "catalog.images.dir=${java.io.tmpdir}/catalog-test-images"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ BookServiceImpl.class, CategoryServiceImpl.class, StockLedger.class, BlobStore.class, ThumbnailPipeline.class,
+        SearchIndex.class, SuggestIndex.class, FacetIndex.class, BookCache.class, CategoryCache.class, ChangeFeed.class,
+        SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class KeysetPaginationBenchmarkTests {
+
+    private static final int SIZE = 10;
+    private static final int PAGE = 999;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void deepPageOffsetVersusKeyset() {
+        int rows = Math.max(Integer.getInteger("bench.rows", 20_000), (PAGE + 1) * SIZE);
+        int rounds = Integer.getInteger("bench.rounds", 20);
+
+        jdbc.update("delete from books");
+        List<Object[]> args = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            // repeated titles make the id tie-breaker matter
+            args.add(new Object[] { i + 1L, String.format("Title %05d", i / 3), "Bench", 1, 2020 });
+        }
+        jdbc.batchUpdate("insert into books (id, title, author, stock, \"year\", hot) "
+                + "values (?, ?, ?, ?, ?, false)", args);
+
+        BookFilter all = BookFilter.of(null, null);
+        PageRequest offsetPage = PageRequest.of(PAGE, SIZE, Sort.by("title", "id").ascending());
+        BookResponse previous = bookService.list(all, PageRequest.of(PAGE - 1, SIZE, offsetPage.getSort()))
+                .getContent().get(SIZE - 1);
+        String cursor = new Cursor(previous.getTitle(), previous.getId()).encode();
+
+        List<Long> byOffset = ids(bookService.list(all, offsetPage).getContent());
+        List<Long> byKeyset = ids(bookService.scroll(all, BookSort.TITLE, cursor, SIZE, false).getContent());
+        assertEquals(byOffset, byKeyset);
+
+        long offsetP50 = median(rounds, () -> bookService.list(all, offsetPage));
+        long keysetP50 = median(rounds, () -> bookService.scroll(all, BookSort.TITLE, cursor, SIZE, false));
+
+        System.out.printf("page %d of %d rows: offset p50=%.2f ms keyset p50=%.2f ms%n",
+                PAGE + 1, rows, offsetP50 / 1_000_000.0, keysetP50 / 1_000_000.0);
+    }
+
+    @Test
+    void categoryCursorWalksEveryRowOnce() {
+        jdbc.update("delete from books");
+        jdbc.update("delete from categories");
+        for (int i = 0; i < 23; i++) {
+            jdbc.update("insert into categories (name) values (?)", "Category " + (char) ('A' + i));
+        }
+
+        List<String> names = new ArrayList<>();
+        String cursor = "";
+        do {
+            CursorPage<CategoryResponse> page = categoryService.scroll(cursor, 5, false);
+            page.getContent().forEach(c -> names.add(c.getName()));
+            assertNull(page.getTotalElements());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(23, names.size());
+        assertEquals("Category A", names.get(0));
+        assertEquals("Category W", names.get(22));
+    }
+
+    private static List<Long> ids(List<BookResponse> books) {
+        return books.stream().map(BookResponse::getId).toList();
+    }
+
+    private static long median(int rounds, Supplier<?> call) {
+        for (int i = 0; i < 3; i++) {
+            call.get();
+        }
+        long[] samples = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long begin = System.nanoTime();
+            call.get();
+            samples[i] = System.nanoTime() - begin;
+        }
+        Arrays.sort(samples);
+        return samples[rounds / 2];
+    }
+}
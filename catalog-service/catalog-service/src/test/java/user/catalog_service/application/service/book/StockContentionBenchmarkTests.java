@@ -0,0 +1,113 @@
+package user.catalog_service.application.service.book;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.catalog_service.domain.model.Book;
+import user.catalog_service.infrastructure.cache.BookCache;
+import user.catalog_service.infrastructure.cache.CategoryCache;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.repository.BookRepository;
+import user.catalog_service.infrastructure.search.FacetIndex;
+import user.catalog_service.infrastructure.search.SearchIndex;
+import user.catalog_service.infrastructure.search.SuggestIndex;
+import user.catalog_service.infrastructure.stock.StockLedger;
+import user.catalog_service.infrastructure.storage.BlobStore;
+import user.catalog_service.infrastructure.storage.ThumbnailPipeline;
+
+// sizes can be raised with -Dbench.threads, -Dbench.attempts and -Dbench.stock
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stockbench;MODE=PostgreSQL;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "catalog.images.dir=${java.io.tmpdir}/catalog-test-images",
+        "spring.datasource.hikari.maximum-pool-size=32"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ BookServiceImpl.class, StockLedger.class, BlobStore.class, ThumbnailPipeline.class, SearchIndex.class,
+        SuggestIndex.class, FacetIndex.class, BookCache.class, CategoryCache.class, ChangeFeed.class,
+        SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockContentionBenchmarkTests {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepo;
+
+    @Test
+    void concurrentDecrementsNeverOversell() throws Exception {
+        int threads = Integer.getInteger("bench.threads", 16);
+        int attemptsPerThread = Integer.getInteger("bench.attempts", 100);
+        int initialStock = Integer.getInteger("bench.stock", 1000);
+
+        Book book = new Book();
+        book.setTitle("Hot Title");
+        book.setAuthor("Bench");
+        book.setPrice(BigDecimal.TEN);
+        book.setStock(initialStock);
+        book.setYear(2024);
+        Long id = bookRepo.save(book).getId();
+
+        AtomicInteger granted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        long[] latencies = new long[threads * attemptsPerThread];
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            int offset = t * attemptsPerThread;
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    long begin = System.nanoTime();
+                    try {
+                        bookService.decrementStock(id, 1);
+                        granted.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        rejected.incrementAndGet();
+                    }
+                    latencies[offset + i] = System.nanoTime() - begin;
+                }
+                return null;
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - begin;
+
+        int finalStock = bookRepo.findById(id).orElseThrow().getStock();
+        int oversell = Math.max(0, granted.get() - initialStock) + Math.max(0, -finalStock);
+
+        Arrays.sort(latencies);
+        long p99 = latencies[(int) Math.ceil(latencies.length * 0.99) - 1];
+        double throughput = latencies.length / (elapsed / 1_000_000_000.0);
+
+        System.out.printf("stock contention: threads=%d calls=%d granted=%d rejected=%d "
+                + "throughput=%.0f ops/s p99=%.2f ms oversell=%d%n",
+                threads, latencies.length, granted.get(), rejected.get(),
+                throughput, p99 / 1_000_000.0, oversell);
+
+        assertEquals(0, oversell);
+        assertEquals(initialStock - granted.get(), finalStock);
+    }
+}
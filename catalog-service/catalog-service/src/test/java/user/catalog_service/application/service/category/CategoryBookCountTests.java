@@ -0,0 +1,100 @@
+package user.catalog_service.application.service.category;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.catalog_service.application.dto.BookDto;
+import user.catalog_service.application.dto.BookUpdateDto;
+import user.catalog_service.application.dto.CategoryDto;
+import user.catalog_service.application.service.book.BookService;
+import user.catalog_service.application.service.book.BookServiceImpl;
+import user.catalog_service.infrastructure.cache.BookCache;
+import user.catalog_service.infrastructure.cache.CategoryCache;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.exception.BadRequestException;
+import user.catalog_service.infrastructure.exception.ResourceNotFoundException;
+import user.catalog_service.infrastructure.search.FacetIndex;
+import user.catalog_service.infrastructure.search.SearchIndex;
+import user.catalog_service.infrastructure.search.SuggestIndex;
+import user.catalog_service.infrastructure.stock.StockLedger;
+import user.catalog_service.infrastructure.storage.BlobStore;
+import user.catalog_service.infrastructure.storage.ThumbnailPipeline;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:categorycount;MODE=PostgreSQL;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "catalog.images.dir=${java.io.tmpdir}/catalog-test-images"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ BookServiceImpl.class, CategoryServiceImpl.class, StockLedger.class, BlobStore.class, ThumbnailPipeline.class,
+        SearchIndex.class, SuggestIndex.class, FacetIndex.class, BookCache.class, CategoryCache.class, ChangeFeed.class,
+        SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CategoryBookCountTests {
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void bookWritesKeepCountsAndGuardDeletes() {
+        Long novels = categoryService.create(new CategoryDto(null, "Novels")).getId();
+        Long poetry = categoryService.create(new CategoryDto(null, "Poetry")).getId();
+
+        Long first = createBook("Cantik Itu Luka", novels);
+        createBook("Lelaki Harimau", novels);
+        assertEquals(2, categoryService.getById(novels).getBookCount());
+
+        BookUpdateDto move = new BookUpdateDto();
+        move.setCategory_id(poetry);
+        bookService.update(first, move);
+        assertEquals(1, categoryService.getById(novels).getBookCount());
+        assertEquals(1, categoryService.getById(poetry).getBookCount());
+        assertEquals(1L, jdbc.queryForObject("select book_count from categories where id = ?", Long.class, poetry));
+
+        assertThrows(BadRequestException.class, () -> categoryService.delete(poetry));
+        bookService.delete(first);
+        assertEquals(0, categoryService.getById(poetry).getBookCount());
+        categoryService.delete(poetry);
+        assertThrows(ResourceNotFoundException.class, () -> categoryService.getById(poetry));
+    }
+
+    @Test
+    void writesToADeletedCategoryAreRejected() {
+        Long gone = categoryService.create(new CategoryDto(null, "Gone")).getId();
+        categoryService.getById(gone);
+        // removed behind the cache's back, so only the guarded count update notices
+        jdbc.update("delete from categories where id = ?", gone);
+
+        assertThrows(ResourceNotFoundException.class, () -> createBook("Orphan", gone));
+        assertEquals(0, jdbc.queryForObject("select count(*) from books where title = 'Orphan'", Integer.class));
+    }
+
+    private Long createBook(String title, Long categoryId) {
+        return bookService.create(BookDto.builder()
+                .title(title)
+                .author("Eka Kurniawan")
+                .price(BigDecimal.TEN)
+                .stock(1)
+                .year(2002)
+                .category_id(categoryId)
+                .build()).getId();
+    }
+}
@@ -0,0 +1,226 @@
+package user.catalog_service.application.service.change;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.catalog_service.application.dto.BookDto;
+import user.catalog_service.application.dto.BookUpdateDto;
+import user.catalog_service.application.dto.CategoryDto;
+import user.catalog_service.application.dto.ChangeEvent;
+import user.catalog_service.application.dto.ChangePage;
+import user.catalog_service.application.service.book.BookService;
+import user.catalog_service.application.service.book.BookServiceImpl;
+import user.catalog_service.application.service.category.CategoryService;
+import user.catalog_service.application.service.category.CategoryServiceImpl;
+import user.catalog_service.infrastructure.cache.BookCache;
+import user.catalog_service.infrastructure.cache.CategoryCache;
+import user.catalog_service.infrastructure.changes.ChangeEntity;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.changes.ChangeOp;
+import user.catalog_service.infrastructure.changes.ChangeRow;
+import user.catalog_service.infrastructure.search.FacetIndex;
+import user.catalog_service.infrastructure.search.SearchIndex;
+import user.catalog_service.infrastructure.search.SuggestIndex;
+import user.catalog_service.infrastructure.stock.StockLedger;
+import user.catalog_service.infrastructure.storage.BlobStore;
+import user.catalog_service.infrastructure.storage.ThumbnailPipeline;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:changefeed;MODE=PostgreSQL;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "catalog.images.dir=${java.io.tmpdir}/catalog-test-images"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ ChangeServiceImpl.class, BookServiceImpl.class, CategoryServiceImpl.class, StockLedger.class, BlobStore.class,
+        ThumbnailPipeline.class, SearchIndex.class, SuggestIndex.class, FacetIndex.class, BookCache.class,
+        CategoryCache.class, ChangeFeed.class, SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ChangeServiceTests {
+
+    @Autowired
+    private ChangeService changeService;
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void everyWriteIsNumberedAndPagesCarryTheLatestState() {
+        long since = drain();
+        Long category = categoryService.create(new CategoryDto(null, "Sastra")).getId();
+        Long book = createBook("Bumi Manusia", category, 5);
+        bookService.decrementStock(book, 1);
+        bookService.decrementStock(book, 1);
+        changeFeed.sequence();
+
+        // the create announces the book and its category's new count together
+        List<ChangeRow> rows = changeFeed.read(since, 100);
+        assertEquals(List.of(
+                new ChangeRow(since + 1, ChangeEntity.CATEGORY, category, ChangeOp.UPSERT),
+                new ChangeRow(since + 2, ChangeEntity.CATEGORY, category, ChangeOp.UPSERT),
+                new ChangeRow(since + 3, ChangeEntity.BOOK, book, ChangeOp.UPSERT),
+                new ChangeRow(since + 4, ChangeEntity.BOOK, book, ChangeOp.STOCK),
+                new ChangeRow(since + 5, ChangeEntity.BOOK, book, ChangeOp.STOCK)), rows);
+
+        ChangePage page = changeService.changes(since, 100);
+        assertEquals(since + 5, page.getNext());
+        assertEquals(since + 5, page.getHead());
+        assertFalse(page.isResync());
+        assertEquals(2, page.getChanges().size());
+        ChangeEvent categoryEvent = page.getChanges().get(0);
+        assertEquals("category", categoryEvent.getEntity());
+        assertEquals("upsert", categoryEvent.getOp());
+        ChangeEvent stockEvent = page.getChanges().get(1);
+        assertEquals(since + 5, stockEvent.getSeq());
+        assertEquals("stock", stockEvent.getOp());
+        assertEquals(Map.of("stock", 3), stockEvent.getData());
+
+        // a short page ends where the limit falls and the next one picks up from there
+        assertEquals(since + 2, changeService.changes(since, 2).getNext());
+        assertEquals(List.of(since + 5), changeService.changes(since + 2, 100).getChanges().stream()
+                .map(ChangeEvent::getSeq).toList());
+
+        bookService.delete(book);
+        changeFeed.sequence();
+        ChangePage deleted = changeService.changes(since + 5, 100);
+        ChangeEvent bookEvent = deleted.getChanges().stream().filter(e -> e.getEntity().equals("book")).findFirst()
+                .orElseThrow();
+        assertEquals("delete", bookEvent.getOp());
+        assertNull(bookEvent.getData());
+    }
+
+    @Test
+    void aTransactionWritesOneRowPerEntityAndARollbackWritesNone() {
+        Long category = categoryService.create(new CategoryDto(null, "Puisi")).getId();
+        Long book = createBook("Aku", category, 10);
+        long since = drain();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            bookService.decrementStock(book, 1);
+            bookService.incrementStock(book, 3);
+            BookUpdateDto rename = new BookUpdateDto();
+            rename.setTitle("Aku Ini Binatang Jalang");
+            bookService.update(book, rename);
+        });
+        changeFeed.sequence();
+        assertEquals(List.of(new ChangeRow(since + 1, ChangeEntity.BOOK, book, ChangeOp.UPSERT)),
+                changeFeed.read(since, 100));
+
+        assertThrows(RuntimeException.class, () -> bookService.decrementStock(book, 1_000));
+        changeFeed.sequence();
+        assertEquals(since + 1, changeFeed.head());
+    }
+
+    @Test
+    void rowsAreNumberedInCommitOrder() throws Exception {
+        Long category = categoryService.create(new CategoryDto(null, "Esai")).getId();
+        Long slow = createBook("Catatan Pinggir", category, 1);
+        Long fast = createBook("Caping", category, 1);
+        long since = drain();
+
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Thread writer = new Thread(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            changeFeed.record(ChangeEntity.BOOK, slow, ChangeOp.UPSERT);
+            // runs after the feed's row went in, holding the transaction open
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    written.countDown();
+                    try {
+                        commit.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }));
+        writer.start();
+        assertTrue(written.await(10, TimeUnit.SECONDS));
+
+        changeFeed.record(ChangeEntity.BOOK, fast, ChangeOp.UPSERT);
+        changeFeed.sequence();
+        commit.countDown();
+        writer.join(10_000);
+        changeFeed.sequence();
+
+        // the slow row was inserted first but committed last, so a reader that saw since + 1 still gets it
+        assertEquals(List.of(
+                new ChangeRow(since + 1, ChangeEntity.BOOK, fast, ChangeOp.UPSERT),
+                new ChangeRow(since + 2, ChangeEntity.BOOK, slow, ChangeOp.UPSERT)), changeFeed.read(since, 100));
+    }
+
+    @Test
+    void aLongPollAnswersOnceAChangeIsNumbered() throws Exception {
+        Long category = categoryService.create(new CategoryDto(null, "Sejarah")).getId();
+        Long book = createBook("Nusantara", category, 4);
+        long since = drain();
+
+        CompletableFuture<ChangePage> polled = changeService.poll(since, 100, 10);
+        assertFalse(polled.isDone());
+        bookService.incrementStock(book, 1);
+        // written, but not numbered yet
+        assertFalse(polled.isDone());
+
+        long begin = System.nanoTime();
+        changeFeed.sequence();
+        ChangePage page = polled.get(5, TimeUnit.SECONDS);
+        System.out.printf("long poll answered %.2f ms after the change was numbered%n",
+                (System.nanoTime() - begin) / 1e6);
+        assertEquals(1, page.getChanges().size());
+        assertEquals(Map.of("stock", 5), page.getChanges().get(0).getData());
+
+        // nothing new: the poll runs out and answers with an empty page
+        ChangePage empty = changeService.poll(page.getNext(), 100, 1).get(5, TimeUnit.SECONDS);
+        assertTrue(empty.getChanges().isEmpty());
+        assertEquals(page.getNext(), empty.getNext());
+    }
+
+    private Long createBook(String title, Long categoryId, int stock) {
+        return bookService.create(BookDto.builder()
+                .title(title)
+                .author("Author")
+                .price(new BigDecimal("50000"))
+                .stock(stock)
+                .year(2000)
+                .category_id(categoryId)
+                .build()).getId();
+    }
+
+    // numbers whatever earlier tests left behind and returns the seq to read after
+    private long drain() {
+        changeFeed.sequence();
+        return changeFeed.head();
+    }
+}
@@ -0,0 +1,227 @@
+package user.catalog_service.infrastructure.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import javax.sql.DataSource;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import user.catalog_service.application.dto.BookFilter;
+import user.catalog_service.application.dto.BookListItem;
+import user.catalog_service.infrastructure.utils.Cursor;
+
+// no filter and sort combination may scan the books table end to end. The text query is left out:
+// a LIKE on '%q%' can use no index and only serves while the search index loads
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bookplans;MODE=PostgreSQL;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "user.catalog_service.infrastructure.repository.BookQueryPlanTests$LastStatement"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookQueryPlanTests {
+
+    private static final int BOOKS = 20_000;
+    private static final int CATEGORIES = 20;
+    private static final int PAGE = 20;
+
+    @Autowired
+    private BookRepository bookRepo;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void everyFilterAndSortCombinationUsesAnIndex() throws SQLException {
+        List<Row> rows = seed();
+        List<String> scans = new ArrayList<>();
+        int combinations = 0;
+
+        for (int mask = 0; mask < 16; mask++) {
+            BookFilter filter = filter(mask);
+            for (BookSort sort : BookSort.values()) {
+                List<BookListItem> page = bookRepo.filterListItems(filter, PageRequest.of(1, PAGE, sort.sort()))
+                        .getContent();
+                String plan = explain(LastStatement.sql);
+                if (plan.contains("tableScan")) {
+                    scans.add(describe(filter, sort) + ": " + plan);
+                }
+                assertEquals(expected(rows, filter, sort, PAGE, PAGE), ids(page), describe(filter, sort));
+                combinations++;
+            }
+        }
+
+        System.out.printf("query plans: %d combinations over %d books, %d table scans%n", combinations, BOOKS,
+                scans.size());
+        assertTrue(scans.isEmpty(), String.join("\n", scans));
+    }
+
+    @Test
+    void keysetPagesWalkEveryFilteredRowOnce() throws SQLException {
+        List<Row> rows = seed();
+        BookFilter filter = filter(0b1011);
+
+        for (BookSort sort : List.of(BookSort.TITLE, BookSort.NEWEST)) {
+            List<Long> walked = new ArrayList<>();
+            Cursor after = null;
+            while (true) {
+                List<BookListItem> page = bookRepo.findListItemsAfter(filter, sort, after, PAGE);
+                assertFalse(explain(LastStatement.sql).contains("tableScan"), describe(filter, sort));
+                walked.addAll(ids(page));
+                if (page.size() < PAGE) {
+                    break;
+                }
+                BookListItem last = page.get(PAGE - 1);
+                after = new Cursor(sort == BookSort.NEWEST ? "" : last.getTitle(), last.getId());
+            }
+            assertEquals(expected(rows, filter, sort, 0, Integer.MAX_VALUE), walked, describe(filter, sort));
+        }
+    }
+
+    @Test
+    void textQueryMatchesWildcardsLiterally() {
+        jdbc.update("delete from books");
+        List<String> titles = List.of("50% Off", "50 Off", "snake_case", "snakeXcase", "back\\slash");
+        for (int i = 0; i < titles.size(); i++) {
+            jdbc.update("insert into books (id, title, author, price, stock, \"year\", hot) "
+                    + "values (?, ?, ?, ?, 1, 2000, false)", i + 1L, titles.get(i), "Author", BigDecimal.TEN);
+        }
+
+        assertEquals(List.of("50% Off"), titles("50%"));
+        assertEquals(List.of("snake_case"), titles("e_c"));
+        assertEquals(List.of("back\\slash"), titles("\\"));
+    }
+
+    private List<String> titles(String q) {
+        return bookRepo.filterListItems(BookFilter.builder().q(q).build(), PageRequest.of(0, 10)).stream()
+                .map(BookListItem::getTitle)
+                .toList();
+    }
+
+    // bit 0 category, bit 1 price range, bit 2 year range, bit 3 in stock
+    private static BookFilter filter(int mask) {
+        return BookFilter.builder()
+                .categoryId((mask & 1) != 0 ? 7L : null)
+                .minPrice((mask & 2) != 0 ? new BigDecimal("100000") : null)
+                .maxPrice((mask & 2) != 0 ? new BigDecimal("150000") : null)
+                .minYear((mask & 4) != 0 ? 2001 : null)
+                .maxYear((mask & 4) != 0 ? 2003 : null)
+                .inStock((mask & 8) != 0)
+                .build();
+    }
+
+    private List<Row> seed() {
+        jdbc.update("delete from books");
+        jdbc.update("delete from categories");
+        for (long c = 1; c <= CATEGORIES; c++) {
+            jdbc.update("insert into categories (id, name, book_count) values (?, ?, 0)", c, "Category " + c);
+        }
+        Random random = new Random(7);
+        List<Row> rows = new ArrayList<>(BOOKS);
+        List<Object[]> batch = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            Row row = new Row(i + 1L, "Title " + random.nextInt(BOOKS / 4),
+                    BigDecimal.valueOf(10_000 + random.nextInt(500) * 1_000), random.nextInt(4),
+                    1980 + random.nextInt(45), 1L + random.nextInt(CATEGORIES));
+            rows.add(row);
+            batch.add(new Object[] { row.id, row.title, "Author " + (i % 300), row.price, row.stock, row.year,
+                    row.categoryId });
+        }
+        jdbc.batchUpdate("insert into books (id, title, author, price, stock, \"year\", category_id, hot) "
+                + "values (?, ?, ?, ?, ?, ?, ?, false)", batch);
+        // gives the planner real selectivities instead of its defaults
+        jdbc.execute("analyze");
+        return rows;
+    }
+
+    private static List<Long> expected(List<Row> rows, BookFilter filter, BookSort sort, int offset, int limit) {
+        Predicate<Row> keep = r -> (filter.getCategoryId() == null || r.categoryId == filter.getCategoryId())
+                && (filter.getMinPrice() == null || r.price.compareTo(filter.getMinPrice()) >= 0)
+                && (filter.getMaxPrice() == null || r.price.compareTo(filter.getMaxPrice()) <= 0)
+                && (filter.getMinYear() == null || r.year >= filter.getMinYear())
+                && (filter.getMaxYear() == null || r.year <= filter.getMaxYear())
+                && (!filter.isInStock() || r.stock > 0);
+        Comparator<Row> byId = Comparator.comparingLong(r -> r.id);
+        Comparator<Row> order = switch (sort) {
+            case TITLE -> Comparator.comparing((Row r) -> r.title).thenComparing(byId);
+            case PRICE -> Comparator.comparing((Row r) -> r.price).thenComparing(byId);
+            case PRICE_DESC -> Comparator.comparing((Row r) -> r.price).thenComparing(byId).reversed();
+            case YEAR -> Comparator.comparingInt((Row r) -> r.year).thenComparing(byId);
+            case YEAR_DESC -> Comparator.comparingInt((Row r) -> r.year).thenComparing(byId).reversed();
+            case NEWEST -> byId.reversed();
+        };
+        return rows.stream().filter(keep).sorted(order).skip(offset).limit(limit).map(r -> r.id).toList();
+    }
+
+    private String explain(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement explain = connection.prepareStatement("explain " + sql)) {
+            // H2 plans without looking at the values, so any value of the right type will do
+            ParameterMetaData meta = explain.getParameterMetaData();
+            for (int i = 1; i <= meta.getParameterCount(); i++) {
+                switch (meta.getParameterType(i)) {
+                    case Types.VARCHAR, Types.CHAR -> explain.setString(i, "Title");
+                    case Types.NUMERIC, Types.DECIMAL -> explain.setBigDecimal(i, BigDecimal.ONE);
+                    default -> explain.setLong(i, 1);
+                }
+            }
+            try (ResultSet rs = explain.executeQuery()) {
+                rs.next();
+                return rs.getString(1).replaceAll("\\s+", " ");
+            }
+        }
+    }
+
+    private static List<Long> ids(List<BookListItem> items) {
+        return items.stream().map(BookListItem::getId).toList();
+    }
+
+    private static String describe(BookFilter filter, BookSort sort) {
+        return "category=" + filter.getCategoryId() + " price=" + filter.getMinPrice() + ".." + filter.getMaxPrice()
+                + " year=" + filter.getMinYear() + ".." + filter.getMaxYear() + " inStock=" + filter.isInStock()
+                + " sort=" + sort.param();
+    }
+
+    private record Row(long id, String title, BigDecimal price, int stock, int year, long categoryId) {
+    }
+
+    public static class LastStatement implements StatementInspector {
+
+        static volatile String sql;
+
+        @Override
+        public String inspect(String statement) {
+            if (statement.startsWith("select") && !statement.startsWith("select count")) {
+                sql = statement;
+            }
+            return statement;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package user.catalog_service.infrastructure.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FacetColumnsTests {
+
+    private static final FacetFilter NONE = new FacetFilter(null, null, null, null, null, false);
+
+    private FacetColumns columns;
+
+    @BeforeEach
+    void seed() {
+        // bands: under 50k, 50k up to 100k, 100k or more
+        columns = new FacetColumns(new long[] { 5_000_000, 10_000_000 });
+        columns.put(1, 10L, 2020, new BigDecimal("45000"), 3);
+        columns.put(2, 10L, 2021, new BigDecimal("75000"), 0);
+        columns.put(3, 20L, 2021, new BigDecimal("120000"), 5);
+        columns.put(4, 20L, 2019, new BigDecimal("50000"), 1);
+        columns.put(5, null, null, null, 2);
+    }
+
+    @Test
+    void unfilteredCountsEveryLiveBook() {
+        FacetCounts counts = columns.count(NONE, null);
+
+        assertEquals(5, counts.total());
+        assertEquals(Map.of(10L, 2L, 20L, 2L), counts.categories());
+        assertEquals(Map.of(2019, 1L, 2020, 1L, 2021, 2L), counts.years());
+        assertArrayEquals(new long[] { 1, 2, 1 }, counts.priceBands());
+        assertEquals(4, counts.inStock());
+        assertEquals(1, counts.outOfStock());
+    }
+
+    @Test
+    void eachFacetIgnoresItsOwnFilter() {
+        FacetCounts counts = columns.count(new FacetFilter(10L, null, null, null, null, true), null);
+
+        assertEquals(1, counts.total());
+        // in stock in any category: book 1 in 10, books 3 and 4 in 20
+        assertEquals(Map.of(10L, 1L, 20L, 2L), counts.categories());
+        assertEquals(Map.of(2020, 1L), counts.years());
+        // category 10 regardless of stock
+        assertEquals(1, counts.inStock());
+        assertEquals(1, counts.outOfStock());
+    }
+
+    @Test
+    void priceBoundsAreInclusive() {
+        FacetCounts counts = columns.count(new FacetFilter(null, null, null, new BigDecimal("50000"),
+                new BigDecimal("75000"), false), null);
+
+        assertEquals(2, counts.total());
+        assertArrayEquals(new long[] { 1, 2, 1 }, counts.priceBands());
+    }
+
+    @Test
+    void yearRangeCountsEveryYearOutsideItInItsOwnFacet() {
+        FacetCounts counts = columns.count(new FacetFilter(null, 2020, 2021, null, null, false), null);
+
+        assertEquals(3, counts.total());
+        assertEquals(Map.of(2019, 1L, 2020, 1L, 2021, 2L), counts.years());
+        assertEquals(Map.of(10L, 2L, 20L, 1L), counts.categories());
+    }
+
+    @Test
+    void matcherChecksYearPriceAndStock() {
+        LongPredicate matcher = columns.matcher(new FacetFilter(null, 2020, null, null, new BigDecimal("100000"),
+                true));
+
+        assertTrue(matcher.test(1));
+        // out of stock, too expensive, too old, no year at all, unknown
+        assertFalse(matcher.test(2));
+        assertFalse(matcher.test(3));
+        assertFalse(matcher.test(4));
+        assertFalse(matcher.test(5));
+        assertFalse(matcher.test(99));
+        assertTrue(columns.matcher(NONE).test(5));
+    }
+
+    @Test
+    void writesUpdateInPlace() {
+        columns.put(1, 20L, 2020, new BigDecimal("45000"), 3);
+        columns.setStock(2, 4);
+        columns.remove(3);
+
+        FacetCounts counts = columns.count(new FacetFilter(20L, null, null, null, null, true), null);
+        assertEquals(2, counts.total());
+        assertEquals(Map.of(10L, 1L, 20L, 2L), counts.categories());
+        assertEquals(1, columns.tombstones());
+    }
+
+    @Test
+    void restrictsToGivenBooks() {
+        BitSet only = new BitSet();
+        only.set(columns.docOf(2));
+        only.set(columns.docOf(3));
+
+        FacetCounts counts = columns.count(new FacetFilter(99L, null, null, null, null, false), only);
+
+        assertEquals(0, counts.total());
+        assertEquals(Map.of(10L, 1L, 20L, 1L), counts.categories());
+        assertEquals(Map.of(), counts.years());
+    }
+}
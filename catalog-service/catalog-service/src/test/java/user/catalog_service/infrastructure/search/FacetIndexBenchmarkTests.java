@@ -0,0 +1,200 @@
+package user.catalog_service.infrastructure.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.catalog_service.application.dto.BookDto;
+import user.catalog_service.application.dto.BookFacets;
+import user.catalog_service.application.dto.BookFilter;
+import user.catalog_service.application.dto.BookResponse;
+import user.catalog_service.application.dto.FacetBucket;
+import user.catalog_service.application.dto.StockItemDto;
+import user.catalog_service.application.service.book.BookService;
+import user.catalog_service.application.service.book.BookServiceImpl;
+import user.catalog_service.infrastructure.cache.BookCache;
+import user.catalog_service.infrastructure.cache.CategoryCache;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.stock.StockLedger;
+import user.catalog_service.infrastructure.storage.BlobStore;
+import user.catalog_service.infrastructure.storage.ThumbnailPipeline;
+
+// defaults to 200k books; -Dbench.facets.books=1000000 for the full-size catalog
+@DataJpaTest(properties = {
+        // H2 would otherwise hand repeated GROUP BYs over an unchanged table their cached result
+        "spring.datasource.url=jdbc:h2:mem:facetbench;MODE=PostgreSQL;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1;"
+                + "OPTIMIZE_REUSE_RESULTS=FALSE",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "catalog.images.dir=${java.io.tmpdir}/catalog-test-images"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ BookServiceImpl.class, StockLedger.class, BlobStore.class, ThumbnailPipeline.class, SearchIndex.class,
+        SuggestIndex.class, FacetIndex.class, BookCache.class, CategoryCache.class, ChangeFeed.class,
+        SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FacetIndexBenchmarkTests {
+
+    private static final int CATEGORIES = 20;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private FacetIndex facetIndex;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void indexVersusGroupBy() {
+        int books = Integer.getInteger("bench.facets.books", 200_000);
+        int rounds = Integer.getInteger("bench.rounds", 20);
+        seed(books);
+
+        long buildStart = System.nanoTime();
+        facetIndex.rebuild();
+        long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+
+        BookFilter query = BookFilter.builder().categoryId(3L).inStock(true).build();
+        BookFacets facets = bookService.facets(query);
+        assertEquals(jdbc.queryForObject("select count(*) from books where category_id = 3 and stock > 0",
+                Long.class), facets.getTotal());
+        assertEquals(groupBy("select category_id, count(*) from books where stock > 0 group by category_id"),
+                counts(facets.getCategories()));
+        assertEquals(groupBy("select \"year\", count(*) from books where category_id = 3 and stock > 0 "
+                + "group by \"year\""),
+                counts(facets.getYears()));
+
+        long sqlP50 = median(rounds, () -> groupByFacets(3L));
+        long indexP50 = median(rounds, () -> bookService.facets(query));
+        long unfilteredP50 = median(rounds, () -> bookService.facets(BookFilter.builder().build()));
+
+        System.out.printf("facets over %d books: build=%d ms, %.1f MB; group by p50=%.2f ms, index p50=%.2f ms, "
+                + "unfiltered p50=%.2f ms%n", books, buildMs, facetIndex.bytes() / 1048576.0, sqlP50 / 1_000_000.0,
+                indexP50 / 1_000_000.0, unfilteredP50 / 1_000_000.0);
+    }
+
+    @Test
+    void writesReachTheCountsAfterCommit() {
+        seed(0);
+        facetIndex.rebuild();
+        searchIndex.rebuild();
+
+        BookResponse created = bookService.create(BookDto.builder()
+                .title("Laut Bercerita")
+                .author("Leila Chudori")
+                .price(new BigDecimal("95000"))
+                .stock(2)
+                .year(2017)
+                .category_id(1L)
+                .build());
+
+        BookFilter inStock = BookFilter.builder().q("laut").inStock(true).build();
+        BookFacets facets = bookService.facets(inStock);
+        assertNotNull(facets);
+        assertEquals(1, facets.getTotal());
+        assertEquals("Category 1", facets.getCategories().get(0).getLabel());
+        assertEquals(List.of(0L, 1L, 0L, 0L, 0L), facets.getPrices().stream().map(FacetBucket::getCount).toList());
+
+        assertEquals(1, bookService.list(inStock, PageRequest.of(0, 10)).getTotalElements());
+
+        bookService.reserveStock(List.of(new StockItemDto(created.getId(), 2)), null);
+        assertEquals(0, bookService.facets(inStock).getTotal());
+        // the search keeps its rank order and checks the other filters against the same columns
+        assertEquals(0, bookService.list(inStock, PageRequest.of(0, 10)).getTotalElements());
+        BookFilter narrowed = BookFilter.builder().q("laut").minYear(2017).maxPrice(new BigDecimal("95000")).build();
+        assertEquals(1, bookService.list(narrowed, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(1, bookService.facets(inStock).getStock().get(1).getCount());
+
+        bookService.delete(created.getId());
+        assertEquals(0, bookService.facets(BookFilter.builder().build()).getTotal());
+    }
+
+    private void seed(int books) {
+        jdbc.update("delete from books");
+        jdbc.update("delete from categories");
+        for (long c = 1; c <= CATEGORIES; c++) {
+            jdbc.update("insert into categories (id, name, book_count) values (?, ?, 0)", c, "Category " + c);
+        }
+        Random random = new Random(42);
+        List<Object[]> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < books; i++) {
+            batch.add(new Object[] { i + 1L, "Title " + i, "Author " + (i % 500),
+                    BigDecimal.valueOf(10_000 + random.nextInt(600) * 1_000), random.nextInt(6),
+                    1990 + random.nextInt(35), 1 + random.nextInt(CATEGORIES) });
+            if (batch.size() == 10_000 || i == books - 1) {
+                jdbc.batchUpdate("insert into books (id, title, author, price, stock, \"year\", category_id, hot) "
+                        + "values (?, ?, ?, ?, ?, ?, ?, false)", batch);
+                batch.clear();
+            }
+        }
+        jdbc.update("update categories set book_count = "
+                + "(select count(*) from books where books.category_id = categories.id)");
+    }
+
+    // what each request would run without the index: one grouped query per facet, each leaving out its own filter
+    private Object groupByFacets(Long categoryId) {
+        List<Object> results = new ArrayList<>();
+        results.add(jdbc.queryForList("select count(*) from books where category_id = ? and stock > 0", categoryId));
+        results.add(jdbc.queryForList("select category_id, count(*) from books where stock > 0 group by category_id"));
+        results.add(jdbc.queryForList(
+                "select \"year\", count(*) from books where category_id = ? and stock > 0 group by \"year\"",
+                categoryId));
+        results.add(jdbc.queryForList("select case when price < 50000 then 0 when price < 100000 then 1 "
+                + "when price < 200000 then 2 when price < 500000 then 3 else 4 end, count(*) from books "
+                + "where category_id = ? and stock > 0 group by 1", categoryId));
+        results.add(jdbc.queryForList(
+                "select stock > 0, count(*) from books where category_id = ? group by stock > 0", categoryId));
+        return results;
+    }
+
+    private Map<String, Long> groupBy(String sql) {
+        Map<String, Long> out = new HashMap<>();
+        jdbc.query(sql, rs -> {
+            out.put(rs.getString(1), rs.getLong(2));
+        });
+        return out;
+    }
+
+    private static Map<String, Long> counts(List<FacetBucket> buckets) {
+        Map<String, Long> out = new HashMap<>();
+        buckets.forEach(b -> out.put(b.getValue(), b.getCount()));
+        return out;
+    }
+
+    private static long median(int rounds, Supplier<?> call) {
+        for (int i = 0; i < 3; i++) {
+            call.get();
+        }
+        long[] samples = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long begin = System.nanoTime();
+            call.get();
+            samples[i] = System.nanoTime() - begin;
+        }
+        Arrays.sort(samples);
+        return samples[rounds / 2];
+    }
+}
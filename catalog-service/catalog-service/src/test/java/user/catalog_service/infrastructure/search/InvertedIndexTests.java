@@ -0,0 +1,68 @@
+package user.catalog_service.infrastructure.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InvertedIndexTests {
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    void seed() {
+        index = new InvertedIndex();
+        index.put(1, "Harry Potter and the Philosopher's Stone", "J. K. Rowling", 10L);
+        index.put(2, "The Casual Vacancy", "J. K. Rowling", 20L);
+        index.put(3, "Potted History of Gardening", "Anne Potter", 20L);
+        index.put(4, "Laskar Pelangi", "Andrea Hirata", null);
+    }
+
+    @Test
+    void titleMatchesOutrankAuthorMatches() {
+        assertEquals(List.of(1L, 3L), search("potter", null));
+    }
+
+    @Test
+    void toleratesTyposAndPrefixes() {
+        assertEquals(List.of(1L), search("harri potter", null));
+        assertEquals(List.of(4L), search("pelangi hirat", null));
+        assertEquals(List.of(4L), search("Laskar Pélangi", null));
+    }
+
+    @Test
+    void everyTermHasToMatch() {
+        assertEquals(List.of(2L), search("rowling casual", null));
+        assertEquals(List.of(), search("rowling gardening", null));
+    }
+
+    @Test
+    void combinesQueryWithCategory() {
+        assertEquals(List.of(2L), search("rowling", 20L));
+        assertEquals(List.of(3L), search("potter", 20L));
+    }
+
+    @Test
+    void updatesReplaceAndRemovalsHideBooks() {
+        index.put(2, "The Ickabog", "J. K. Rowling", 20L);
+        assertEquals(List.of(), search("casual", null));
+        assertEquals(List.of(2L), search("ickabog", null));
+
+        index.remove(1);
+        assertEquals(List.of(3L), search("potter", null));
+        assertEquals(2, index.tombstones());
+    }
+
+    @Test
+    void pagesThroughRankedHits() {
+        SearchHits hits = index.search("rowling", null, 1, 1, 0.45f, 20);
+        assertEquals(2, hits.total());
+        assertEquals(1, hits.ids().size());
+    }
+
+    private List<Long> search(String q, Long categoryId) {
+        return index.search(q, categoryId, 0, 10, 0.45f, 20).ids();
+    }
+}
@@ -0,0 +1,63 @@
+package user.catalog_service.infrastructure.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import user.catalog_service.application.dto.BookSuggestion;
+
+class PrefixIndexTests {
+
+    private PrefixIndex index;
+
+    @BeforeEach
+    void seed() {
+        index = new PrefixIndex.Builder()
+                .add(1, "Harry Potter and the Philosopher's Stone", "J. K. Rowling", 40)
+                .add(2, "Harry Potter and the Chamber of Secrets", "J. K. Rowling", 90)
+                .add(3, "Harimau! Harimau!", "Mochtar Lubis", 10)
+                .add(4, "Hujan", "Tere Liye", 70)
+                .add(5, "Hujan", "Tere Liye", 5)
+                .build();
+    }
+
+    @Test
+    void heaviestMatchesComeFirst() {
+        assertEquals(List.of("Harry Potter and the Chamber of Secrets", "Harry Potter and the Philosopher's Stone",
+                "Harimau! Harimau!"), texts(index.suggest("har", 10)));
+        assertEquals(List.of("Harry Potter and the Chamber of Secrets"), texts(index.suggest("HARRY  potter", 1)));
+        assertEquals(List.of(), index.suggest("zz", 10));
+    }
+
+    @Test
+    void duplicatesCollapseIntoTheHeaviest() {
+        List<BookSuggestion> hits = index.suggest("hu", 10);
+        assertEquals(1, hits.size());
+        assertEquals(4L, hits.get(0).getBookId());
+
+        BookSuggestion author = index.suggest("j k row", 10).get(0);
+        assertEquals("author", author.getType());
+        assertEquals(null, author.getBookId());
+    }
+
+    @Test
+    void writesAfterTheBuildAreVisible() {
+        index.put(6, "Harta Karun", "Anonim", 500);
+        index.put(2, "Harry Potter dan Kamar Rahasia", "J. K. Rowling", 1);
+        index.remove(1);
+
+        assertEquals(List.of("Harta Karun", "Harimau! Harimau!", "Harry Potter dan Kamar Rahasia"),
+                texts(index.suggest("har", 10)));
+        assertEquals(3, index.changes());
+
+        index.remove(6);
+        assertEquals("Harimau! Harimau!", index.suggest("har", 10).get(0).getText());
+    }
+
+    private static List<String> texts(List<BookSuggestion> hits) {
+        return hits.stream().map(BookSuggestion::getText).toList();
+    }
+}
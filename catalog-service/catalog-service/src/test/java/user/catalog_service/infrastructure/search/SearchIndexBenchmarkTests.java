@@ -0,0 +1,147 @@
+package user.catalog_service.infrastructure.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.catalog_service.application.dto.BookDto;
+import user.catalog_service.application.dto.BookFilter;
+import user.catalog_service.application.dto.BookResponse;
+import user.catalog_service.application.service.book.BookService;
+import user.catalog_service.application.service.book.BookServiceImpl;
+import user.catalog_service.infrastructure.cache.BookCache;
+import user.catalog_service.infrastructure.cache.CategoryCache;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.repository.BookRepository;
+import user.catalog_service.infrastructure.stock.StockLedger;
+import user.catalog_service.infrastructure.storage.BlobStore;
+import user.catalog_service.infrastructure.storage.ThumbnailPipeline;
+
+// defaults to 100k books so the suite stays quick; -Dbench.books=1000000 for the full-size comparison
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:searchbench;MODE=PostgreSQL;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "catalog.images.dir=${java.io.tmpdir}/catalog-test-images"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ BookServiceImpl.class, StockLedger.class, BlobStore.class, ThumbnailPipeline.class, SearchIndex.class,
+        SuggestIndex.class, FacetIndex.class, BookCache.class, CategoryCache.class, ChangeFeed.class,
+        SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SearchIndexBenchmarkTests {
+
+    private static final String[] WORDS = { "garden", "river", "shadow", "empire", "silent", "winter", "kingdom",
+            "ocean", "mirror", "forest", "journey", "secret", "island", "thunder", "crystal", "harbor", "desert",
+            "legend", "orchard", "lantern", "meadow", "voyage", "citadel", "ember", "falcon", "glacier" };
+    private static final String[] NAMES = { "Tere Liye", "Andrea Hirata", "Dee Lestari", "Pramoedya Toer",
+            "Ayu Utami", "Leila Chudori", "Eka Kurniawan", "Sapardi Damono" };
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepo;
+
+    @Autowired
+    private SearchIndex searchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void indexVersusLike() {
+        int books = Integer.getInteger("bench.books", 100_000);
+        int rounds = Integer.getInteger("bench.rounds", 20);
+
+        jdbc.update("delete from books");
+        Random random = new Random(42);
+        List<Object[]> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < books; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " "
+                    + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            batch.add(new Object[] { i + 1L, title, NAMES[random.nextInt(NAMES.length)], 1, 2020 });
+            if (batch.size() == 10_000 || i == books - 1) {
+                jdbc.batchUpdate("insert into books (id, title, author, stock, \"year\", hot) "
+                        + "values (?, ?, ?, ?, ?, false)", batch);
+                batch.clear();
+            }
+        }
+
+        long buildStart = System.nanoTime();
+        searchIndex.rebuild();
+        long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+
+        Pageable page = PageRequest.of(0, 20, Sort.by("title").ascending());
+        String q = "lantern glacier";
+        long likeTotal = bookRepo.filterListItems(BookFilter.of("glacier", null), page).getTotalElements();
+        long indexTotal = searchIndex.search("glacier", null, 0, 20).total();
+        assertEquals(likeTotal, indexTotal);
+
+        long likeP50 = median(rounds, () -> bookRepo.filterListItems(BookFilter.of(q, null), page));
+        long indexP50 = median(rounds, () -> bookService.list(BookFilter.of(q, null), page));
+        long typoP50 = median(rounds, () -> bookService.list(BookFilter.of("lantren glacer", null), page));
+
+        System.out.printf("search over %d books: index build=%d ms like p50=%.2f ms index p50=%.2f ms "
+                + "typo p50=%.2f ms%n", books, buildMs, likeP50 / 1_000_000.0, indexP50 / 1_000_000.0,
+                typoP50 / 1_000_000.0);
+    }
+
+    @Test
+    void createdBooksAreSearchableAfterCommit() {
+        jdbc.update("delete from books");
+        jdbc.update("delete from categories");
+        jdbc.update("insert into categories (name) values ('Novel')");
+        Long categoryId = jdbc.queryForObject("select id from categories", Long.class);
+        searchIndex.rebuild();
+
+        BookResponse created = bookService.create(BookDto.builder()
+                .title("Bumi Manusia")
+                .author("Pramoedya Ananta Toer")
+                .price(BigDecimal.TEN)
+                .stock(3)
+                .year(1980)
+                .category_id(categoryId)
+                .build());
+
+        Pageable page = PageRequest.of(0, 10);
+        List<BookResponse> hits = bookService.list(BookFilter.of("manusia pramudya", categoryId), page).getContent();
+        assertEquals(List.of(created.getId()), hits.stream().map(BookResponse::getId).toList());
+        assertTrue(bookService.list(BookFilter.of("manusia", categoryId + 1), page).isEmpty());
+
+        bookService.delete(created.getId());
+        assertTrue(bookService.list(BookFilter.of("manusia", null), page).isEmpty());
+    }
+
+    private static long median(int rounds, Supplier<?> call) {
+        for (int i = 0; i < 3; i++) {
+            call.get();
+        }
+        long[] samples = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long begin = System.nanoTime();
+            call.get();
+            samples[i] = System.nanoTime() - begin;
+        }
+        Arrays.sort(samples);
+        return samples[rounds / 2];
+    }
+}
@@ -0,0 +1,59 @@
+package user.catalog_service.infrastructure.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// size with -Dbench.suggest.titles and -Dbench.rounds
+class SuggestIndexBenchmarkTests {
+
+    private static final String[] WORDS = { "garden", "river", "shadow", "empire", "silent", "winter", "kingdom",
+            "ocean", "mirror", "forest", "journey", "secret", "island", "thunder", "crystal", "harbor", "desert",
+            "legend", "orchard", "lantern", "meadow", "voyage", "citadel", "ember", "falcon", "glacier" };
+
+    @Test
+    void lookupLatencyAndBytesPerEntry() {
+        int titles = Integer.getInteger("bench.suggest.titles", 1_000_000);
+        int rounds = Integer.getInteger("bench.rounds", 2_000);
+
+        Random random = new Random(7);
+        PrefixIndex.Builder builder = new PrefixIndex.Builder();
+        for (int i = 0; i < titles; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " "
+                    + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            builder.add(i + 1, title, "Author " + random.nextInt(50_000), random.nextInt(1_000));
+        }
+        long buildStart = System.nanoTime();
+        PrefixIndex index = builder.build();
+        long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+
+        // a trickle of writes since the build, as between two compactions
+        for (int i = 0; i < 5_000; i++) {
+            index.put(random.nextInt(titles) + 1, "garden refreshed " + i, "Author " + i, random.nextInt(1_000));
+        }
+        assertEquals(10, index.suggest("g", 10).size());
+        assertTrue(index.suggest("garden river", 5).stream().allMatch(s -> s.getText().startsWith("garden river")));
+
+        String[] prefixes = { "g", "ga", "gar", "garden r", "lantern mea", "author 12", "ember ember ember 9" };
+        long[] samples = new long[rounds];
+        for (int i = 0; i < 5_000; i++) {
+            index.suggest(prefixes[i % prefixes.length], 10);
+        }
+        for (int i = 0; i < rounds; i++) {
+            long begin = System.nanoTime();
+            index.suggest(prefixes[i % prefixes.length], 10);
+            samples[i] = System.nanoTime() - begin;
+        }
+        Arrays.sort(samples);
+
+        System.out.printf("suggest over %d titles (%d entries): build=%d ms p50=%.3f ms p95=%.3f ms p99=%.3f ms "
+                + "static=%.1f MB (%.1f bytes/entry)%n", titles, index.size(), buildMs,
+                samples[rounds / 2] / 1_000_000.0, samples[rounds * 95 / 100] / 1_000_000.0,
+                samples[rounds * 99 / 100] / 1_000_000.0,
+                index.staticBytes() / 1048576.0, (double) index.staticBytes() / index.size());
+    }
+}
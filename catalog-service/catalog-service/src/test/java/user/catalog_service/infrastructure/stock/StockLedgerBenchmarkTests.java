@@ -0,0 +1,136 @@
+package user.catalog_service.infrastructure.stock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.catalog_service.application.dto.StockItemDto;
+import user.catalog_service.application.service.book.BookService;
+import user.catalog_service.application.service.book.BookServiceImpl;
+import user.catalog_service.domain.model.Book;
+import user.catalog_service.infrastructure.cache.BookCache;
+import user.catalog_service.infrastructure.cache.CategoryCache;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.repository.BookRepository;
+import user.catalog_service.infrastructure.search.FacetIndex;
+import user.catalog_service.infrastructure.search.SearchIndex;
+import user.catalog_service.infrastructure.search.SuggestIndex;
+import user.catalog_service.infrastructure.storage.BlobStore;
+import user.catalog_service.infrastructure.storage.ThumbnailPipeline;
+
+// sizes can be raised with -Dbench.threads and -Dbench.attempts
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledgerbench;MODE=PostgreSQL;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "catalog.images.dir=${java.io.tmpdir}/catalog-test-images",
+        "spring.datasource.hikari.maximum-pool-size=32",
+        "catalog.stock-ledger.enabled=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ BookServiceImpl.class, StockLedger.class, BlobStore.class, ThumbnailPipeline.class, SearchIndex.class,
+        SuggestIndex.class, FacetIndex.class, BookCache.class, CategoryCache.class, ChangeFeed.class,
+        SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockLedgerBenchmarkTests {
+
+    @DynamicPropertySource
+    static void journalDir(DynamicPropertyRegistry registry) {
+        registry.add("catalog.stock-ledger.journal-dir",
+                () -> System.getProperty("java.io.tmpdir") + "/stock-ledger-bench-" + UUID.randomUUID());
+    }
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepo;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Test
+    void ledgerOutperformsSingleRowWithoutOverselling() throws Exception {
+        int threads = Integer.getInteger("bench.threads", 16);
+        int attempts = Integer.getInteger("bench.attempts", 100);
+        int initialStock = threads * attempts / 2;
+
+        Long rowId = newBook("Single Row", initialStock);
+        Long hotId = newBook("Ledger", initialStock);
+        stockLedger.track(hotId);
+
+        Result row = hammer(rowId, threads, attempts);
+        Result ledger = hammer(hotId, threads, attempts);
+        stockLedger.flush();
+
+        System.out.printf("single-row: %.0f ops/s granted=%d | ledger: %.0f ops/s granted=%d (%.1fx)%n",
+                row.throughput, row.granted, ledger.throughput, ledger.granted,
+                ledger.throughput / row.throughput);
+
+        assertEquals(initialStock, row.granted);
+        assertEquals(initialStock, ledger.granted);
+        assertEquals(0, bookRepo.findById(rowId).orElseThrow().getStock());
+        assertEquals(0, bookRepo.findById(hotId).orElseThrow().getStock());
+        assertTrue(stockLedger.available(hotId) == 0);
+    }
+
+    private Long newBook(String title, int stock) {
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor("Bench");
+        book.setPrice(BigDecimal.TEN);
+        book.setStock(stock);
+        book.setYear(2024);
+        return bookRepo.save(book).getId();
+    }
+
+    private Result hammer(Long bookId, int threads, int attempts) throws InterruptedException {
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<StockItemDto> line = List.of(new StockItemDto(bookId, 1));
+
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < attempts; i++) {
+                    try {
+                        bookService.reserveStock(line, null);
+                        granted.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        // out of stock
+                    }
+                }
+                return null;
+            });
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - begin;
+        return new Result(granted.get(), threads * attempts / (elapsed / 1_000_000_000.0));
+    }
+
+    private record Result(int granted, double throughput) {
+    }
+}
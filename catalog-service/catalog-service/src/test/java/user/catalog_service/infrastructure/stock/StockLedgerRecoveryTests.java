@@ -0,0 +1,127 @@
+package user.catalog_service.infrastructure.stock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.catalog_service.domain.model.Book;
+import user.catalog_service.infrastructure.changes.ChangeFeed;
+import user.catalog_service.infrastructure.repository.BookRepository;
+import user.catalog_service.infrastructure.repository.StockLedgerCheckpointRepository;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ledgerrecovery;MODE=PostgreSQL;NON_KEYWORDS=YEAR;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ ChangeFeed.class, SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockLedgerRecoveryTests {
+
+    @Autowired
+    private BookRepository bookRepo;
+
+    @Autowired
+    private StockLedgerCheckpointRepository checkpointRepo;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @TempDir
+    Path journalDir;
+
+    @Test
+    void unflushedGrantsAreReplayedExactlyOnceAfterCrash(@TempDir Path scratch) throws Exception {
+        Long id = hotBook(100);
+
+        StockLedger first = newLedger();
+        for (int i = 0; i < 7; i++) {
+            assertTrue(first.tryReserve(id, 1));
+        }
+        first.release(id, 2);
+        // crash: no flush, no destroy
+        assertEquals(100, stockInDb(id));
+
+        List<Path> journaled = StockJournal.segments(journalDir);
+        Path copy = scratch.resolve("segment.copy");
+        Files.copy(journaled.get(0), copy);
+
+        StockLedger second = newLedger();
+        assertEquals(95, stockInDb(id));
+        assertEquals(95, second.available(id));
+        assertEquals(1, stockChanges(id));
+
+        // a crash after the database commit but before the segment was deleted
+        Files.copy(copy, journaled.get(0), StandardCopyOption.REPLACE_EXISTING);
+        newLedger();
+        assertEquals(95, stockInDb(id));
+        assertEquals(1, stockChanges(id));
+    }
+
+    @Test
+    void grantsOfATransactionThatNeverCommittedAreNotReplayed() {
+        Long id = hotBook(50);
+        StockLedger first = newLedger();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertTrue(first.tryReserve(id, 3));
+            // the process dies before the commit and a new one starts
+            newLedger();
+            assertEquals(50, stockInDb(id));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(50, first.available(id));
+    }
+
+    private Long hotBook(int stock) {
+        Book book = new Book();
+        book.setTitle("Crash Test");
+        book.setAuthor("Ledger");
+        book.setPrice(BigDecimal.ONE);
+        book.setStock(stock);
+        book.setYear(2024);
+        book.setHot(true);
+        return bookRepo.save(book).getId();
+    }
+
+    private StockLedger newLedger() {
+        StockLedger ledger = new StockLedger(true, 4, journalDir.toString(), false, 200, jdbc, transactionManager,
+                checkpointRepo, changeFeed, new SimpleMeterRegistry());
+        ledger.afterSingletonsInstantiated();
+        return ledger;
+    }
+
+    private int stockChanges(Long id) {
+        return jdbc.queryForObject("select count(*) from catalog_changes where entity_id = ? and op = 'STOCK'",
+                Integer.class, id);
+    }
+
+    private int stockInDb(Long id) {
+        return jdbc.queryForObject("select stock from books where id = ?", Integer.class, id);
+    }
+}
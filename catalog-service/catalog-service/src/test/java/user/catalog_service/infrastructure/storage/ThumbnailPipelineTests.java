@@ -0,0 +1,143 @@
+package user.catalog_service.infrastructure.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.catalog_service.infrastructure.utils.ImageUtil;
+
+class ThumbnailPipelineTests {
+
+    @TempDir
+    Path dir;
+
+    private BlobStore blobStore;
+    private SimpleMeterRegistry registry;
+    private ThumbnailPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new BlobStore(dir.toString(), 10 * 1024 * 1024);
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.destroy();
+        }
+    }
+
+    @Test
+    void rendersEveryWidthOnceAndNeverEnlarges() throws Exception {
+        pipeline = new ThumbnailPipeline(true, List.of(320, 64, 2000), 0.8f, 1, 10, blobStore, registry);
+        String hash = blobStore.put(png(1200, 1800, true));
+
+        long begin = System.nanoTime();
+        assertTrue(pipeline.submit(hash, "image/png"));
+        // widths are written largest first
+        awaitFile(pipeline.variantPath(hash, 64));
+        System.out.printf("thumbnails of a 1200x1800 cover: %.1f ms%n", (System.nanoTime() - begin) / 1e6);
+
+        BufferedImage small = ImageIO.read(pipeline.variantPath(hash, 64).toFile());
+        assertEquals(64, small.getWidth());
+        assertEquals(96, small.getHeight());
+        assertEquals(320, ImageIO.read(pipeline.variantPath(hash, 320).toFile()).getWidth());
+        assertEquals(1200, ImageIO.read(pipeline.variantPath(hash, 2000).toFile()).getWidth());
+        assertEquals("image/jpeg", ImageUtil.detectContentType(Files.readAllBytes(pipeline.variantPath(hash, 64))));
+        // the transparent corner was flattened onto white
+        assertEquals(Color.WHITE.getRGB() & 0xF0F0F0, small.getRGB(0, 0) & 0xF0F0F0);
+
+        assertEquals(64, pipeline.widthFor(1));
+        assertEquals(320, pipeline.widthFor(65));
+        assertNull(pipeline.widthFor(2001));
+    }
+
+    @Test
+    void aFullQueueRejectsWithoutBlocking() throws Exception {
+        pipeline = new ThumbnailPipeline(true, List.of(64, 160, 320), 0.8f, 1, 2, blobStore, registry);
+        List<String> hashes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            hashes.add(blobStore.put(png(1600 + i, 2400, false)));
+        }
+
+        long begin = System.nanoTime();
+        int accepted = 0;
+        for (String hash : hashes) {
+            if (pipeline.submit(hash, "image/png")) {
+                accepted++;
+            }
+        }
+        long submitMs = (System.nanoTime() - begin) / 1_000_000;
+
+        double rejected = registry.get("catalog.thumbnails.jobs").tag("result", "rejected").counter().count();
+        assertTrue(rejected > 0);
+        assertEquals(20, accepted + (int) rejected);
+        assertTrue(submitMs < 500, "submitting took " + submitMs + " ms");
+        assertTrue(registry.get("catalog.thumbnails.queue.depth").gauge().value() <= 2);
+
+        // a dropped cover goes back in once the burst is over
+        String dropped = hashes.get(hashes.size() - 1);
+        awaitTrue(() -> pipeline.queueDepth() == 0
+                && registry.get("catalog.thumbnails.active").gauge().value() == 0);
+        assertTrue(pipeline.submit(dropped, "image/png"));
+        awaitFile(pipeline.variantPath(dropped, 320));
+    }
+
+    @Test
+    void skipsFormatsTheJdkCannotDecode() throws IOException {
+        pipeline = new ThumbnailPipeline(true, List.of(64), 0.8f, 1, 10, blobStore, registry);
+        String hash = blobStore.put(png(10, 10, false));
+
+        assertFalse(pipeline.submit(hash, "image/webp"));
+        assertFalse(pipeline.submit(hash, ImageUtil.OCTET_STREAM));
+    }
+
+    private static byte[] png(int width, int height, boolean transparentCorner) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(30, 90, 160));
+        g.fillRect(0, 0, width, height);
+        if (transparentCorner) {
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(0, 0, width / 4, height / 4);
+        }
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static void awaitFile(Path path) throws InterruptedException {
+        awaitTrue(() -> Files.exists(path));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(20);
+        }
+    }
+}
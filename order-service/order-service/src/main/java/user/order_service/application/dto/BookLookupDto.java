@@ -0,0 +1,23 @@
+package user.order_service.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookLookupDto {
+
+  private Long id;
+
+  private String title;
+
+  private BigDecimal price;
+
+  private Integer stock;
+}
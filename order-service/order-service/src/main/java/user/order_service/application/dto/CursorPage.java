@@ -0,0 +1,13 @@
+package user.order_service.application.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+  private List<T> content;
+
+  private String nextCursor;
+}
@@ -0,0 +1,23 @@
+package user.order_service.application.dto;
+
+import lombok.*;
+import user.order_service.domain.model.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// from is inclusive, to exclusive
+@Getter
+@Builder(toBuilder = true)
+@AllArgsConstructor
+public class OrderFilter {
+  private OrderStatus status;
+
+  private String userEmail;
+
+  private LocalDateTime from;
+
+  private LocalDateTime to;
+
+  private BigDecimal minTotal;
+}
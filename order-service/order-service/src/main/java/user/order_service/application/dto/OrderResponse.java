@@ -14,6 +14,7 @@ public class OrderResponse {
   private String userEmail;
   private BigDecimal totalPrice;
   private String status;
+  private String statusReason;
   private LocalDateTime createdAt;
   private List<OrderItemDto> items;
 }
@@ -0,0 +1,17 @@
+package user.order_service.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockItemDto {
+
+  private Long bookId;
+
+  private Integer qty;
+}
@@ -0,0 +1,19 @@
+package user.order_service.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationRequest {
+
+  private Long orderId;
+
+  private List<StockItemDto> items;
+}
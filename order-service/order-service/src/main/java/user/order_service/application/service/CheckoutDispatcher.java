@@ -0,0 +1,257 @@
+package user.order_service.application.service;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import user.order_service.application.dto.BookLookupDto;
+import user.order_service.application.dto.StockItemDto;
+import user.order_service.domain.model.Order;
+import user.order_service.domain.model.OrderItem;
+import user.order_service.domain.model.OrderStatus;
+import user.order_service.domain.model.OutboxCommand;
+import user.order_service.domain.repository.OrderRepository;
+import user.order_service.domain.repository.OutboxCommandRepository;
+import user.order_service.infrastructure.client.CatalogClient;
+import user.order_service.infrastructure.client.CatalogLookup;
+import user.order_service.infrastructure.config.security.JwtUtil;
+import user.order_service.infrastructure.exception.CatalogRejectedException;
+import user.order_service.infrastructure.exception.CatalogUnavailableException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// catalog calls happen between short transactions, never inside one
+@Component
+public class CheckoutDispatcher implements DisposableBean {
+
+  private static final int MAX_REASON_LENGTH = 500;
+
+  private final OrderRepository orderRepo;
+  private final OutboxCommandRepository outboxRepo;
+  private final CatalogClient catalogClient;
+  private final CatalogLookup catalogLookup;
+  private final JwtUtil jwtUtil;
+  private final TransactionTemplate tx;
+  private final int batchSize;
+  private final long leaseMs;
+  private final int maxAttempts;
+  private final long backoffMs;
+  private final long maxBackoffMs;
+  private final ExecutorService workers;
+
+  public CheckoutDispatcher(OrderRepository orderRepo, OutboxCommandRepository outboxRepo,
+      CatalogClient catalogClient, CatalogLookup catalogLookup, JwtUtil jwtUtil,
+      PlatformTransactionManager transactionManager,
+      @Value("${orders.checkout.dispatch-batch-size:32}") int batchSize,
+      @Value("${orders.checkout.dispatch-threads:4}") int threads,
+      @Value("${orders.checkout.lease-ms:30000}") long leaseMs,
+      @Value("${orders.checkout.max-attempts:8}") int maxAttempts,
+      @Value("${orders.checkout.backoff-ms:1000}") long backoffMs,
+      @Value("${orders.checkout.max-backoff-ms:60000}") long maxBackoffMs) {
+    this.orderRepo = orderRepo;
+    this.outboxRepo = outboxRepo;
+    this.catalogClient = catalogClient;
+    this.catalogLookup = catalogLookup;
+    this.jwtUtil = jwtUtil;
+    this.tx = new TransactionTemplate(transactionManager);
+    this.batchSize = batchSize;
+    this.leaseMs = leaseMs;
+    this.maxAttempts = maxAttempts;
+    this.backoffMs = backoffMs;
+    this.maxBackoffMs = maxBackoffMs;
+    AtomicInteger threadNo = new AtomicInteger();
+    this.workers = Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, "checkout-dispatch-" + threadNo.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  @Scheduled(fixedDelayString = "${orders.checkout.dispatch-interval-ms:250}")
+  public void dispatch() {
+    List<OutboxCommand> due;
+    do {
+      due = lease();
+      List<Future<?>> running = new ArrayList<>(due.size());
+      for (OutboxCommand command : due) {
+        running.add(workers.submit(() -> handle(command)));
+      }
+      for (Future<?> f : running) {
+        try {
+          f.get();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          return;
+        } catch (Exception ex) {
+          // handle() reschedules its own failures; the lease brings back anything it missed
+        }
+      }
+    } while (due.size() == batchSize);
+  }
+
+  @Override
+  public void destroy() {
+    workers.shutdownNow();
+  }
+
+  // a command whose dispatcher died comes back once its lease runs out; attempts counts every lease
+  private List<OutboxCommand> lease() {
+    List<OutboxCommand> due = tx.execute(status -> {
+      LocalDateTime now = LocalDateTime.now();
+      List<OutboxCommand> locked = outboxRepo.lockDue(now, batchSize);
+      for (OutboxCommand command : locked) {
+        command.setAttempts(command.getAttempts() + 1);
+        command.setNextAttemptAt(now.plusNanos(leaseMs * 1_000_000));
+      }
+      return locked;
+    });
+    return due != null ? due : List.of();
+  }
+
+  void handle(OutboxCommand command) {
+    try {
+      if (OutboxCommand.RESERVE_STOCK.equals(command.getType())) {
+        reserve(command);
+      } else if (OutboxCommand.RELEASE_STOCK.equals(command.getType())) {
+        release(command);
+      } else {
+        System.err.println("Dropping outbox command " + command.getId() + " of unknown type " + command.getType());
+        tx.executeWithoutResult(status -> outboxRepo.deleteById(command.getId()));
+      }
+    } catch (RuntimeException ex) {
+      retryLater(command, ex);
+    }
+  }
+
+  private void reserve(OutboxCommand command) {
+    Order order = tx.execute(status -> {
+      Order found = orderRepo.findById(command.getOrderId()).orElse(null);
+      if (found == null || found.getStatus() != OrderStatus.PENDING_RESERVATION) {
+        return null;
+      }
+      Hibernate.initialize(found.getItems());
+      return found;
+    });
+    if (order == null) {
+      // cancelled before it was reserved; the cancel queued its own release
+      tx.executeWithoutResult(status -> outboxRepo.deleteById(command.getId()));
+      return;
+    }
+
+    if (command.getAttempts() > 1) {
+      // an earlier attempt may have reserved before failing, and the catalog takes one reservation per order
+      try {
+        catalogClient.release(order.getId());
+      } catch (CatalogRejectedException ex) {
+        // there was nothing to release
+      }
+    }
+
+    List<Long> bookIds = order.getItems().stream().map(OrderItem::getBookId).collect(Collectors.toList());
+    CatalogLookup.Result books = catalogLookup.lookup(bookIds, jwtUtil.generateServiceToken());
+    if (!books.unavailable().isEmpty()) {
+      throw new CatalogUnavailableException("Catalog lookup failed", List.of("Failed to fetch books "
+          + books.unavailable()));
+    }
+    List<String> errors = new ArrayList<>();
+    for (OrderItem item : order.getItems()) {
+      BookLookupDto book = books.books().get(item.getBookId());
+      if (book == null) {
+        errors.add("Book not found with id " + item.getBookId());
+      } else if (book.getStock() == null || book.getStock() < item.getQuantity()) {
+        errors.add("Not enough stock for book id " + item.getBookId());
+      }
+    }
+    if (!errors.isEmpty()) {
+      reject(command, order.getId(), errors, false);
+      return;
+    }
+
+    try {
+      catalogClient.reserve(order.getId(), order.getItems().stream()
+          .map(i -> new StockItemDto(i.getBookId(), i.getQuantity()))
+          .collect(Collectors.toList()));
+    } catch (CatalogRejectedException ex) {
+      reject(command, order.getId(), ex.getErrors().isEmpty() ? List.of(ex.getMessage()) : ex.getErrors(), false);
+      return;
+    }
+
+    tx.executeWithoutResult(status -> {
+      outboxRepo.deleteById(command.getId());
+      if (orderRepo.moveTo(order.getId(), OrderStatus.PENDING) == 0) {
+        // cancelled while the catalog was reserving: give the stock back
+        outboxRepo.save(OutboxCommand.of(OutboxCommand.RELEASE_STOCK, order.getId()));
+        return;
+      }
+      Order reserved = orderRepo.findById(order.getId()).orElseThrow();
+      BigDecimal total = BigDecimal.ZERO;
+      for (OrderItem item : reserved.getItems()) {
+        item.setPrice(books.books().get(item.getBookId()).getPrice());
+        total = total.add(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+      }
+      reserved.setTotalPrice(total);
+      reserved.setPendingSince(LocalDateTime.now());
+      orderRepo.save(reserved);
+    });
+  }
+
+  private void release(OutboxCommand command) {
+    Order order = orderRepo.findById(command.getOrderId()).orElse(null);
+    if (order != null) {
+      try {
+        catalogClient.release(order.getId());
+      } catch (CatalogRejectedException ex) {
+        // nothing was reserved, or it is already released
+      }
+    }
+    tx.executeWithoutResult(status -> outboxRepo.deleteById(command.getId()));
+  }
+
+  private void reject(OutboxCommand command, Long orderId, List<String> errors, boolean releaseAfter) {
+    String reason = String.join("; ", errors);
+    tx.executeWithoutResult(status -> {
+      outboxRepo.deleteById(command.getId());
+      if (orderRepo.moveTo(orderId, OrderStatus.REJECTED) == 1) {
+        Order order = orderRepo.findById(orderId).orElseThrow();
+        order.setStatusReason(reason.length() > MAX_REASON_LENGTH ? reason.substring(0, MAX_REASON_LENGTH) : reason);
+        orderRepo.save(order);
+      }
+      if (releaseAfter) {
+        outboxRepo.save(OutboxCommand.of(OutboxCommand.RELEASE_STOCK, orderId));
+      }
+    });
+  }
+
+  private void retryLater(OutboxCommand command, RuntimeException ex) {
+    String error = String.valueOf(ex.getMessage());
+    if (ex instanceof CatalogUnavailableException unavailable && !unavailable.getErrors().isEmpty()) {
+      error = error + ": " + String.join("; ", unavailable.getErrors());
+    }
+    if (command.getAttempts() >= maxAttempts) {
+      System.err.println("Giving up on outbox command " + command.getId() + " (" + command.getType()
+          + " for order " + command.getOrderId() + ") after " + command.getAttempts() + " attempts : " + error);
+      if (OutboxCommand.RESERVE_STOCK.equals(command.getType())) {
+        reject(command, command.getOrderId(), List.of("Catalog is unavailable, please order again"), true);
+      } else {
+        // the catalog frees a reservation nobody confirms once its TTL passes
+        tx.executeWithoutResult(status -> outboxRepo.deleteById(command.getId()));
+      }
+      return;
+    }
+    long delay = Math.min(maxBackoffMs, backoffMs << Math.min(20, command.getAttempts() - 1));
+    String lastError = error.length() > MAX_REASON_LENGTH ? error.substring(0, MAX_REASON_LENGTH) : error;
+    tx.executeWithoutResult(status -> outboxRepo.reschedule(command.getId(),
+        LocalDateTime.now().plusNanos(delay * 1_000_000), lastError));
+  }
+}
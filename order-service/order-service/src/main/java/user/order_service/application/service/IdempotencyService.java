@@ -0,0 +1,200 @@
+package user.order_service.application.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import user.order_service.application.dto.OrderResponse;
+import user.order_service.domain.model.IdempotencyRecord;
+import user.order_service.domain.repository.IdempotencyRecordRepository;
+import user.order_service.infrastructure.exception.BadRequestException;
+import user.order_service.infrastructure.exception.ConflictException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// a duplicate arriving while the first attempt runs waits for it; a failed attempt lets go of the key,
+// since the catalog reserves all-or-nothing and nothing was kept
+@Service
+public class IdempotencyService {
+
+  private static final int MAX_KEY_LENGTH = 255;
+
+  private final IdempotencyRecordRepository repo;
+  private final ObjectMapper objectMapper;
+  private final TransactionTemplate tx;
+  private final Duration ttl;
+  private final Duration waitTimeout;
+  private final long pollMs;
+  private final Duration staleAfter;
+  private final long maxKeys;
+  private final int purgeBatchSize;
+  private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+  public IdempotencyService(IdempotencyRecordRepository repo, ObjectMapper objectMapper,
+      PlatformTransactionManager transactionManager,
+      @Value("${orders.idempotency.ttl-seconds:86400}") long ttlSeconds,
+      @Value("${orders.idempotency.wait-ms:10000}") long waitMs,
+      @Value("${orders.idempotency.poll-ms:100}") long pollMs,
+      @Value("${orders.idempotency.stale-after-seconds:120}") long staleAfterSeconds,
+      @Value("${orders.idempotency.max-keys:1000000}") long maxKeys,
+      @Value("${orders.idempotency.purge-batch-size:1000}") int purgeBatchSize) {
+    this.repo = repo;
+    this.objectMapper = objectMapper;
+    this.tx = new TransactionTemplate(transactionManager);
+    this.ttl = Duration.ofSeconds(ttlSeconds);
+    this.waitTimeout = Duration.ofMillis(waitMs);
+    this.pollMs = pollMs;
+    this.staleAfter = Duration.ofSeconds(staleAfterSeconds);
+    this.maxKeys = maxKeys;
+    this.purgeBatchSize = purgeBatchSize;
+  }
+
+  public Outcome createOnce(String userEmail, String key, Object request, Supplier<OrderResponse> create) {
+    if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+      throw new BadRequestException("Invalid Idempotency-Key",
+          List.of("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters"));
+    }
+    String hash = hash(request);
+    String localKey = userEmail + '\n' + key;
+    long deadline = System.nanoTime() + waitTimeout.toNanos();
+
+    while (true) {
+      CompletableFuture<Void> mine = new CompletableFuture<>();
+      CompletableFuture<Void> running = inFlight.putIfAbsent(localKey, mine);
+      if (running != null) {
+        await(running, deadline);
+      } else {
+        try {
+          LocalDateTime now = LocalDateTime.now();
+          Integer claimed = tx.execute(status -> repo.claim(userEmail, key, hash, now, now.plus(ttl)));
+          if (claimed != null && claimed == 1) {
+            return new Outcome(run(userEmail, key, create), false);
+          }
+        } finally {
+          inFlight.remove(localKey, mine);
+          mine.complete(null);
+        }
+      }
+
+      Optional<IdempotencyRecord> existing = repo.findByUserEmailAndIdempotencyKey(userEmail, key);
+      if (existing.isEmpty()) {
+        // the attempt holding the key failed and let go of it
+        continue;
+      }
+      IdempotencyRecord record = existing.get();
+      if (!record.getRequestHash().equals(hash)) {
+        throw new BadRequestException("Invalid Idempotency-Key",
+            List.of("Idempotency-Key was already used for a different order request"));
+      }
+      if (IdempotencyRecord.COMPLETED.equals(record.getStatus())) {
+        return new Outcome(read(record.getResponse()), true);
+      }
+      if (System.nanoTime() > deadline) {
+        throw new ConflictException("Order request is still being processed",
+            List.of("A request with this Idempotency-Key is in progress; retry later"));
+      }
+      // held by another instance, which cannot be waited on directly
+      sleep(pollMs);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${orders.idempotency.purge-interval-ms:60000}")
+  public void purge() {
+    LocalDateTime now = LocalDateTime.now();
+    LocalDateTime staleBefore = now.minus(staleAfter);
+    Integer purged;
+    do {
+      purged = tx.execute(status -> repo.purgeExpired(now, staleBefore, purgeBatchSize));
+    } while (purged != null && purged == purgeBatchSize);
+
+    // past the cap the oldest keys go first, even before their TTL
+    long excess = repo.count() - maxKeys;
+    while (excess > 0) {
+      int batch = (int) Math.min(excess, purgeBatchSize);
+      purged = tx.execute(status -> repo.purgeOldest(batch));
+      if (purged == null || purged == 0) {
+        break;
+      }
+      excess -= purged;
+    }
+  }
+
+  private OrderResponse run(String userEmail, String key, Supplier<OrderResponse> create) {
+    try {
+      return tx.execute(status -> {
+        OrderResponse created = create.get();
+        repo.complete(userEmail, key, created.getId(), write(created));
+        return created;
+      });
+    } catch (RuntimeException ex) {
+      tx.executeWithoutResult(status -> repo.abandon(userEmail, key));
+      throw ex;
+    }
+  }
+
+  private static void await(CompletableFuture<Void> running, long deadline) {
+    try {
+      running.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException | ExecutionException ex) {
+      // the key is re-read either way
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new ConflictException("Order request is still being processed", List.of("Interrupted while waiting"));
+    }
+  }
+
+  private static void sleep(long ms) {
+    try {
+      Thread.sleep(ms);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new ConflictException("Order request is still being processed", List.of("Interrupted while waiting"));
+    }
+  }
+
+  private String hash(Object request) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest(objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest);
+    } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("Cannot fingerprint order request", ex);
+    }
+  }
+
+  private String write(OrderResponse response) {
+    try {
+      return objectMapper.writeValueAsString(response);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException("Cannot store order response", ex);
+    }
+  }
+
+  private OrderResponse read(String response) {
+    try {
+      return objectMapper.readValue(response, OrderResponse.class);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException("Cannot read stored order response", ex);
+    }
+  }
+
+  public record Outcome(OrderResponse order, boolean replayed) {
+  }
+}
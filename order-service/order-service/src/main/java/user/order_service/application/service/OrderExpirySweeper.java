@@ -0,0 +1,38 @@
+package user.order_service.application.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import user.order_service.domain.repository.OrderRepository;
+
+import java.time.LocalDateTime;
+
+// the catalog releases the stock on its side; this only stops the order from being paid
+@Component
+public class OrderExpirySweeper {
+
+  private final OrderRepository orderRepo;
+  private final TransactionTemplate tx;
+  private final long ttlSeconds;
+  private final int batchSize;
+
+  public OrderExpirySweeper(OrderRepository orderRepo, PlatformTransactionManager transactionManager,
+      @Value("${orders.reservation-ttl-seconds:900}") long ttlSeconds,
+      @Value("${orders.expiry-sweep-batch-size:500}") int batchSize) {
+    this.orderRepo = orderRepo;
+    this.tx = new TransactionTemplate(transactionManager);
+    this.ttlSeconds = ttlSeconds;
+    this.batchSize = batchSize;
+  }
+
+  @Scheduled(fixedDelayString = "${orders.expiry-sweep-interval-ms:30000}")
+  public void sweep() {
+    LocalDateTime cutoff = LocalDateTime.now().minusSeconds(ttlSeconds);
+    Integer expired;
+    do {
+      expired = tx.execute(status -> orderRepo.expirePendingBefore(cutoff, batchSize));
+    } while (expired != null && expired == batchSize);
+  }
+}
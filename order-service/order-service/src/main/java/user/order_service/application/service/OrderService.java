@@ -1,21 +1,24 @@
 package user.order_service.application.service;
 
 import user.order_service.application.dto.CreateOrderRequest;
+import user.order_service.application.dto.CursorPage;
+import user.order_service.application.dto.OrderFilter;
 import user.order_service.application.dto.OrderResponse;
 
-import java.util.List;
-
 public interface OrderService {
 
     OrderResponse createOrder(String userEmail, CreateOrderRequest request, String token);
 
-    OrderResponse payOrder(Long orderId, String payerEmail);
+    // stores the order and leaves pricing and stock reservation to the checkout dispatcher
+    OrderResponse checkout(String userEmail, CreateOrderRequest request);
 
-    // OrderResponse cancelOrder(Long orderId, String cancelledByEmail);
+    OrderResponse payOrder(Long orderId, String payerEmail);
 
-    OrderResponse cancelOrder(Long orderId, String cancelledByEmail, String token);
+    OrderResponse cancelOrder(Long orderId, String cancelledByEmail);
 
-    List<OrderResponse> listOrders(String requesterEmail, boolean isAdmin);
+    // users only ever see their own orders; the email filter is for admins
+    CursorPage<OrderResponse> scrollOrders(String requesterEmail, boolean isAdmin, OrderFilter filter, String cursor,
+            int size);
 
     OrderResponse getOrder(Long orderId, String requesterEmail, boolean isAdmin);
 }
\ No newline at end of file
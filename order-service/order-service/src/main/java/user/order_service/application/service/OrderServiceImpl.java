@@ -1,23 +1,28 @@
 package user.order_service.application.service;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+import user.order_service.application.dto.BookLookupDto;
 import user.order_service.application.dto.CreateOrderRequest;
+import user.order_service.application.dto.CursorPage;
+import user.order_service.application.dto.OrderFilter;
 import user.order_service.application.dto.OrderItemDto;
 import user.order_service.application.dto.OrderResponse;
+import user.order_service.application.dto.StockItemDto;
 import user.order_service.domain.model.Order;
 import user.order_service.domain.model.OrderItem;
+import user.order_service.domain.model.OrderStatus;
+import user.order_service.domain.model.OutboxCommand;
 import user.order_service.domain.repository.OrderRepository;
+import user.order_service.domain.repository.OutboxCommandRepository;
+import user.order_service.infrastructure.client.CatalogClient;
+import user.order_service.infrastructure.client.CatalogLookup;
 import user.order_service.infrastructure.exception.AccessDeniedException;
-import user.order_service.infrastructure.exception.ApiResponse;
 import user.order_service.infrastructure.exception.BadRequestException;
+import user.order_service.infrastructure.exception.CatalogRejectedException;
+import user.order_service.infrastructure.exception.CatalogUnavailableException;
 import user.order_service.infrastructure.exception.ResourceNotFoundException;
+import user.order_service.infrastructure.utils.Cursor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -27,15 +32,20 @@ import java.util.stream.Collectors;
 @Service
 public class OrderServiceImpl implements OrderService {
 
-  private final OrderRepository orderRepo;
-  private final RestTemplate restTemplate;
+  private static final int MAX_PAGE_SIZE = 100;
+  private static final int MAX_PAY_ATTEMPTS = 3;
 
-  @Value("${catalog.base-url}")
-  private String catalogBaseUrl;
+  private final OrderRepository orderRepo;
+  private final OutboxCommandRepository outboxRepo;
+  private final CatalogClient catalogClient;
+  private final CatalogLookup catalogLookup;
 
-  public OrderServiceImpl(OrderRepository orderRepo, RestTemplate restTemplate) {
+  public OrderServiceImpl(OrderRepository orderRepo, OutboxCommandRepository outboxRepo,
+      CatalogClient catalogClient, CatalogLookup catalogLookup) {
     this.orderRepo = orderRepo;
-    this.restTemplate = restTemplate;
+    this.outboxRepo = outboxRepo;
+    this.catalogClient = catalogClient;
+    this.catalogLookup = catalogLookup;
   }
 
   @Override
@@ -44,92 +54,91 @@ public class OrderServiceImpl implements OrderService {
 
     BigDecimal total = BigDecimal.ZERO;
     List<OrderItem> items = new ArrayList<>();
-    Map<Long, Integer> reservedMap = new HashMap<>();
+    Long reservedOrderId = null;
     List<String> errorMessages = new ArrayList<>();
 
     try {
-      for (OrderItemDto it : request.getItems()) {
-        String bookUrl = catalogBaseUrl + "/books/" + it.getBookId();
-
-        try {
-          HttpEntity<Void> getEntity = buildAuthEntity(token);
-          ResponseEntity<ApiResponse<Map<String, Object>>> resp = restTemplate.exchange(bookUrl, HttpMethod.GET,
-              getEntity,
-              new ParameterizedTypeReference<ApiResponse<Map<String, Object>>>() {
-              });
-
-          ApiResponse<Map<String, Object>> apiResponse = resp.getBody();
-          if (apiResponse == null || apiResponse.getData() == null) {
-            errorMessages.add("Book not found with id " + it.getBookId());
-            continue;
-          }
-
-          Map<String, Object> body = apiResponse.getData();
+      CatalogLookup.Result books = catalogLookup.lookup(
+          request.getItems().stream().map(OrderItemDto::getBookId).collect(Collectors.toList()), token);
 
-          BigDecimal price = new BigDecimal(body.get("price").toString());
-          int stock = Integer.parseInt(body.get("stock").toString());
-
-          if (stock < it.getQuantity()) {
-            errorMessages.add("Not enough stock for book id " + it.getBookId());
-            continue;
-          }
+      for (OrderItemDto it : request.getItems()) {
+        if (books.unavailable().contains(it.getBookId())) {
+          errorMessages.add("Failed to fetch book " + it.getBookId());
+          continue;
+        }
 
-          BigDecimal itemTotal = price.multiply(BigDecimal.valueOf(it.getQuantity()));
-          total = total.add(itemTotal);
+        BookLookupDto book = books.books().get(it.getBookId());
+        if (book == null) {
+          errorMessages.add("Book not found with id " + it.getBookId());
+          continue;
+        }
 
-          OrderItem oi = OrderItem.builder()
-              .bookId(it.getBookId())
-              .quantity(it.getQuantity())
-              .price(price)
-              .build();
-          items.add(oi);
+        BigDecimal price = book.getPrice();
+        int stock = book.getStock() != null ? book.getStock() : 0;
 
-        } catch (HttpClientErrorException.NotFound ex) {
+        if (stock < it.getQuantity()) {
+          errorMessages.add("Not enough stock for book id " + it.getBookId());
+          continue;
+        }
 
-          errorMessages.add("Book not found with id " + it.getBookId());
-        } catch (RestClientException ex) {
+        BigDecimal itemTotal = price.multiply(BigDecimal.valueOf(it.getQuantity()));
+        total = total.add(itemTotal);
 
-          errorMessages.add("Failed to fetch book " + it.getBookId());
-        }
+        OrderItem oi = OrderItem.builder()
+            .bookId(it.getBookId())
+            .quantity(it.getQuantity())
+            .price(price)
+            .build();
+        items.add(oi);
       }
 
       if (!errorMessages.isEmpty()) {
         throw new ResourceNotFoundException("Validation failed", errorMessages);
       }
 
+      Map<Long, Integer> toReserve = new TreeMap<>();
       for (OrderItem oi : items) {
-        String decUrl = catalogBaseUrl + "/books/" + oi.getBookId() + "/decrement?qty=" + oi.getQuantity();
-        HttpEntity<Void> postEntity = buildAuthEntity(token);
-        ResponseEntity<ApiResponse<Void>> decResp = restTemplate.exchange(decUrl, HttpMethod.POST, postEntity,
-            new ParameterizedTypeReference<ApiResponse<Void>>() {
-            });
-
-        if (!decResp.getStatusCode().is2xxSuccessful()) {
-          errorMessages.add("Failed to reserve stock for book id " + oi.getBookId());
-        } else {
-          reservedMap.merge(oi.getBookId(), oi.getQuantity(), Integer::sum);
-        }
-      }
-
-      if (!errorMessages.isEmpty()) {
-        rollbackReserved(reservedMap, token);
-        throw new ResourceNotFoundException("Failed to reserve stock", errorMessages);
+        toReserve.merge(oi.getBookId(), oi.getQuantity(), Integer::sum);
       }
 
       Order order = Order.builder()
           .userEmail(userEmail)
           .totalPrice(total)
-          .status("PENDING")
+          .status(OrderStatus.PENDING)
           .createdAt(LocalDateTime.now())
+          .pendingSince(LocalDateTime.now())
           .items(items)
           .build();
 
+      // the order id ties the catalog reservation to this order; if anything below fails the
+      // insert rolls back and the reservation is released here or, at the latest, by its TTL
       Order saved = orderRepo.save(order);
+
+      try {
+        catalogClient.reserve(saved.getId(), toReserve.entrySet().stream()
+            .map(e -> new StockItemDto(e.getKey(), e.getValue()))
+            .collect(Collectors.toList()));
+        reservedOrderId = saved.getId();
+      } catch (CatalogUnavailableException ex) {
+        // the catalog may have reserved before the call failed
+        releaseReservation(saved.getId());
+        throw ex;
+      } catch (CatalogRejectedException ex) {
+        // the catalog reserves all-or-nothing, so there is nothing to roll back
+        if (!ex.getErrors().isEmpty()) {
+          errorMessages.addAll(ex.getErrors());
+        } else {
+          errorMessages.add("Failed to reserve stock for books " + items.stream()
+              .map(OrderItem::getBookId).collect(Collectors.toList()));
+        }
+        throw new ResourceNotFoundException("Failed to reserve stock", errorMessages);
+      }
+
       return toResponse(saved);
 
     } catch (RuntimeException ex) {
-      if (!reservedMap.isEmpty()) {
-        rollbackReserved(reservedMap, token);
+      if (reservedOrderId != null) {
+        releaseReservation(reservedOrderId);
       }
       throw ex;
     }
@@ -137,95 +146,138 @@ public class OrderServiceImpl implements OrderService {
 
   @Override
   @Transactional
-  public OrderResponse payOrder(Long orderId, String payerEmail) {
-    Order order = orderRepo.findById(orderId)
-        .orElseThrow(
-            () -> new ResourceNotFoundException("Order not found with id: " + orderId, List.of("ORDER_NOT_FOUND")));
-
-    if (!order.getUserEmail().equalsIgnoreCase(payerEmail)) {
-      throw new BadRequestException("Invalid credentials", List.of("User email does not match order owner"));
+  public OrderResponse checkout(String userEmail, CreateOrderRequest request) {
+    // one line per book, priced once the dispatcher has asked the catalog
+    Map<Long, Integer> quantities = new TreeMap<>();
+    for (OrderItemDto it : request.getItems()) {
+      quantities.merge(it.getBookId(), it.getQuantity(), Integer::sum);
     }
+    List<OrderItem> items = quantities.entrySet().stream()
+        .map(e -> OrderItem.builder().bookId(e.getKey()).quantity(e.getValue()).build())
+        .collect(Collectors.toList());
 
-    if ("PAID".equalsIgnoreCase(order.getStatus())) {
-      return toResponse(order);
-    }
-    if ("CANCELLED".equalsIgnoreCase(order.getStatus())) {
-      throw new BadRequestException("Failed pay order", List.of("Cannot pay a cancelled order"));
+    Order saved = orderRepo.save(Order.builder()
+        .userEmail(userEmail)
+        .totalPrice(BigDecimal.ZERO)
+        .status(OrderStatus.PENDING_RESERVATION)
+        .createdAt(LocalDateTime.now())
+        .items(items)
+        .build());
+    outboxRepo.save(OutboxCommand.of(OutboxCommand.RESERVE_STOCK, saved.getId()));
+    return toResponse(saved);
+  }
+
+  // The status moves in one conditional UPDATE, whose row lock makes a concurrent cancel wait until this
+  // payment commits or rolls back. Only when nothing moved is the order read, to say why.
+  @Override
+  @Transactional
+  public OrderResponse payOrder(Long orderId, String payerEmail) {
+    int attempts = 0;
+    while (orderRepo.moveTo(orderId, payerEmail, OrderStatus.PAID) == 0) {
+      Order order = findOrder(orderId);
+      if (!order.getUserEmail().equalsIgnoreCase(payerEmail)) {
+        throw new BadRequestException("Invalid credentials", List.of("User email does not match order owner"));
+      }
+      switch (order.getStatus()) {
+        case PAID:
+          return toResponse(order);
+        case CANCELLED:
+          throw new BadRequestException("Failed pay order", List.of("Cannot pay a cancelled order"));
+        case EXPIRED:
+          throw new BadRequestException("Failed pay order", List.of("Cannot pay an expired order"));
+        case REJECTED:
+          throw new BadRequestException("Failed pay order", List.of("Cannot pay a rejected order"));
+        case PENDING_RESERVATION:
+          throw new BadRequestException("Failed pay order", List.of("Stock for this order is still being reserved"));
+        default:
+          // PENDING again after a concurrent payment rolled back; bounded, since the database and Java may
+          // also disagree on the owner's email case, and then the update never matches
+          if (++attempts == MAX_PAY_ATTEMPTS) {
+            throw new BadRequestException("Failed pay order", List.of("Order could not be paid, please retry"));
+          }
+      }
     }
 
-    order.setStatus("PAID");
-    Order saved = orderRepo.save(order);
-    return toResponse(saved);
+    try {
+      catalogClient.confirm(orderId);
+    } catch (CatalogRejectedException ex) {
+      // rolls the status back to PENDING; the expiry sweep takes it from there
+      throw new BadRequestException("Failed pay order", List.of("Stock reservation for this order has expired"));
+    }
+    return toResponse(findOrder(orderId));
   }
 
   @Override
   @Transactional
-  public OrderResponse cancelOrder(Long orderId, String cancelledByEmail, String token) {
-    Order order = orderRepo.findById(orderId)
-        .orElseThrow(
-            () -> new ResourceNotFoundException("Order not found with id: " + orderId, List.of("ORDER_NOT_FOUND")));
+  public OrderResponse cancelOrder(Long orderId, String cancelledByEmail) {
+    if (orderRepo.moveTo(orderId, cancelledByEmail, OrderStatus.CANCELLED) == 1) {
+      // the dispatcher may be reserving a PENDING_RESERVATION order right now, so every release goes
+      // through the outbox, after it and with retries
+      outboxRepo.save(OutboxCommand.of(OutboxCommand.RELEASE_STOCK, orderId));
+      return toResponse(findOrder(orderId));
+    }
 
+    Order order = findOrder(orderId);
     if (!order.getUserEmail().equalsIgnoreCase(cancelledByEmail)) {
       throw new BadRequestException("Invalid credentials",
           List.of("Only order owner can cancel the order"));
     }
-
-    if ("CANCELLED".equalsIgnoreCase(order.getStatus())) {
-      return toResponse(order);
-    }
-
-    if ("PAID".equalsIgnoreCase(order.getStatus())) {
+    if (order.getStatus() == OrderStatus.PAID) {
       throw new BadRequestException("Failed cancel order", List.of("Cannot cancel a paid order"));
     }
-
-    if ("PENDING".equalsIgnoreCase(order.getStatus())) {
-      Map<Long, Integer> incMap = new HashMap<>();
-      for (OrderItem item : order.getItems()) {
-        incMap.merge(item.getBookId(), item.getQuantity(), Integer::sum);
-      }
-      rollbackReserved(incMap, token);
-    }
-
-    order.setStatus("CANCELLED");
-    Order saved = orderRepo.save(order);
-    return toResponse(saved);
+    // already cancelled, expired or rejected
+    return toResponse(order);
   }
 
   @Override
-  public List<OrderResponse> listOrders(String requesterEmail, boolean isAdmin) {
-    List<Order> list = isAdmin ? orderRepo.findAll() : orderRepo.findByUserEmail(requesterEmail);
-    return list.stream().map(this::toResponse).collect(Collectors.toList());
+  @Transactional(readOnly = true)
+  public CursorPage<OrderResponse> scrollOrders(String requesterEmail, boolean isAdmin, OrderFilter filter,
+      String cursor, int size) {
+    if (size < 1 || size > MAX_PAGE_SIZE) {
+      throw new BadRequestException("Invalid page size", List.of("size must be between 1 and " + MAX_PAGE_SIZE));
+    }
+    // one extra row tells whether there is a next page without a count query
+    List<Order> rows = orderRepo.findPage(visibleTo(requesterEmail, isAdmin, filter), Cursor.decode(cursor),
+        size + 1);
+    List<Order> page = rows.size() > size ? rows.subList(0, size) : rows;
+    String next = null;
+    if (rows.size() > size) {
+      Order last = page.get(size - 1);
+      next = new Cursor(last.getCreatedAt(), last.getId()).encode();
+    }
+    return new CursorPage<>(page.stream().map(this::toResponse).collect(Collectors.toList()), next);
   }
 
   @Override
   public OrderResponse getOrder(Long orderId, String requesterEmail, boolean isAdmin) {
-    Order order = orderRepo.findById(orderId)
-        .orElseThrow(
-            () -> new ResourceNotFoundException("Order not found with id: " + orderId, List.of("ORDER_NOT_FOUND")));
+    Order order = findOrder(orderId);
     if (!isAdmin && !order.getUserEmail().equalsIgnoreCase(requesterEmail)) {
       throw new AccessDeniedException("Invalid credentials", List.of("Access denied"));
     }
     return toResponse(order);
   }
 
-  private HttpEntity<Void> buildAuthEntity(String token) {
-    HttpHeaders headers = new HttpHeaders();
-    headers.set("Authorization", "Bearer " + token);
-    return new HttpEntity<>(headers);
+  private Order findOrder(Long orderId) {
+    return orderRepo.findById(orderId)
+        .orElseThrow(
+            () -> new ResourceNotFoundException("Order not found with id: " + orderId, List.of("ORDER_NOT_FOUND")));
   }
 
-  private void rollbackReserved(Map<Long, Integer> map, String token) {
-    for (Map.Entry<Long, Integer> e : map.entrySet()) {
-      Long bookId = e.getKey();
-      Integer qty = e.getValue();
-      String incUrl = catalogBaseUrl + "/books/" + bookId + "/increment?qty=" + qty;
-      try {
-        HttpEntity<Void> entity = buildAuthEntity(token);
-        restTemplate.exchange(incUrl, HttpMethod.POST, entity, Map.class);
-      } catch (Exception ex) {
-        System.err.println("Failed to rollback increment for book " + bookId + " qty=" + qty + " : " + ex.getMessage());
-      }
+  // releasing is idempotent on the catalog side, so a failure here is left to the reservation TTL
+  private void releaseReservation(Long orderId) {
+    try {
+      catalogClient.release(orderId);
+    } catch (CatalogUnavailableException | CatalogRejectedException ex) {
+      System.err.println("Failed to release stock reservation for order " + orderId + " : " + ex.getMessage());
+    }
+  }
+
+  private static OrderFilter visibleTo(String requesterEmail, boolean isAdmin, OrderFilter filter) {
+    OrderFilter.OrderFilterBuilder visible = filter.toBuilder();
+    if (!isAdmin) {
+      visible.userEmail(requesterEmail);
     }
+    return visible.build();
   }
 
   private OrderResponse toResponse(Order o) {
@@ -237,7 +289,8 @@ public class OrderServiceImpl implements OrderService {
         .id(o.getId())
         .userEmail(o.getUserEmail())
         .totalPrice(o.getTotalPrice())
-        .status(o.getStatus())
+        .status(o.getStatus().name())
+        .statusReason(o.getStatusReason())
         .createdAt(o.getCreatedAt())
         .items(items)
         .build();
@@ -0,0 +1,50 @@
+package user.order_service.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// turns COMPLETED in the same transaction that inserts the order
+@Entity
+@Table(name = "order_idempotency_keys", indexes = {
+        @Index(name = "idx_order_idempotency_keys_user_key", columnList = "user_email, idempotency_key", unique = true),
+        @Index(name = "idx_order_idempotency_keys_expires_at", columnList = "expires_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String COMPLETED = "COMPLETED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_email", nullable = false)
+    private String userEmail;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    // a key reused with a different body is refused rather than answered with the wrong order
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(columnDefinition = "text")
+    private String response;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
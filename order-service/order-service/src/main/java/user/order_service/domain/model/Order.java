@@ -9,7 +9,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_user_email_created_at", columnList = "user_email, created_at"),
+        @Index(name = "idx_orders_status_created_at", columnList = "status, created_at"),
+        @Index(name = "idx_orders_created_at", columnList = "created_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -26,11 +30,19 @@ public class Order {
     @Column(nullable = false)
     private BigDecimal totalPrice;
 
+    // a smallint code, see OrderStatusConverter
     @Column(nullable = false)
-    private String status;
+    private OrderStatus status;
+
+    // why a checkout was rejected, for the client polling the order
+    @Column(length = 500)
+    private String statusReason;
 
     private LocalDateTime createdAt;
 
+    // when the catalog reservation was made; the expiry TTL runs from here, not from createdAt
+    private LocalDateTime pendingSince;
+
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "order_id")
     private List<OrderItem> items = new ArrayList<>();
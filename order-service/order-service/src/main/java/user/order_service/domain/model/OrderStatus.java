@@ -0,0 +1,51 @@
+package user.order_service.domain.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// codes are fixed by hand so reordering the constants never rewrites old rows
+public enum OrderStatus {
+  PENDING_RESERVATION(0),
+  PENDING(1),
+  PAID(2),
+  CANCELLED(3),
+  EXPIRED(4),
+  REJECTED(5);
+
+  private final short code;
+
+  OrderStatus(int code) {
+    this.code = (short) code;
+  }
+
+  public short getCode() {
+    return code;
+  }
+
+  public static OrderStatus fromCode(short code) {
+    for (OrderStatus status : values()) {
+      if (status.code == code) {
+        return status;
+      }
+    }
+    throw new IllegalArgumentException("Unknown order status code " + code);
+  }
+
+  public boolean canBecome(OrderStatus next) {
+    return switch (this) {
+      case PENDING_RESERVATION -> next == PENDING || next == REJECTED || next == CANCELLED;
+      case PENDING -> next == PAID || next == CANCELLED || next == EXPIRED;
+      default -> false;
+    };
+  }
+
+  public Set<OrderStatus> sources() {
+    Set<OrderStatus> from = EnumSet.noneOf(OrderStatus.class);
+    for (OrderStatus status : values()) {
+      if (status.canBecome(this)) {
+        from.add(status);
+      }
+    }
+    return from;
+  }
+}
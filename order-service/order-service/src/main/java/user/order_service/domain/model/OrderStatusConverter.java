@@ -0,0 +1,19 @@
+package user.order_service.domain.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// auto-applied to query parameters too, so JPQL can bind the enum directly
+@Converter(autoApply = true)
+public class OrderStatusConverter implements AttributeConverter<OrderStatus, Short> {
+
+  @Override
+  public Short convertToDatabaseColumn(OrderStatus status) {
+    return status != null ? status.getCode() : null;
+  }
+
+  @Override
+  public OrderStatus convertToEntityAttribute(Short code) {
+    return code != null ? OrderStatus.fromCode(code) : null;
+  }
+}
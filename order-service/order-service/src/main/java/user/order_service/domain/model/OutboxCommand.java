@@ -0,0 +1,53 @@
+package user.order_service.domain.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// a row is leased by pushing next_attempt_at forward while it is worked on, and deleted once done
+@Entity
+@Table(name = "order_outbox", indexes = {
+        @Index(name = "idx_order_outbox_next_attempt_at", columnList = "next_attempt_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxCommand {
+    public static final String RESERVE_STOCK = "RESERVE_STOCK";
+    public static final String RELEASE_STOCK = "RELEASE_STOCK";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(nullable = false, length = 32)
+    private String type;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    public static OutboxCommand of(String type, Long orderId) {
+        LocalDateTime now = LocalDateTime.now();
+        return OutboxCommand.builder()
+                .orderId(orderId)
+                .type(type)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build();
+    }
+}
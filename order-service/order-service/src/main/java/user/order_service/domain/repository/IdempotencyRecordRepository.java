@@ -0,0 +1,52 @@
+package user.order_service.domain.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import user.order_service.domain.model.IdempotencyRecord;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+  Optional<IdempotencyRecord> findByUserEmailAndIdempotencyKey(String userEmail, String idempotencyKey);
+
+  // 1 when this caller now owns the key, 0 when someone already had it
+  @Modifying
+  @Query(value = "insert into order_idempotency_keys "
+      + "(user_email, idempotency_key, request_hash, status, created_at, expires_at) "
+      + "values (:user, :key, :hash, 'IN_PROGRESS', :now, :expiresAt) "
+      + "on conflict (user_email, idempotency_key) do nothing", nativeQuery = true)
+  int claim(@Param("user") String userEmail, @Param("key") String idempotencyKey, @Param("hash") String requestHash,
+      @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+  @Modifying
+  @Query("update IdempotencyRecord r set r.status = 'COMPLETED', r.orderId = :orderId, r.response = :response "
+      + "where r.userEmail = :user and r.idempotencyKey = :key and r.status = 'IN_PROGRESS'")
+  int complete(@Param("user") String userEmail, @Param("key") String idempotencyKey,
+      @Param("orderId") Long orderId, @Param("response") String response);
+
+  @Modifying
+  @Query("delete from IdempotencyRecord r "
+      + "where r.userEmail = :user and r.idempotencyKey = :key and r.status = 'IN_PROGRESS'")
+  int abandon(@Param("user") String userEmail, @Param("key") String idempotencyKey);
+
+  // expired keys, and claims whose owner died before finishing
+  @Modifying
+  @Query(value = "delete from order_idempotency_keys where id in ("
+      + "select id from order_idempotency_keys where expires_at < :now "
+      + "or (status = 'IN_PROGRESS' and created_at < :staleBefore) order by id limit :limit)",
+      nativeQuery = true)
+  int purgeExpired(@Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore,
+      @Param("limit") int limit);
+
+  @Modifying
+  @Query(value = "delete from order_idempotency_keys where id in ("
+      + "select id from order_idempotency_keys where status = 'COMPLETED' order by id limit :limit)",
+      nativeQuery = true)
+  int purgeOldest(@Param("limit") int limit);
+}
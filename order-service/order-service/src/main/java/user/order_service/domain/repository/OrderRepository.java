@@ -1,13 +1,51 @@
 package user.order_service.domain.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import user.order_service.domain.model.Order;
+import user.order_service.domain.model.OrderStatus;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
   List<Order> findByUserEmail(String email);
-}
\ No newline at end of file
+
+  // one conditional UPDATE: the row count says whether the order was still in one of the from statuses.
+  // The persistence context is flushed before and cleared after, so a later read sees the new status
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("update Order o set o.status = :to where o.id = :id and o.status in :from")
+  int transition(@Param("id") Long id, @Param("from") Collection<OrderStatus> from, @Param("to") OrderStatus to);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("update Order o set o.status = :to "
+      + "where o.id = :id and lower(o.userEmail) = lower(:email) and o.status in :from")
+  int transitionOwned(@Param("id") Long id, @Param("email") String ownerEmail,
+      @Param("from") Collection<OrderStatus> from, @Param("to") OrderStatus to);
+
+  default int moveTo(Long id, OrderStatus to) {
+    return transition(id, to.sources(), to);
+  }
+
+  default int moveTo(Long id, String ownerEmail, OrderStatus to) {
+    return transitionOwned(id, ownerEmail, to.sources(), to);
+  }
+
+  @Modifying
+  @Query(value = "update orders set status = :expired where id in ("
+      + "select id from orders where status = :pending and coalesce(pending_since, created_at) < :cutoff "
+      + "order by id limit :limit)",
+      nativeQuery = true)
+  int expireBefore(@Param("pending") short pending, @Param("expired") short expired,
+      @Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+  default int expirePendingBefore(LocalDateTime cutoff, int limit) {
+    return expireBefore(OrderStatus.PENDING.getCode(), OrderStatus.EXPIRED.getCode(), cutoff, limit);
+  }
+}
@@ -0,0 +1,13 @@
+package user.order_service.domain.repository;
+
+import user.order_service.application.dto.OrderFilter;
+import user.order_service.domain.model.Order;
+import user.order_service.infrastructure.utils.Cursor;
+
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+
+  // items come loaded: one query for the page, one for all of its items
+  List<Order> findPage(OrderFilter filter, Cursor after, int limit);
+}
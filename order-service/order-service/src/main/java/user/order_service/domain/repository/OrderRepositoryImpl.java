@@ -0,0 +1,92 @@
+package user.order_service.domain.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import user.order_service.application.dto.OrderFilter;
+import user.order_service.domain.model.Order;
+import user.order_service.infrastructure.utils.Cursor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// the ids are read under LIMIT first, then fetch-joined with their items; fetching items in the
+// limited query would make Hibernate page in memory
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+  private static final String ORDER_BY = " order by o.createdAt desc, o.id desc";
+
+  // (created_at, id) < (:createdAt, :id); the leading created_at <= :createdAt gives the planner a range
+  // end on the created_at indexes, which a bare OR of the two cases does not on every database
+  private static final String AFTER = "o.createdAt <= :afterCreatedAt "
+      + "and (o.createdAt < :afterCreatedAt or o.id < :afterId)";
+
+  @PersistenceContext
+  private EntityManager em;
+
+  @Override
+  public List<Order> findPage(OrderFilter filter, Cursor after, int limit) {
+    TypedQuery<Long> page = em.createQuery("select o.id from Order o" + where(filter, after) + ORDER_BY, Long.class)
+        .setMaxResults(limit);
+    bind(page, filter, after);
+    List<Long> ids = page.getResultList();
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+
+    List<Order> orders = em.createQuery("select distinct o from Order o left join fetch o.items where o.id in :ids",
+        Order.class)
+        .setParameter("ids", ids)
+        .getResultList();
+    return orders.stream()
+        .sorted(Comparator.comparing(Order::getCreatedAt).thenComparing(Order::getId).reversed())
+        .collect(Collectors.toList());
+  }
+
+  private static String where(OrderFilter filter, Cursor after) {
+    List<String> predicates = new ArrayList<>(6);
+    if (filter.getUserEmail() != null) {
+      predicates.add("o.userEmail = :userEmail");
+    }
+    if (filter.getStatus() != null) {
+      predicates.add("o.status = :status");
+    }
+    if (filter.getFrom() != null) {
+      predicates.add("o.createdAt >= :from");
+    }
+    if (filter.getTo() != null) {
+      predicates.add("o.createdAt < :to");
+    }
+    if (filter.getMinTotal() != null) {
+      predicates.add("o.totalPrice >= :minTotal");
+    }
+    if (after != null) {
+      predicates.add(AFTER);
+    }
+    return predicates.isEmpty() ? "" : " where " + String.join(" and ", predicates);
+  }
+
+  private static void bind(TypedQuery<?> query, OrderFilter filter, Cursor after) {
+    if (filter.getUserEmail() != null) {
+      query.setParameter("userEmail", filter.getUserEmail());
+    }
+    if (filter.getStatus() != null) {
+      query.setParameter("status", filter.getStatus());
+    }
+    if (filter.getFrom() != null) {
+      query.setParameter("from", filter.getFrom());
+    }
+    if (filter.getTo() != null) {
+      query.setParameter("to", filter.getTo());
+    }
+    if (filter.getMinTotal() != null) {
+      query.setParameter("minTotal", filter.getMinTotal());
+    }
+    if (after != null) {
+      query.setParameter("afterCreatedAt", after.createdAt());
+      query.setParameter("afterId", after.id());
+    }
+  }
+}
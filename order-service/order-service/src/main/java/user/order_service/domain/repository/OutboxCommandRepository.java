@@ -0,0 +1,25 @@
+package user.order_service.domain.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import user.order_service.domain.model.OutboxCommand;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxCommandRepository extends JpaRepository<OutboxCommand, Long> {
+
+  // rows another dispatcher has locked are skipped rather than waited for
+  @Query(value = "select * from order_outbox where next_attempt_at <= :now "
+      + "order by id limit :limit for update skip locked", nativeQuery = true)
+  List<OutboxCommand> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+  @Modifying
+  @Query("update OutboxCommand c set c.nextAttemptAt = :next, c.lastError = :error where c.id = :id")
+  int reschedule(@Param("id") Long id, @Param("next") LocalDateTime next, @Param("error") String error);
+}
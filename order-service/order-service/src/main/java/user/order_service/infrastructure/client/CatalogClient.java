@@ -1,6 +1,21 @@
 package user.order_service.infrastructure.client;
 
+import user.order_service.application.dto.BookLookupDto;
+import user.order_service.application.dto.StockItemDto;
 
+import java.util.Collection;
+import java.util.List;
+
+// fails with CatalogRejectedException on a client error, CatalogUnavailableException otherwise
 public interface CatalogClient {
 
-}
\ No newline at end of file
+  // ids the catalog does not know are left out
+  List<BookLookupDto> lookup(Collection<Long> ids, String token);
+
+  // the stock calls below carry order-service's own SERVICE token, never the user's
+  void reserve(Long orderId, List<StockItemDto> items);
+
+  void confirm(Long orderId);
+
+  void release(Long orderId);
+}
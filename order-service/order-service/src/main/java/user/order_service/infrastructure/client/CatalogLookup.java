@@ -0,0 +1,121 @@
+package user.order_service.infrastructure.client;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import user.order_service.application.dto.BookLookupDto;
+import user.order_service.infrastructure.exception.CatalogRejectedException;
+import user.order_service.infrastructure.exception.CatalogUnavailableException;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// books whose batch failed, was turned away by the full pool or missed the deadline are reported
+// as unavailable; the rest of the cart is still checked
+@Component
+public class CatalogLookup implements DisposableBean {
+
+  // the catalog refuses lookups of more ids than this in one request
+  private static final int MAX_BATCH_SIZE = 500;
+
+  private final CatalogClient catalogClient;
+  private final int batchSize;
+  private final int parallelism;
+  private final Duration deadline;
+  private final ThreadPoolExecutor executor;
+
+  public CatalogLookup(CatalogClient catalogClient,
+      @Value("${orders.catalog.lookup-batch-size:100}") int batchSize,
+      @Value("${orders.catalog.lookup-parallelism:4}") int parallelism,
+      @Value("${orders.catalog.lookup-threads:16}") int threads,
+      @Value("${orders.catalog.lookup-queue-capacity:64}") int queueCapacity,
+      @Value("${orders.catalog.lookup-deadline-ms:3000}") long deadlineMs) {
+    this.catalogClient = catalogClient;
+    this.batchSize = Math.min(Math.max(1, batchSize), MAX_BATCH_SIZE);
+    this.parallelism = Math.max(1, parallelism);
+    this.deadline = Duration.ofMillis(deadlineMs);
+
+    // the service targets Java 17, so the calls wait on a bounded pool of platform threads
+    AtomicInteger threadNo = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), r -> {
+          Thread t = new Thread(r, "catalog-lookup-" + threadNo.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  public Result lookup(Collection<Long> bookIds, String token) {
+    List<Long> ids = bookIds.stream().distinct().collect(Collectors.toList());
+    List<List<Long>> batches = new ArrayList<>();
+    for (int i = 0; i < ids.size(); i += batchSize) {
+      batches.add(ids.subList(i, Math.min(ids.size(), i + batchSize)));
+    }
+
+    long deadlineAt = System.nanoTime() + deadline.toNanos();
+    Map<Long, BookLookupDto> found = new ConcurrentHashMap<>();
+    Set<Long> answered = ConcurrentHashMap.newKeySet();
+    int lanes = Math.min(parallelism, batches.size());
+    List<Future<?>> running = new ArrayList<>(lanes);
+
+    // each lane fetches every lanes-th batch in turn, which caps the calls one cart has in flight
+    for (int lane = 0; lane < lanes; lane++) {
+      int first = lane;
+      try {
+        running.add(executor.submit(() -> {
+          for (int b = first; b < batches.size() && System.nanoTime() < deadlineAt; b += lanes) {
+            List<Long> batch = batches.get(b);
+            try {
+              catalogClient.lookup(batch, token).forEach(book -> found.put(book.getId(), book));
+              answered.addAll(batch);
+            } catch (CatalogUnavailableException | CatalogRejectedException ex) {
+              System.err.println("Catalog lookup failed for books " + batch + " : " + ex.getMessage());
+            }
+          }
+        }));
+      } catch (RejectedExecutionException ex) {
+        System.err.println("Catalog lookup pool is saturated; " + lanes + " lanes wanted, " + lane + " started");
+        break;
+      }
+    }
+
+    for (Future<?> f : running) {
+      try {
+        f.get(Math.max(0, deadlineAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (ExecutionException ex) {
+        System.err.println("Catalog lookup failed : " + ex.getCause());
+      } catch (TimeoutException ex) {
+        // whatever has not answered by now is reported as unavailable
+        break;
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    running.forEach(f -> f.cancel(true));
+
+    // a book is only trusted once its whole batch answered, so a late answer cannot slip in half way
+    Set<Long> unavailable = new HashSet<>();
+    Map<Long, BookLookupDto> books = new HashMap<>();
+    for (Long id : ids) {
+      if (!answered.contains(id)) {
+        unavailable.add(id);
+      } else if (found.containsKey(id)) {
+        books.put(id, found.get(id));
+      }
+    }
+    return new Result(books, unavailable);
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
+  // ids in neither map nor set do not exist
+  public record Result(Map<Long, BookLookupDto> books, Set<Long> unavailable) {
+  }
+}
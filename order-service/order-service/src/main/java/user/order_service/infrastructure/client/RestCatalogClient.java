@@ -0,0 +1,212 @@
+package user.order_service.infrastructure.client;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+import user.order_service.application.dto.BookLookupDto;
+import user.order_service.application.dto.StockItemDto;
+import user.order_service.application.dto.StockReservationRequest;
+import user.order_service.infrastructure.config.security.JwtUtil;
+import user.order_service.infrastructure.exception.ApiResponse;
+import user.order_service.infrastructure.exception.CatalogRejectedException;
+import user.order_service.infrastructure.exception.CatalogUnavailableException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// one circuit breaker for every call and one bulkhead per operation, so a burst of lookups cannot take
+// the capacity confirmations need. Only lookups are retried; the stock calls change state
+@Component
+public class RestCatalogClient implements CatalogClient {
+
+  private static final String NAME = "catalog";
+
+  private final RestTemplate restTemplate;
+  private final JwtUtil jwtUtil;
+  private final String catalogBaseUrl;
+  private final CircuitBreaker breaker;
+  private final Retry retry;
+  private final Map<Operation, Bulkhead> bulkheads = new EnumMap<>(Operation.class);
+
+  public RestCatalogClient(RestTemplate restTemplate, MeterRegistry meterRegistry, JwtUtil jwtUtil,
+      @Value("${catalog.base-url}") String catalogBaseUrl,
+      @Value("${orders.catalog.breaker-failure-rate:50}") float failureRate,
+      @Value("${orders.catalog.breaker-slow-call-ms:2000}") long slowCallMs,
+      @Value("${orders.catalog.breaker-window:20}") int window,
+      @Value("${orders.catalog.breaker-open-ms:10000}") long openMs,
+      @Value("${orders.catalog.bulkhead-lookup:16}") int lookupConcurrency,
+      @Value("${orders.catalog.bulkhead-stock:8}") int stockConcurrency,
+      @Value("${orders.catalog.bulkhead-wait-ms:100}") long bulkheadWaitMs,
+      @Value("${orders.catalog.retry-attempts:3}") int retryAttempts,
+      @Value("${orders.catalog.retry-backoff-ms:100}") long retryBackoffMs) {
+    this.restTemplate = restTemplate;
+    this.jwtUtil = jwtUtil;
+    this.catalogBaseUrl = catalogBaseUrl;
+
+    CircuitBreakerRegistry breakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+        .failureRateThreshold(failureRate)
+        .slowCallRateThreshold(failureRate)
+        .slowCallDurationThreshold(Duration.ofMillis(slowCallMs))
+        .slidingWindowSize(window)
+        .minimumNumberOfCalls(Math.max(1, window / 2))
+        .waitDurationInOpenState(Duration.ofMillis(openMs))
+        .permittedNumberOfCallsInHalfOpenState(3)
+        .automaticTransitionFromOpenToHalfOpenEnabled(true)
+        // a refusal is a healthy answer, and a full bulkhead says nothing about the catalog
+        .ignoreExceptions(CatalogRejectedException.class, BulkheadFullException.class)
+        .build());
+    this.breaker = breakers.circuitBreaker(NAME);
+    breaker.getEventPublisher().onStateTransition(event -> {
+      Counter.builder("catalog.client.circuit.transitions")
+          .description("Circuit breaker state changes of the catalog client")
+          .tag("from", event.getStateTransition().getFromState().name())
+          .tag("to", event.getStateTransition().getToState().name())
+          .register(meterRegistry)
+          .increment();
+      System.err.println("Catalog circuit breaker " + event.getStateTransition());
+    });
+
+    BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+    for (Operation op : Operation.values()) {
+      bulkheads.put(op, bulkheadRegistry.bulkhead(NAME + "-" + op.label, BulkheadConfig.custom()
+          .maxConcurrentCalls(op == Operation.LOOKUP ? lookupConcurrency : stockConcurrency)
+          .maxWaitDuration(Duration.ofMillis(bulkheadWaitMs))
+          .build()));
+    }
+
+    RetryRegistry retries = RetryRegistry.of(RetryConfig.custom()
+        .maxAttempts(Math.max(1, retryAttempts))
+        .intervalFunction(IntervalFunction.ofExponentialRandomBackoff(Duration.ofMillis(retryBackoffMs), 2.0, 0.5))
+        // an open circuit or a full bulkhead is not retried; that would only add to the load being shed
+        .retryExceptions(CatalogUnavailableException.class)
+        .build());
+    this.retry = retries.retry(NAME);
+
+    TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(breakers).bindTo(meterRegistry);
+    TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+    TaggedRetryMetrics.ofRetryRegistry(retries).bindTo(meterRegistry);
+  }
+
+  @Override
+  public List<BookLookupDto> lookup(Collection<Long> ids, String token) {
+    String joined = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+    ApiResponse<List<BookLookupDto>> body = call(Operation.LOOKUP, () -> restTemplate.exchange(
+        catalogBaseUrl + "/books/lookup?ids={ids}", HttpMethod.GET, new HttpEntity<>(authHeaders(token)),
+        new ParameterizedTypeReference<ApiResponse<List<BookLookupDto>>>() {
+        }, joined).getBody());
+    return body != null && body.getData() != null ? body.getData() : List.of();
+  }
+
+  @Override
+  public void reserve(Long orderId, List<StockItemDto> items) {
+    HttpHeaders headers = authHeaders(jwtUtil.generateServiceToken());
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    StockReservationRequest request = new StockReservationRequest(orderId, items);
+    call(Operation.RESERVE, () -> restTemplate.exchange(catalogBaseUrl + "/books/stock/reserve", HttpMethod.POST,
+        new HttpEntity<>(request, headers), new ParameterizedTypeReference<ApiResponse<List<StockItemDto>>>() {
+        }));
+  }
+
+  @Override
+  public void confirm(Long orderId) {
+    call(Operation.CONFIRM, () -> restTemplate.exchange(
+        catalogBaseUrl + "/books/stock/reservations/{orderId}/confirm", HttpMethod.POST,
+        new HttpEntity<>(authHeaders(jwtUtil.generateServiceToken())), Void.class, orderId));
+  }
+
+  @Override
+  public void release(Long orderId) {
+    call(Operation.RELEASE, () -> restTemplate.exchange(
+        catalogBaseUrl + "/books/stock/reservations/{orderId}/release", HttpMethod.POST,
+        new HttpEntity<>(authHeaders(jwtUtil.generateServiceToken())), Void.class, orderId));
+  }
+
+  // retry wraps the breaker, so every attempt counts towards it and an opening circuit stops the retries
+  private <T> T call(Operation op, Supplier<T> request) {
+    Supplier<T> guarded = CircuitBreaker.decorateSupplier(breaker,
+        Bulkhead.decorateSupplier(bulkheads.get(op), () -> send(op, request)));
+    if (op == Operation.LOOKUP) {
+      guarded = Retry.decorateSupplier(retry, guarded);
+    }
+    try {
+      return guarded.get();
+    } catch (CallNotPermittedException ex) {
+      throw new CatalogUnavailableException("Catalog is unavailable", List.of("Catalog circuit is open"));
+    } catch (BulkheadFullException ex) {
+      throw new CatalogUnavailableException("Catalog is busy",
+          List.of("Too many catalog " + op.label + " calls in flight"));
+    }
+  }
+
+  private <T> T send(Operation op, Supplier<T> request) {
+    try {
+      return request.get();
+    } catch (RestClientResponseException ex) {
+      if (ex.getStatusCode().is4xxClientError()) {
+        ApiResponse<Object> body = decodeError(ex);
+        throw new CatalogRejectedException(
+            body != null && body.getMessage() != null ? body.getMessage() : "Catalog refused " + op.label,
+            body != null && body.getErrors() != null ? body.getErrors() : List.of());
+      }
+      throw new CatalogUnavailableException("Catalog " + op.label + " failed",
+          List.of("Catalog answered " + ex.getStatusCode().value()));
+    } catch (RestClientException ex) {
+      throw new CatalogUnavailableException("Catalog " + op.label + " failed",
+          List.of(String.valueOf(ex.getMessage())));
+    }
+  }
+
+  private static ApiResponse<Object> decodeError(RestClientResponseException ex) {
+    try {
+      return ex.getResponseBodyAs(new ParameterizedTypeReference<ApiResponse<Object>>() {
+      });
+    } catch (RuntimeException notJson) {
+      return null;
+    }
+  }
+
+  private static HttpHeaders authHeaders(String token) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set("Authorization", "Bearer " + token);
+    return headers;
+  }
+
+  private enum Operation {
+    LOOKUP("lookup"), RESERVE("reserve"), CONFIRM("confirm"), RELEASE("release");
+
+    private final String label;
+
+    Operation(String label) {
+      this.label = label;
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package user.order_service.infrastructure.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// a lease wait that grows while requests stay fast means the pool, not the remote service, is the bottleneck
+public class TimedConnectionManager implements HttpClientConnectionManager, ConnPoolControl<HttpRoute> {
+
+  private final PoolingHttpClientConnectionManager pool;
+  private final Timer acquired;
+  private final Timer timedOut;
+
+  public TimedConnectionManager(PoolingHttpClientConnectionManager pool, MeterRegistry registry, String name) {
+    this.pool = pool;
+    this.acquired = leaseTimer(registry, name, "acquired");
+    this.timedOut = leaseTimer(registry, name, "timeout");
+  }
+
+  @Override
+  public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+    LeaseRequest lease = pool.lease(id, route, requestTimeout, state);
+    return new LeaseRequest() {
+      @Override
+      public ConnectionEndpoint get(Timeout timeout)
+          throws InterruptedException, ExecutionException, TimeoutException {
+        long begin = System.nanoTime();
+        try {
+          ConnectionEndpoint endpoint = lease.get(timeout);
+          acquired.record(System.nanoTime() - begin, TimeUnit.NANOSECONDS);
+          return endpoint;
+        } catch (TimeoutException ex) {
+          timedOut.record(System.nanoTime() - begin, TimeUnit.NANOSECONDS);
+          throw ex;
+        }
+      }
+
+      @Override
+      public boolean cancel() {
+        return lease.cancel();
+      }
+    };
+  }
+
+  @Override
+  public void release(ConnectionEndpoint endpoint, Object newState, TimeValue validDuration) {
+    pool.release(endpoint, newState, validDuration);
+  }
+
+  @Override
+  public void connect(ConnectionEndpoint endpoint, TimeValue connectTimeout, HttpContext context)
+      throws IOException {
+    pool.connect(endpoint, connectTimeout, context);
+  }
+
+  @Override
+  public void upgrade(ConnectionEndpoint endpoint, HttpContext context) throws IOException {
+    pool.upgrade(endpoint, context);
+  }
+
+  @Override
+  public void close(CloseMode closeMode) {
+    pool.close(closeMode);
+  }
+
+  @Override
+  public void close() throws IOException {
+    pool.close();
+  }
+
+  @Override
+  public void setMaxTotal(int max) {
+    pool.setMaxTotal(max);
+  }
+
+  @Override
+  public int getMaxTotal() {
+    return pool.getMaxTotal();
+  }
+
+  @Override
+  public void setDefaultMaxPerRoute(int max) {
+    pool.setDefaultMaxPerRoute(max);
+  }
+
+  @Override
+  public int getDefaultMaxPerRoute() {
+    return pool.getDefaultMaxPerRoute();
+  }
+
+  @Override
+  public void setMaxPerRoute(HttpRoute route, int max) {
+    pool.setMaxPerRoute(route, max);
+  }
+
+  @Override
+  public int getMaxPerRoute(HttpRoute route) {
+    return pool.getMaxPerRoute(route);
+  }
+
+  @Override
+  public void closeIdle(TimeValue idleTime) {
+    pool.closeIdle(idleTime);
+  }
+
+  @Override
+  public void closeExpired() {
+    pool.closeExpired();
+  }
+
+  @Override
+  public Set<HttpRoute> getRoutes() {
+    return pool.getRoutes();
+  }
+
+  @Override
+  public PoolStats getTotalStats() {
+    return pool.getTotalStats();
+  }
+
+  @Override
+  public PoolStats getStats(HttpRoute route) {
+    return pool.getStats(route);
+  }
+
+  private static Timer leaseTimer(MeterRegistry registry, String name, String result) {
+    return Timer.builder("httpcomponents.httpclient.pool.lease")
+        .description("Time spent waiting for a pooled connection")
+        .tag("httpclient", name)
+        .tag("result", result)
+        .publishPercentileHistogram()
+        .register(registry);
+  }
+}
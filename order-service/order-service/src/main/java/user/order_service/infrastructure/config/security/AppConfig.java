@@ -1,14 +1,72 @@
 package user.order_service.infrastructure.config.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
+import user.order_service.infrastructure.client.TimedConnectionManager;
+
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class AppConfig {
 
+  private static final String CLIENT_NAME = "services";
+
+  // one pool for every call to the other services; the builder adds the per-endpoint http.client.requests timers
+  @Bean
+  public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient httpClient) {
+    return builder
+        .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+        .build();
+  }
+
   @Bean
-  public RestTemplate restTemplate() {
-    return new RestTemplate();
+  public CloseableHttpClient httpClient(MeterRegistry registry,
+      @Value("${http-client.max-total:100}") int maxTotal,
+      @Value("${http-client.max-per-route:20}") int maxPerRoute,
+      @Value("${http-client.connect-timeout-ms:1000}") long connectTimeoutMs,
+      @Value("${http-client.read-timeout-ms:5000}") long readTimeoutMs,
+      @Value("${http-client.lease-timeout-ms:1000}") long leaseTimeoutMs,
+      @Value("${http-client.keep-alive-ms:30000}") long keepAliveMs,
+      @Value("${http-client.idle-evict-ms:30000}") long idleEvictMs,
+      @Value("${http-client.time-to-live-ms:300000}") long timeToLiveMs,
+      @Value("${http-client.validate-after-inactivity-ms:2000}") long validateAfterInactivityMs) {
+    PoolingHttpClientConnectionManager pool = PoolingHttpClientConnectionManagerBuilder.create()
+        .setMaxConnTotal(maxTotal)
+        .setMaxConnPerRoute(maxPerRoute)
+        .setDefaultConnectionConfig(ConnectionConfig.custom()
+            .setConnectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+            .setSocketTimeout((int) readTimeoutMs, TimeUnit.MILLISECONDS)
+            // a connection the other side may have dropped while idle is checked before reuse
+            .setValidateAfterInactivity(validateAfterInactivityMs, TimeUnit.MILLISECONDS)
+            // bounds how long a connection sticks to one instance behind a load balancer
+            .setTimeToLive(timeToLiveMs, TimeUnit.MILLISECONDS)
+            .build())
+        .build();
+    new PoolingHttpClientConnectionManagerMetricsBinder(pool, CLIENT_NAME).bindTo(registry);
+
+    return HttpClients.custom()
+        .setConnectionManager(new TimedConnectionManager(pool, registry, CLIENT_NAME))
+        .setDefaultRequestConfig(RequestConfig.custom()
+            .setConnectionRequestTimeout(leaseTimeoutMs, TimeUnit.MILLISECONDS)
+            .setResponseTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+            // used when a response does not say how long the connection may be kept
+            .setDefaultKeepAlive(keepAliveMs, TimeUnit.MILLISECONDS)
+            .build())
+        .evictExpiredConnections()
+        .evictIdleConnections(TimeValue.ofMilliseconds(idleEvictMs))
+        .build();
   }
 }
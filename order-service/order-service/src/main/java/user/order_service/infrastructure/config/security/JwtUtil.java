@@ -15,6 +15,8 @@ import org.springframework.stereotype.Component;
 @Component
 public class JwtUtil {
 
+    private static final String SERVICE_SUBJECT = "order-service";
+
     private final Key key;
     private final long expirationMs;
 
@@ -35,6 +37,11 @@ public class JwtUtil {
                 .compact();
     }
 
+    // order-service's own identity, for the catalog calls only ADMIN and SERVICE may make
+    public String generateServiceToken() {
+        return generateToken(SERVICE_SUBJECT, "SERVICE");
+    }
+
     public Claims extractClaims(String token) {
         return Jwts.parserBuilder()
                 .setSigningKey(key)
@@ -28,6 +28,8 @@ public class SecurityConfig {
                                                 .requestMatchers("/api/v1/auth/**").permitAll()
                                                 .requestMatchers(HttpMethod.POST, "/api/v1/orders")
                                                 .hasAnyRole("USER", "ADMIN")
+                                                .requestMatchers(HttpMethod.POST, "/api/v1/orders/checkout")
+                                                .hasAnyRole("USER", "ADMIN")
                                                 .requestMatchers(HttpMethod.POST, "/api/v1/orders/{id}/cancel")
                                                 .hasAnyRole("USER", "ADMIN")
                                                 .requestMatchers(HttpMethod.POST, "/api/v1/orders/{id}/pay")
@@ -1,15 +1,27 @@
 package user.order_service.infrastructure.controller;
 
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import user.order_service.application.dto.CreateOrderRequest;
+import user.order_service.application.dto.CursorPage;
+import user.order_service.application.dto.OrderFilter;
 import user.order_service.application.dto.OrderResponse;
+import user.order_service.application.service.IdempotencyService;
 import user.order_service.application.service.OrderService;
+import user.order_service.domain.model.OrderStatus;
 import user.order_service.infrastructure.config.security.JwtUtil;
 import user.order_service.infrastructure.exception.ApiResponse;
+import user.order_service.infrastructure.exception.BadRequestException;
 
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
@@ -17,25 +29,65 @@ import java.util.Map;
 public class OrderController {
 
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
     private final JwtUtil jwtUtil;
 
-    public OrderController(OrderService orderService, JwtUtil jwtUtil) {
+    public OrderController(OrderService orderService, IdempotencyService idempotencyService, JwtUtil jwtUtil) {
         this.orderService = orderService;
+        this.idempotencyService = idempotencyService;
         this.jwtUtil = jwtUtil;
     }
 
     @PostMapping("/orders")
     public ResponseEntity<?> createOrder(
             @Valid @RequestBody CreateOrderRequest request,
-            @RequestHeader("Authorization") String tokenHeader) {
+            @RequestHeader("Authorization") String tokenHeader,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
 
         String token = stripBearer(tokenHeader);
         String email = jwtUtil.extractEmail(token);
 
-        OrderResponse response = orderService.createOrder(email, request, token);
+        if (idempotencyKey == null) {
+            OrderResponse response = orderService.createOrder(email, request, token);
+            return ResponseEntity.ok(ApiResponse.success("Order created successfully", response));
+        }
+
+        // a retry with the same key gets the order the first request created
+        IdempotencyService.Outcome outcome = idempotencyService.createOnce(email, idempotencyKey, request,
+                () -> orderService.createOrder(email, request, token));
+
+        return ResponseEntity.ok()
+                .header("Idempotent-Replayed", String.valueOf(outcome.replayed()))
+                .body(ApiResponse.success("Order created successfully", outcome.order()));
+
+    }
 
-        return ResponseEntity.ok(ApiResponse.success("Order created successfully", response));
+    // answers at once with 202; the order is priced and its stock reserved in the background
+    @PostMapping("/orders/checkout")
+    public ResponseEntity<?> checkout(
+            @Valid @RequestBody CreateOrderRequest request,
+            @RequestHeader("Authorization") String tokenHeader,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+
+        String token = stripBearer(tokenHeader);
+        String email = jwtUtil.extractEmail(token);
 
+        OrderResponse response;
+        boolean replayed = false;
+        if (idempotencyKey == null) {
+            response = orderService.checkout(email, request);
+        } else {
+            IdempotencyService.Outcome outcome = idempotencyService.createOnce(email, idempotencyKey, request,
+                    () -> orderService.checkout(email, request));
+            response = outcome.order();
+            replayed = outcome.replayed();
+        }
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/orders/" + response.getId()))
+                .header("Idempotent-Replayed", String.valueOf(replayed))
+                .body(ApiResponse.success("Order accepted, follow its status at /api/v1/orders/" + response.getId(),
+                        response));
     }
 
     @PostMapping("/orders/{id}/pay")
@@ -62,7 +114,7 @@ public class OrderController {
         String token = stripBearer(tokenHeader);
         String email = jwtUtil.extractEmail(token);
 
-        OrderResponse response = orderService.cancelOrder(id, email, token);
+        OrderResponse response = orderService.cancelOrder(id, email);
 
         return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -72,20 +124,35 @@ public class OrderController {
 
     @GetMapping("/orders")
     public ResponseEntity<?> listOrders(
-            @RequestHeader("Authorization") String tokenHeader) {
+            @RequestHeader("Authorization") String tokenHeader,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) BigDecimal minTotal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
 
         String token = stripBearer(tokenHeader);
-        String email = jwtUtil.extractEmail(token);
+        String requester = jwtUtil.extractEmail(token);
         String role = jwtUtil.extractRole(token);
 
         boolean isAdmin = "ADMIN".equalsIgnoreCase(role);
-
-        List<OrderResponse> list = orderService.listOrders(email, isAdmin);
-
-        return ResponseEntity.ok(Map.of(
-                "success", true,
-                "message", "Orders retrieved",
-                "data", list));
+        OrderFilter filter = OrderFilter.builder()
+                .status(parseStatus(status))
+                .from(from)
+                .to(to)
+                .userEmail(email)
+                .minTotal(minTotal)
+                .build();
+
+        // without a cursor this is the first page; pass back nextCursor for the rest
+        CursorPage<OrderResponse> page = orderService.scrollOrders(requester, isAdmin, filter, cursor, size);
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", page.getContent());
+        response.put("size", size);
+        response.put("nextCursor", page.getNextCursor());
+        return ResponseEntity.ok(ApiResponse.success("Orders retrieved", response));
     }
 
     @GetMapping("/orders/{id}")
@@ -106,6 +173,17 @@ public class OrderController {
 
     }
 
+    private static OrderStatus parseStatus(String status) {
+        if (status == null || status.isBlank())
+            return null;
+        try {
+            return OrderStatus.valueOf(status.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("Invalid status",
+                    List.of("status must be one of " + Arrays.toString(OrderStatus.values())));
+        }
+    }
+
     private String stripBearer(String header) {
         if (header == null)
             throw new IllegalArgumentException("Authorization header missing");
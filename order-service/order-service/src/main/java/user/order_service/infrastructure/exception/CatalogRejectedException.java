@@ -0,0 +1,17 @@
+package user.order_service.infrastructure.exception;
+
+import java.util.List;
+
+// the catalog answered and said no; the errors are the ones it sent back
+public class CatalogRejectedException extends RuntimeException {
+  private final List<String> errors;
+
+  public CatalogRejectedException(String message, List<String> errors) {
+    super(message);
+    this.errors = errors;
+  }
+
+  public List<String> getErrors() {
+    return errors;
+  }
+}
@@ -0,0 +1,17 @@
+package user.order_service.infrastructure.exception;
+
+import java.util.List;
+
+// the catalog could not be asked: it failed, timed out, its circuit is open or too many calls are in flight
+public class CatalogUnavailableException extends RuntimeException {
+  private final List<String> errors;
+
+  public CatalogUnavailableException(String message, List<String> errors) {
+    super(message);
+    this.errors = errors;
+  }
+
+  public List<String> getErrors() {
+    return errors;
+  }
+}
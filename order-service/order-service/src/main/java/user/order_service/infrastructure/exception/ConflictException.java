@@ -0,0 +1,16 @@
+package user.order_service.infrastructure.exception;
+
+import java.util.List;
+
+public class ConflictException extends RuntimeException {
+  private final List<String> errors;
+
+  public ConflictException(String message, List<String> errors) {
+    super(message);
+    this.errors = errors;
+  }
+
+  public List<String> getErrors() {
+    return errors;
+  }
+}
@@ -24,6 +24,18 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
+    @ExceptionHandler(ConflictException.class)
+    public ResponseEntity<ApiResponse<Object>> handleConflict(ConflictException ex) {
+        ApiResponse<Object> response = ApiResponse.failure(ex.getMessage(), ex.getErrors());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    @ExceptionHandler(CatalogUnavailableException.class)
+    public ResponseEntity<ApiResponse<Object>> handleCatalogUnavailable(CatalogUnavailableException ex) {
+        ApiResponse<Object> response = ApiResponse.failure(ex.getMessage(), ex.getErrors());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+
     @ExceptionHandler(AccessDeniedException.class)
     public ResponseEntity<ErrorResponse> handleAccessDenied(AccessDeniedException ex) {
         ErrorResponse er = new ErrorResponse(false, "Invalid credentials", List.of("Access denied"));
@@ -0,0 +1,32 @@
+package user.order_service.infrastructure.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+import user.order_service.infrastructure.exception.BadRequestException;
+
+// clients only ever see the opaque encoded form
+public record Cursor(LocalDateTime createdAt, Long id) {
+
+  public String encode() {
+    String raw = id + "\n" + createdAt;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  // a blank cursor decodes to null, the newest order
+  public static Cursor decode(String cursor) {
+    if (cursor == null || cursor.isBlank()) {
+      return null;
+    }
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int newline = raw.indexOf('\n');
+      return new Cursor(LocalDateTime.parse(raw.substring(newline + 1)), Long.parseLong(raw.substring(0, newline)));
+    } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+      throw new BadRequestException("Invalid cursor", List.of("cursor is malformed"));
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package user.order_service.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import user.order_service.application.dto.BookLookupDto;
+import user.order_service.domain.model.Order;
+import user.order_service.domain.model.OrderItem;
+import user.order_service.domain.model.OrderStatus;
+import user.order_service.domain.model.OutboxCommand;
+import user.order_service.domain.repository.OrderRepository;
+import user.order_service.domain.repository.OutboxCommandRepository;
+import user.order_service.infrastructure.client.CatalogClient;
+import user.order_service.infrastructure.client.CatalogLookup;
+import user.order_service.infrastructure.config.security.JwtUtil;
+import user.order_service.infrastructure.exception.CatalogUnavailableException;
+
+class CheckoutDispatcherTests {
+
+  private static final long ORDER_ID = 42L;
+
+  private final OrderRepository orderRepo = mock(OrderRepository.class);
+  private final OutboxCommandRepository outboxRepo = mock(OutboxCommandRepository.class);
+  private final CatalogClient catalogClient = mock(CatalogClient.class);
+  private final CatalogLookup catalogLookup = mock(CatalogLookup.class);
+  private final JwtUtil jwtUtil = new JwtUtil("ThisIsASuperSecureAndVeryLongSecretKey1234567890", 60_000);
+  private Order order;
+  private CheckoutDispatcher dispatcher;
+
+  @BeforeEach
+  void setUp() {
+    order = Order.builder()
+        .id(ORDER_ID)
+        .userEmail("reader@example.com")
+        .totalPrice(BigDecimal.ZERO)
+        .status(OrderStatus.PENDING_RESERVATION)
+        .createdAt(LocalDateTime.now())
+        .items(new ArrayList<>(List.of(
+            OrderItem.builder().bookId(1L).quantity(2).build(),
+            OrderItem.builder().bookId(2L).quantity(1).build())))
+        .build();
+    when(orderRepo.findById(ORDER_ID)).thenAnswer(inv -> Optional.of(order));
+    when(orderRepo.moveTo(eq(ORDER_ID), any(OrderStatus.class))).thenAnswer(inv -> {
+      OrderStatus to = inv.getArgument(1);
+      if (!order.getStatus().canBecome(to)) {
+        return 0;
+      }
+      order.setStatus(to);
+      return 1;
+    });
+
+    dispatcher = new CheckoutDispatcher(orderRepo, outboxRepo, catalogClient, catalogLookup, jwtUtil,
+        mock(PlatformTransactionManager.class), 32, 1, 30_000, 3, 1_000, 60_000);
+  }
+
+  @Test
+  void aReservedOrderIsPricedAndAwaitsPayment() {
+    stock(5, 5);
+
+    dispatcher.handle(command(1));
+
+    assertEquals(OrderStatus.PENDING, order.getStatus());
+    assertEquals(new BigDecimal("250"), order.getTotalPrice());
+    verify(catalogClient).reserve(eq(ORDER_ID), anyList());
+    verify(outboxRepo).deleteById(7L);
+    verify(outboxRepo, never()).save(any());
+  }
+
+  @Test
+  void anOrderTheCatalogCannotFillIsRejectedWithTheReason() {
+    stock(5, 0);
+
+    dispatcher.handle(command(1));
+
+    assertEquals(OrderStatus.REJECTED, order.getStatus());
+    assertEquals("Not enough stock for book id 2", order.getStatusReason());
+    verify(catalogClient, never()).reserve(anyLong(), anyList());
+    verify(outboxRepo).deleteById(7L);
+  }
+
+  @Test
+  void anUnreachableCatalogIsRetriedAndFinallyCompensated() {
+    stock(5, 5);
+    doThrow(new CatalogUnavailableException("Catalog reserve failed", List.of("timeout")))
+        .when(catalogClient).reserve(anyLong(), anyList());
+
+    dispatcher.handle(command(1));
+    verify(outboxRepo).reschedule(eq(7L), any(), eq("Catalog reserve failed: timeout"));
+    assertEquals(OrderStatus.PENDING_RESERVATION, order.getStatus());
+
+    // a retry first drops whatever the failed attempt may have reserved
+    dispatcher.handle(command(2));
+    verify(catalogClient).release(eq(ORDER_ID));
+
+    dispatcher.handle(command(3));
+    assertEquals(OrderStatus.REJECTED, order.getStatus());
+    ArgumentCaptor<OutboxCommand> queued = ArgumentCaptor.forClass(OutboxCommand.class);
+    verify(outboxRepo).save(queued.capture());
+    assertEquals(OutboxCommand.RELEASE_STOCK, queued.getValue().getType());
+    assertEquals(ORDER_ID, queued.getValue().getOrderId());
+  }
+
+  @Test
+  void anOrderCancelledWhileReservingGivesItsStockBack() {
+    stock(5, 5);
+    doAnswer(inv -> {
+      order.setStatus(OrderStatus.CANCELLED);
+      return null;
+    }).when(catalogClient).reserve(anyLong(), anyList());
+
+    dispatcher.handle(command(1));
+
+    assertEquals(OrderStatus.CANCELLED, order.getStatus());
+    ArgumentCaptor<OutboxCommand> queued = ArgumentCaptor.forClass(OutboxCommand.class);
+    verify(outboxRepo).save(queued.capture());
+    assertEquals(OutboxCommand.RELEASE_STOCK, queued.getValue().getType());
+  }
+
+  private void stock(int first, int second) {
+    when(catalogLookup.lookup(anyList(), anyString())).thenReturn(new CatalogLookup.Result(Map.of(
+        1L, new BookLookupDto(1L, "Book 1", new BigDecimal("100"), first),
+        2L, new BookLookupDto(2L, "Book 2", new BigDecimal("50"), second)), Set.of()));
+  }
+
+  private static OutboxCommand command(int attempt) {
+    OutboxCommand command = OutboxCommand.of(OutboxCommand.RESERVE_STOCK, ORDER_ID);
+    command.setId(7L);
+    command.setAttempts(attempt);
+    return command;
+  }
+}
@@ -0,0 +1,157 @@
+package user.order_service.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import user.order_service.application.dto.CreateOrderRequest;
+import user.order_service.application.dto.OrderItemDto;
+import user.order_service.application.dto.OrderResponse;
+import user.order_service.domain.model.IdempotencyRecord;
+import user.order_service.domain.repository.IdempotencyRecordRepository;
+import user.order_service.infrastructure.exception.BadRequestException;
+import user.order_service.infrastructure.exception.ResourceNotFoundException;
+
+class IdempotencyServiceTests {
+
+  private static final String USER = "reader@example.com";
+
+  // the key table, keyed like its unique index
+  private final Map<String, IdempotencyRecord> table = new ConcurrentHashMap<>();
+  private final AtomicLong orderIds = new AtomicLong();
+  private final AtomicInteger creates = new AtomicInteger();
+  private IdempotencyService service;
+
+  @BeforeEach
+  void setUp() {
+    IdempotencyRecordRepository repo = mock(IdempotencyRecordRepository.class);
+    when(repo.claim(anyString(), anyString(), anyString(), any(), any())).thenAnswer(inv -> {
+      IdempotencyRecord record = new IdempotencyRecord(null, inv.getArgument(0), inv.getArgument(1),
+          inv.getArgument(2), IdempotencyRecord.IN_PROGRESS, null, null, inv.getArgument(3), inv.getArgument(4));
+      return table.putIfAbsent(id(inv.getArgument(0), inv.getArgument(1)), record) == null ? 1 : 0;
+    });
+    when(repo.findByUserEmailAndIdempotencyKey(anyString(), anyString()))
+        .thenAnswer(inv -> Optional.ofNullable(table.get(id(inv.getArgument(0), inv.getArgument(1)))));
+    when(repo.complete(anyString(), anyString(), anyLong(), anyString())).thenAnswer(inv -> {
+      IdempotencyRecord record = table.get(id(inv.getArgument(0), inv.getArgument(1)));
+      record.setOrderId(inv.getArgument(2));
+      record.setResponse(inv.getArgument(3));
+      record.setStatus(IdempotencyRecord.COMPLETED);
+      return 1;
+    });
+    when(repo.abandon(anyString(), anyString()))
+        .thenAnswer(inv -> table.remove(id(inv.getArgument(0), inv.getArgument(1))) != null ? 1 : 0);
+
+    service = new IdempotencyService(repo, new ObjectMapper().findAndRegisterModules(),
+        mock(PlatformTransactionManager.class), 86_400, 5_000, 20, 120, 1_000_000, 1_000);
+  }
+
+  @Test
+  void aRetryGetsTheFirstOrderBackWithoutCreatingAnother() {
+    IdempotencyService.Outcome first = service.createOnce(USER, "k-1", request(3), this::create);
+    IdempotencyService.Outcome retry = service.createOnce(USER, "k-1", request(3), this::create);
+
+    assertFalse(first.replayed());
+    assertTrue(retry.replayed());
+    assertEquals(first.order(), retry.order());
+    assertEquals(1, creates.get());
+  }
+
+  @Test
+  void concurrentDuplicatesWaitForTheRunningRequest() throws Exception {
+    ExecutorService clients = Executors.newFixedThreadPool(5);
+    List<Future<IdempotencyService.Outcome>> calls = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      calls.add(clients.submit(() -> service.createOnce(USER, "k-2", request(1), () -> {
+        sleep(200);
+        return create();
+      })));
+    }
+
+    int replayed = 0;
+    for (Future<IdempotencyService.Outcome> call : calls) {
+      IdempotencyService.Outcome outcome = call.get(5, TimeUnit.SECONDS);
+      assertEquals(1L, outcome.order().getId());
+      replayed += outcome.replayed() ? 1 : 0;
+    }
+    clients.shutdown();
+
+    assertEquals(1, creates.get());
+    assertEquals(4, replayed);
+  }
+
+  @Test
+  void aKeyReusedForADifferentRequestIsRefused() {
+    service.createOnce(USER, "k-3", request(1), this::create);
+
+    assertThrows(BadRequestException.class, () -> service.createOnce(USER, "k-3", request(2), this::create));
+    // another user's key of the same name is unrelated
+    assertFalse(service.createOnce("other@example.com", "k-3", request(2), this::create).replayed());
+  }
+
+  @Test
+  void aFailedAttemptLetsTheNextRetryRun() {
+    Supplier<OrderResponse> outOfStock = () -> {
+      throw new ResourceNotFoundException("Validation failed", List.of("Not enough stock for book id 1"));
+    };
+    assertThrows(ResourceNotFoundException.class, () -> service.createOnce(USER, "k-4", request(1), outOfStock));
+
+    assertFalse(service.createOnce(USER, "k-4", request(1), this::create).replayed());
+    assertEquals(1, creates.get());
+  }
+
+  private OrderResponse create() {
+    creates.incrementAndGet();
+    return OrderResponse.builder()
+        .id(orderIds.incrementAndGet())
+        .userEmail(USER)
+        .totalPrice(new BigDecimal("10000"))
+        .status("PENDING")
+        .createdAt(LocalDateTime.of(2024, 1, 1, 12, 0))
+        .items(List.of(new OrderItemDto(1L, 1, new BigDecimal("10000"))))
+        .build();
+  }
+
+  private static CreateOrderRequest request(int quantity) {
+    return new CreateOrderRequest(List.of(new OrderItemDto(1L, quantity, null)));
+  }
+
+  private static String id(String user, String key) {
+    return user + '\n' + key;
+  }
+
+  private static void sleep(long ms) {
+    try {
+      Thread.sleep(ms);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
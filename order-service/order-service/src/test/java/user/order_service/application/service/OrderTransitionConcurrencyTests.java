@@ -0,0 +1,158 @@
+package user.order_service.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import user.order_service.domain.model.Order;
+import user.order_service.domain.model.OrderItem;
+import user.order_service.domain.model.OrderStatus;
+import user.order_service.domain.model.OutboxCommand;
+import user.order_service.domain.repository.OrderRepository;
+import user.order_service.domain.repository.OutboxCommandRepository;
+import user.order_service.infrastructure.client.CatalogClient;
+import user.order_service.infrastructure.client.CatalogLookup;
+import user.order_service.infrastructure.exception.BadRequestException;
+
+// exactly one of pay and cancel may win each order. Sizes can be raised with -Dbench.threads and
+// -Dbench.orders
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:ordertransitions;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.show-sql=false",
+    "spring.datasource.hikari.maximum-pool-size=32"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OrderServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderTransitionConcurrencyTests {
+
+  private static final String OWNER = "reader@example.com";
+
+  @MockBean
+  private CatalogClient catalogClient;
+
+  @MockBean
+  private CatalogLookup catalogLookup;
+
+  @Autowired
+  private OrderService orderService;
+
+  @Autowired
+  private OrderRepository orderRepo;
+
+  @Autowired
+  private OutboxCommandRepository outboxRepo;
+
+  @Test
+  void payAndCancelNeverBothWinAnOrder() throws Exception {
+    int threads = Integer.getInteger("bench.threads", 16);
+    int orders = Integer.getInteger("bench.orders", 400);
+
+    Set<Long> confirmed = ConcurrentHashMap.newKeySet();
+    doAnswer(inv -> confirmed.add(inv.getArgument(0))).when(catalogClient).confirm(anyLong());
+
+    List<Long> ids = seed(orders);
+    Map<Long, String> paid = new ConcurrentHashMap<>();
+    Map<Long, String> cancelled = new ConcurrentHashMap<>();
+    List<Runnable> calls = new ArrayList<>(orders * 2);
+    for (Long id : ids) {
+      calls.add(() -> paid.put(id, outcome(() -> orderService.payOrder(id, OWNER).getStatus())));
+      calls.add(() -> cancelled.put(id, outcome(() -> orderService.cancelOrder(id, OWNER).getStatus())));
+    }
+    Collections.shuffle(calls, new Random(42));
+
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    for (Runnable call : calls) {
+      pool.submit(() -> {
+        start.await();
+        call.run();
+        return null;
+      });
+    }
+    long begin = System.nanoTime();
+    start.countDown();
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(5, TimeUnit.MINUTES));
+    long elapsed = System.nanoTime() - begin;
+
+    System.out.printf("%d pay/cancel calls on %d orders, %d threads: %.0f calls/s%n",
+        calls.size(), orders, threads, calls.size() / (elapsed / 1_000_000_000.0));
+
+    Map<Long, OrderStatus> finals = orderRepo.findAllById(ids).stream()
+        .collect(Collectors.toMap(Order::getId, Order::getStatus));
+    Set<Long> released = outboxRepo.findAll().stream()
+        .filter(c -> OutboxCommand.RELEASE_STOCK.equals(c.getType()))
+        .map(OutboxCommand::getOrderId)
+        .collect(Collectors.toSet());
+    for (Long id : ids) {
+      if (finals.get(id) == OrderStatus.PAID) {
+        assertEquals("PAID", paid.get(id));
+        assertEquals("Cannot cancel a paid order", cancelled.get(id));
+        assertTrue(confirmed.contains(id));
+        assertFalse(released.contains(id));
+      } else {
+        assertEquals(OrderStatus.CANCELLED, finals.get(id));
+        assertEquals("CANCELLED", cancelled.get(id));
+        assertEquals("Cannot pay a cancelled order", paid.get(id));
+        assertFalse(confirmed.contains(id));
+        assertTrue(released.contains(id));
+      }
+    }
+  }
+
+  // the status a call left the order in, or the reason it was refused
+  private static String outcome(Supplier<String> call) {
+    try {
+      return call.get();
+    } catch (BadRequestException ex) {
+      return ex.getErrors().get(0);
+    }
+  }
+
+  private List<Long> seed(int orders) {
+    outboxRepo.deleteAll();
+    orderRepo.deleteAll();
+    List<Order> pending = new ArrayList<>(orders);
+    for (int i = 0; i < orders; i++) {
+      pending.add(Order.builder()
+          .userEmail(OWNER)
+          .status(OrderStatus.PENDING)
+          .totalPrice(new BigDecimal("10000"))
+          .createdAt(LocalDateTime.now())
+          .items(new ArrayList<>(List.of(OrderItem.builder().bookId(1L).quantity(1)
+              .price(new BigDecimal("10000")).build())))
+          .build());
+    }
+    return orderRepo.saveAll(pending).stream().map(Order::getId).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,133 @@
+package user.order_service.domain.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.hibernate.Hibernate;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import user.order_service.application.dto.OrderFilter;
+import user.order_service.domain.model.Order;
+import user.order_service.domain.model.OrderItem;
+import user.order_service.domain.model.OrderStatus;
+import user.order_service.infrastructure.utils.Cursor;
+
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:orderlisting;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "user.order_service.domain.repository.OrderListingTests$SelectCounter"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderListingTests {
+
+  private static final int ORDERS = 120;
+  private static final int PAGE = 7;
+  private static final List<String> USERS = List.of("a@example.com", "b@example.com", "c@example.com");
+  private static final List<OrderStatus> STATUSES = List.of(OrderStatus.PENDING, OrderStatus.PAID,
+      OrderStatus.CANCELLED);
+  private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+  @Autowired
+  private OrderRepository orderRepo;
+
+  private List<Order> seeded;
+  private Map<Long, Integer> itemCounts;
+
+  @BeforeEach
+  void seed() {
+    orderRepo.deleteAll();
+    List<Order> orders = new ArrayList<>(ORDERS);
+    for (int i = 0; i < ORDERS; i++) {
+      List<OrderItem> items = new ArrayList<>();
+      for (int j = 0; j <= i % 3; j++) {
+        items.add(OrderItem.builder().bookId(10L + j).quantity(1 + j).price(new BigDecimal("10000")).build());
+      }
+      orders.add(Order.builder()
+          .userEmail(USERS.get(i % USERS.size()))
+          .status(STATUSES.get(i / 2 % STATUSES.size()))
+          .totalPrice(BigDecimal.valueOf(10_000L * (1 + i % 7)))
+          // pairs of orders share a timestamp, so the id has to break the tie
+          .createdAt(START.plusMinutes(i / 2))
+          .items(items)
+          .build());
+    }
+    seeded = orderRepo.saveAll(orders);
+    itemCounts = seeded.stream().collect(Collectors.toMap(Order::getId, o -> o.getItems().size()));
+  }
+
+  @Test
+  void keysetPagesWalkEveryMatchingOrderOnceWithTwoQueriesEach() {
+    List<OrderFilter> filters = List.of(
+        OrderFilter.builder().build(),
+        OrderFilter.builder().userEmail("a@example.com").build(),
+        OrderFilter.builder().status(OrderStatus.PAID).minTotal(new BigDecimal("30000")).build(),
+        OrderFilter.builder().userEmail("b@example.com").status(OrderStatus.PENDING)
+            .from(START.plusMinutes(10)).to(START.plusMinutes(50)).build());
+
+    for (OrderFilter filter : filters) {
+      List<Long> walked = new ArrayList<>();
+      Cursor after = null;
+      while (true) {
+        SelectCounter.count.set(0);
+        List<Order> page = orderRepo.findPage(filter, after, PAGE);
+        assertTrue(SelectCounter.count.get() <= 2, "selects for one page: " + SelectCounter.count.get());
+        // the entities are detached here, so reading items would throw had they not been fetched
+        page.forEach(o -> assertTrue(Hibernate.isInitialized(o.getItems())));
+        page.forEach(o -> assertEquals(itemCounts.get(o.getId()), o.getItems().size()));
+        page.stream().map(Order::getId).forEach(walked::add);
+        if (page.size() < PAGE) {
+          break;
+        }
+        Order last = page.get(PAGE - 1);
+        after = new Cursor(last.getCreatedAt(), last.getId());
+      }
+      assertEquals(expected(filter), walked);
+    }
+  }
+
+  private List<Long> expected(OrderFilter filter) {
+    Predicate<Order> keep = o -> (filter.getUserEmail() == null || o.getUserEmail().equals(filter.getUserEmail()))
+        && (filter.getStatus() == null || o.getStatus() == filter.getStatus())
+        && (filter.getFrom() == null || !o.getCreatedAt().isBefore(filter.getFrom()))
+        && (filter.getTo() == null || o.getCreatedAt().isBefore(filter.getTo()))
+        && (filter.getMinTotal() == null || o.getTotalPrice().compareTo(filter.getMinTotal()) >= 0);
+    return seeded.stream()
+        .filter(keep)
+        .sorted(Comparator.comparing(Order::getCreatedAt).thenComparing(Order::getId).reversed())
+        .map(Order::getId)
+        .toList();
+  }
+
+  public static class SelectCounter implements StatementInspector {
+
+    static final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public String inspect(String statement) {
+      if (statement.startsWith("select")) {
+        count.incrementAndGet();
+      }
+      return statement;
+    }
+  }
+}
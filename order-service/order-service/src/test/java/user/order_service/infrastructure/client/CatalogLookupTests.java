@@ -0,0 +1,144 @@
+package user.order_service.infrastructure.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.order_service.infrastructure.config.security.JwtUtil;
+
+class CatalogLookupTests {
+
+  private static final long MISSING = 20;
+  private static final long BROKEN = 7;
+  private static final long SLOW = 1000;
+
+  private HttpServer catalog;
+  private CatalogLookup lookup;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+  private volatile long delayMs;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    catalog = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    catalog.setExecutor(Executors.newCachedThreadPool());
+    catalog.createContext("/books/lookup", this::handle);
+    catalog.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (lookup != null) {
+      lookup.destroy();
+    }
+    catalog.stop(0);
+  }
+
+  @Test
+  void batchesAreFetchedConcurrentlyWithinTheCartLimit() {
+    delayMs = 100;
+    lookup = newLookup(50, 4, 3000);
+    List<Long> ids = LongStream.rangeClosed(100, 499).boxed().collect(Collectors.toList());
+    // the first call pays for loading the HTTP client and JSON classes
+    lookup.lookup(List.of(100L), "token");
+    maxInFlight.set(0);
+
+    long begin = System.nanoTime();
+    CatalogLookup.Result result = lookup.lookup(ids, "token");
+    long elapsedMs = (System.nanoTime() - begin) / 1_000_000;
+    System.out.printf("8 catalog lookups of %d ms each: %d ms with 4 in flight%n", delayMs, elapsedMs);
+
+    assertEquals(400, result.books().size());
+    assertTrue(result.unavailable().isEmpty());
+    assertEquals(4, maxInFlight.get());
+    // one after another this would take 800 ms
+    assertTrue(elapsedMs < 600, "took " + elapsedMs + " ms");
+  }
+
+  @Test
+  void failedAndLateBatchesAreReportedWithoutFailingTheRest() {
+    lookup = newLookup(10, 4, 500);
+    List<Long> ids = LongStream.rangeClosed(1, 40).boxed().collect(Collectors.toList());
+    ids.add(SLOW);
+
+    long begin = System.nanoTime();
+    CatalogLookup.Result result = lookup.lookup(ids, "token");
+    long elapsedMs = (System.nanoTime() - begin) / 1_000_000;
+
+    // ids 1..10 share a batch with the broken one, 1000 sits alone in the slow one
+    Set<Long> unavailable = LongStream.rangeClosed(1, 10).boxed().collect(Collectors.toSet());
+    unavailable.add(SLOW);
+    assertEquals(unavailable, result.unavailable());
+    assertEquals(30 - 1, result.books().size());
+    assertTrue(elapsedMs < 1500, "took " + elapsedMs + " ms");
+  }
+
+  private CatalogLookup newLookup(int batchSize, int parallelism, long deadlineMs) {
+    String baseUrl = "http://127.0.0.1:" + catalog.getAddress().getPort();
+    CatalogClient client = new RestCatalogClient(new RestTemplate(), new SimpleMeterRegistry(),
+        new JwtUtil("ThisIsASuperSecureAndVeryLongSecretKey1234567890", 60_000), baseUrl,
+        50, 2000, 20, 10_000, 16, 8, 100, 3, 50);
+    return new CatalogLookup(client, batchSize, parallelism, 8, 16, deadlineMs);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    int now = inFlight.incrementAndGet();
+    maxInFlight.accumulateAndGet(now, Math::max);
+    try {
+      String query = exchange.getRequestURI().getQuery();
+      Set<Long> ids = Arrays.stream(query.substring("ids=".length()).split(","))
+          .map(Long::valueOf)
+          .collect(Collectors.toCollection(HashSet::new));
+      sleep(ids.contains(SLOW) ? 2000 : delayMs);
+      if (ids.contains(BROKEN)) {
+        respond(exchange, 500, "{\"success\":false,\"message\":\"boom\",\"errors\":[]}");
+        return;
+      }
+      String books = ids.stream()
+          .filter(id -> id != MISSING)
+          .map(id -> "{\"id\":" + id + ",\"title\":\"Book " + id + "\",\"price\":10000,\"stock\":3}")
+          .collect(Collectors.joining(","));
+      respond(exchange, 200, "{\"success\":true,\"message\":\"ok\",\"data\":[" + books + "],\"errors\":[]}");
+    } finally {
+      inFlight.decrementAndGet();
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+    byte[] body = json.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private static void sleep(long ms) {
+    try {
+      Thread.sleep(ms);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package user.order_service.infrastructure.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.order_service.infrastructure.config.security.AppConfig;
+
+class PooledHttpClientTests {
+
+  private HttpServer server;
+  private CloseableHttpClient httpClient;
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/slow", exchange -> {
+      clientPorts.add(exchange.getRemoteAddress().getPort());
+      try {
+        Thread.sleep(Long.parseLong(exchange.getRequestURI().getQuery().substring("ms=".length())));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.start();
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    httpClient.close();
+    server.stop(0);
+  }
+
+  @Test
+  void requestsQueueForTheRouteLimitAndReuseConnections() throws Exception {
+    RestTemplate restTemplate = newClient(2, 1000, 2000);
+    String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/slow?ms={ms}";
+
+    ExecutorService callers = Executors.newFixedThreadPool(6);
+    List<Future<?>> calls = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      calls.add(callers.submit(() -> restTemplate.getForObject(url, String.class, 50)));
+    }
+    for (Future<?> call : calls) {
+      call.get(10, TimeUnit.SECONDS);
+    }
+    callers.shutdown();
+
+    // twelve requests over two kept-alive connections
+    assertTrue(clientPorts.size() <= 2, "connections opened: " + clientPorts.size());
+    Timer lease = registry.get("httpcomponents.httpclient.pool.lease").tag("result", "acquired").timer();
+    assertEquals(12, lease.count());
+    assertTrue(lease.max(TimeUnit.MILLISECONDS) >= 40, "longest wait " + lease.max(TimeUnit.MILLISECONDS));
+    assertEquals(2.0, registry.get("httpcomponents.httpclient.pool.route.max.default").gauge().value());
+    System.out.printf("12 calls over a 2 connection route: longest lease wait %.1f ms%n",
+        lease.max(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void aSlowResponseHitsTheReadTimeout() {
+    RestTemplate restTemplate = newClient(2, 1000, 200);
+    String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/slow?ms={ms}";
+
+    long begin = System.nanoTime();
+    assertThrows(ResourceAccessException.class, () -> restTemplate.getForObject(url, String.class, 2000));
+    assertTrue((System.nanoTime() - begin) / 1_000_000 < 1500);
+  }
+
+  private RestTemplate newClient(int maxPerRoute, long leaseTimeoutMs, long readTimeoutMs) {
+    AppConfig config = new AppConfig();
+    httpClient = config.httpClient(registry, 10, maxPerRoute, 500, readTimeoutMs, leaseTimeoutMs, 30_000, 30_000,
+        300_000, 2_000);
+    return config.restTemplate(new RestTemplateBuilder(), httpClient);
+  }
+}
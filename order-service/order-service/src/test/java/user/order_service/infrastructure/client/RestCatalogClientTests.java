@@ -0,0 +1,186 @@
+package user.order_service.infrastructure.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import user.order_service.application.dto.BookLookupDto;
+import user.order_service.application.dto.StockItemDto;
+import user.order_service.infrastructure.config.security.JwtUtil;
+import user.order_service.infrastructure.exception.CatalogRejectedException;
+import user.order_service.infrastructure.exception.CatalogUnavailableException;
+
+class RestCatalogClientTests {
+
+  private HttpServer catalog;
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final JwtUtil jwtUtil = new JwtUtil("ThisIsASuperSecureAndVeryLongSecretKey1234567890", 60_000);
+  private volatile String stockRole;
+  private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+  private final AtomicInteger lookupFailures = new AtomicInteger();
+  private volatile long lookupDelayMs;
+  private volatile int reserveStatus = 200;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    catalog = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    catalog.setExecutor(Executors.newCachedThreadPool());
+    catalog.createContext("/books/lookup", exchange -> {
+      count("lookup");
+      sleep(lookupDelayMs);
+      if (lookupFailures.getAndDecrement() > 0) {
+        respond(exchange, 503, "{\"success\":false,\"message\":\"down\",\"errors\":[]}");
+        return;
+      }
+      respond(exchange, 200, "{\"success\":true,\"message\":\"ok\",\"data\":"
+          + "[{\"id\":1,\"title\":\"Book 1\",\"price\":10000,\"stock\":3}],\"errors\":[]}");
+    });
+    catalog.createContext("/books/stock/reserve", exchange -> {
+      count("reserve");
+      respond(exchange, reserveStatus, reserveStatus == 400
+          ? "{\"success\":false,\"message\":\"Failed to reserve stock\","
+              + "\"errors\":[\"Not enough stock for book id 1\"]}"
+          : "{\"success\":" + (reserveStatus == 200) + ",\"message\":\"\",\"data\":[],\"errors\":[]}");
+    });
+    catalog.createContext("/books/stock/reservations", exchange -> {
+      count("confirm");
+      stockRole = jwtUtil.extractRole(exchange.getRequestHeaders().getFirst("Authorization").substring(7));
+      respond(exchange, 200, "{\"success\":true,\"message\":\"Reservation confirmed\",\"data\":[],\"errors\":[]}");
+    });
+    catalog.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    catalog.stop(0);
+  }
+
+  @Test
+  void lookupsAreRetriedWithBackoff() {
+    CatalogClient client = newClient(20, 16, 100, 3);
+    lookupFailures.set(2);
+
+    List<BookLookupDto> books = client.lookup(List.of(1L), "token");
+
+    assertEquals(1, books.size());
+    assertEquals("Book 1", books.get(0).getTitle());
+    assertEquals(3, hits.get("lookup").get());
+    assertEquals(1.0, registry.get("resilience4j.retry.calls").tag("kind", "successful_with_retry")
+        .functionCounter().count());
+  }
+
+  @Test
+  void stockCallsAreNotRetriedAndRefusalsCarryTheCatalogErrors() {
+    CatalogClient client = newClient(20, 16, 100, 3);
+    List<StockItemDto> items = List.of(new StockItemDto(1L, 5));
+
+    reserveStatus = 400;
+    CatalogRejectedException refused = assertThrows(CatalogRejectedException.class,
+        () -> client.reserve(42L, items));
+    assertEquals(List.of("Not enough stock for book id 1"), refused.getErrors());
+
+    reserveStatus = 500;
+    assertThrows(CatalogUnavailableException.class, () -> client.reserve(42L, items));
+    assertEquals(2, hits.get("reserve").get());
+    // only the server error counts against the catalog
+    assertEquals(1.0, registry.get("resilience4j.circuitbreaker.calls").tag("kind", "failed").timer().count());
+  }
+
+  @Test
+  void theCircuitOpensAndLaterCallsFailWithoutReachingTheCatalog() {
+    CatalogClient client = newClient(4, 16, 100, 1);
+    lookupFailures.set(Integer.MAX_VALUE);
+
+    assertThrows(CatalogUnavailableException.class, () -> client.lookup(List.of(1L), "token"));
+    assertThrows(CatalogUnavailableException.class, () -> client.lookup(List.of(1L), "token"));
+    CatalogUnavailableException open = assertThrows(CatalogUnavailableException.class,
+        () -> client.confirm(42L));
+
+    assertEquals(List.of("Catalog circuit is open"), open.getErrors());
+    assertEquals(2, hits.get("lookup").get());
+    assertNull(hits.get("confirm"));
+    assertEquals(1.0, registry.get("catalog.client.circuit.transitions")
+        .tag("from", "CLOSED").tag("to", "OPEN").counter().count());
+  }
+
+  @Test
+  void aFullLookupBulkheadDoesNotHoldUpStockCalls() throws Exception {
+    CatalogClient client = newClient(20, 2, 0, 1);
+    lookupDelayMs = 300;
+
+    ExecutorService callers = Executors.newFixedThreadPool(4);
+    List<Future<List<BookLookupDto>>> lookups = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      lookups.add(callers.submit(() -> client.lookup(List.of(1L), "token")));
+    }
+    Thread.sleep(100);
+    client.confirm(42L);
+
+    int busy = 0;
+    for (Future<List<BookLookupDto>> lookup : lookups) {
+      try {
+        lookup.get(5, TimeUnit.SECONDS);
+      } catch (ExecutionException ex) {
+        assertEquals("Catalog is busy", ex.getCause().getMessage());
+        busy++;
+      }
+    }
+    callers.shutdown();
+
+    assertEquals(2, busy);
+    assertEquals(2, hits.get("lookup").get());
+    assertEquals(1, hits.get("confirm").get());
+    assertEquals("SERVICE", stockRole);
+  }
+
+  private CatalogClient newClient(int window, int lookupConcurrency, long bulkheadWaitMs, int retryAttempts) {
+    String baseUrl = "http://127.0.0.1:" + catalog.getAddress().getPort();
+    return new RestCatalogClient(new RestTemplate(), registry, jwtUtil, baseUrl, 50, 2000, window, 60_000,
+        lookupConcurrency, 8, bulkheadWaitMs, retryAttempts, 20);
+  }
+
+  private void count(String operation) {
+    hits.computeIfAbsent(operation, k -> new AtomicInteger()).incrementAndGet();
+  }
+
+  private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+    byte[] body = json.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private static void sleep(long ms) {
+    try {
+      Thread.sleep(ms);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
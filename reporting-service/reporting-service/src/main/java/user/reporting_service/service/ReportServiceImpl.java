@@ -12,6 +12,7 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -22,7 +23,9 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ReportServiceImpl implements ReportService {
 
-  private final RestTemplate restTemplate = new RestTemplate();
+  private static final int ORDER_PAGE_SIZE = 100;
+
+  private final RestTemplate restTemplate;
 
   @Value("${order-service.url}")
   private String orderServiceUrl;
@@ -36,17 +39,37 @@ public class ReportServiceImpl implements ReportService {
     return new HttpEntity<>(headers);
   }
 
+  // order-service filters by status and hands out keyset pages; follow nextCursor until it runs out
+  private List<Map<String, Object>> fetchPaidOrders(String token) {
+    List<Map<String, Object>> orders = new ArrayList<>();
+    String cursor = "";
+    do {
+      String url = UriComponentsBuilder.fromHttpUrl(orderServiceUrl)
+          .queryParam("status", "PAID")
+          .queryParam("size", ORDER_PAGE_SIZE)
+          .queryParam("cursor", cursor)
+          .toUriString();
+      ResponseEntity<ApiResponse<Map<String, Object>>> resp = restTemplate.exchange(
+          url,
+          HttpMethod.GET,
+          buildAuthEntity(token),
+          new ParameterizedTypeReference<ApiResponse<Map<String, Object>>>() {
+          });
+
+      Map<String, Object> page = resp.getBody() != null ? resp.getBody().getData() : null;
+      if (page == null || page.get("content") == null) {
+        break;
+      }
+      orders.addAll((List<Map<String, Object>>) page.get("content"));
+      cursor = page.get("nextCursor") != null ? page.get("nextCursor").toString() : null;
+    } while (cursor != null);
+    return orders;
+  }
+
   @Override
   public SalesReportDto getSalesReport(String token) {
-    ResponseEntity<ApiResponse<List<Map<String, Object>>>> resp = restTemplate.exchange(
-        orderServiceUrl,
-        HttpMethod.GET,
-        buildAuthEntity(token),
-        new ParameterizedTypeReference<ApiResponse<List<Map<String, Object>>>>() {
-        });
-
-    List<Map<String, Object>> orders = resp.getBody().getData();
-    if (orders == null) {
+    List<Map<String, Object>> orders = fetchPaidOrders(token);
+    if (orders.isEmpty()) {
       return new SalesReportDto(0, 0, Collections.emptyList());
     }
 
@@ -86,15 +109,8 @@ public class ReportServiceImpl implements ReportService {
 
   @Override
   public List<BestsellerDto> getBestseller(String token) {
-    ResponseEntity<ApiResponse<List<Map<String, Object>>>> resp = restTemplate.exchange(
-        orderServiceUrl,
-        HttpMethod.GET,
-        buildAuthEntity(token),
-        new ParameterizedTypeReference<ApiResponse<List<Map<String, Object>>>>() {
-        });
-
-    List<Map<String, Object>> orders = resp.getBody().getData();
-    if (orders == null)
+    List<Map<String, Object>> orders = fetchPaidOrders(token);
+    if (orders.isEmpty())
       return Collections.emptyList();
 
     Map<Long, Long> soldCount = new HashMap<>();
@@ -125,10 +141,11 @@ public class ReportServiceImpl implements ReportService {
 
   private String getBookTitle(Long bookId, String token) {
     ResponseEntity<Map> resp = restTemplate.exchange(
-        catalogServiceUrl + "/" + bookId,
+        catalogServiceUrl + "/{id}",
         HttpMethod.GET,
         buildAuthEntity(token),
-        Map.class);
+        Map.class,
+        bookId);
     if (resp.getBody() != null && resp.getBody().get("title") != null) {
       return resp.getBody().get("title").toString();
     }